@@ -1,18 +1,27 @@
 import api.AdminResource;
-import model.customer.Customer;
 import model.room.IRoom;
 import model.room.Room;
 import model.room.enums.RoomType;
+import service.reservation.RoomImportReport;
+import storage.ExportFormat;
+import storage.TransferSummary;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * AdminMenu
  * <p>
  * Manages the admin menu functionality, including displaying the menu, handling user input,
- * adding rooms, showing all customers, showing all rooms, and displaying all reservations.
+ * adding rooms one by one or from a manifest, showing all customers, showing all rooms, displaying all reservations,
+ * and exporting or importing all data.
  * Provides methods for interacting with rooms and customers through the admin resource.
  * Uses a scanner for user input.
  * Implements a singleton design pattern to access the admin resource.
@@ -38,7 +47,10 @@ public class AdminMenu {
                     case '2' -> showAllRooms();
                     case '3' -> adminResource.displayAllReservations();
                     case '4' -> addRoom();
-                    case '5' -> {
+                    case '5' -> importRooms();
+                    case '6' -> exportData();
+                    case '7' -> importData();
+                    case '8' -> {
                         MainMenu.showMainMenu();
                         running = false;
                     }
@@ -61,7 +73,10 @@ public class AdminMenu {
                 2. Show all Rooms
                 3. Show all Reservations
                 4. Add a Room
-                5. Back to Main Menu
+                5. Import Rooms from a Manifest
+                6. Export all Data
+                7. Import Data
+                8. Back to Main Menu
                 --------------------------------------------
                 Please select a number for the menu option:
                 """);
@@ -81,10 +96,7 @@ public class AdminMenu {
             return;
         }
 
-        boolean roomExists = adminResource.getAllRooms().stream()
-                .anyMatch(room -> room.getRoomNumber().equals(roomNumber));
-
-        if (roomExists) {
+        if (adminResource.getRoom(roomNumber) != null) {
             System.out.println("Oops, room number already added before. Please add another unique number. Would you like to add another room? (Y/N)");
             addAnotherRoom();
             return;
@@ -153,35 +165,104 @@ public class AdminMenu {
         }
     }
 
+    /**
+     * Imports the rooms of a manifest file chosen by the user and reports the rejected rows.
+     */
+    private static void importRooms() {
+        System.out.println("Enter the manifest file (one room per line as roomNumber,price,roomType):");
+        Path manifest = Path.of(scanner.nextLine().trim());
+        try {
+            RoomImportReport report = adminResource.importRooms(manifest);
+            System.out.println("Added " + report.getAddedRooms() + " rooms, rejected " + report.getErrors().size() + " rows.");
+            report.getErrors().forEach(System.out::println);
+        } catch (IOException ex) {
+            System.out.println("Import failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Exports all data to a file chosen by the user.
+     */
+    private static void exportData() {
+        System.out.println("Enter the file to export to:");
+        Path file = Path.of(scanner.nextLine().trim());
+        ExportFormat format = getExportFormatInput();
+        try {
+            TransferSummary summary = adminResource.exportData(file, format);
+            System.out.println("Exported " + summary.getRecords() + " records to " + file);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println("Export failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Imports data from a file chosen by the user.
+     */
+    private static void importData() {
+        System.out.println("Enter the file to import from:");
+        Path file = Path.of(scanner.nextLine().trim());
+        ExportFormat format = getExportFormatInput();
+        try {
+            TransferSummary summary = adminResource.importData(file, format);
+            System.out.println("Imported " + (summary.getRecords() - summary.getRejected()) + " of "
+                    + summary.getRecords() + " records from " + file);
+            summary.getErrorSamples().forEach(error -> System.out.println("Rejected: " + error));
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println("Import failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a valid export format input from the user.
+     *
+     * @return the valid export format
+     */
+    private static ExportFormat getExportFormatInput() {
+        while (true) {
+            System.out.println("Enter file format (CSV or BINARY):");
+            try {
+                return ExportFormat.valueOf(scanner.nextLine().trim().toUpperCase());
+            } catch (IllegalArgumentException exp) {
+                System.out.println("Invalid input! Please enter CSV or BINARY.");
+            }
+        }
+    }
+
     /**
      * Displays all rooms stored in the system.
      */
     private static void showAllRooms() {
         Collection<IRoom> rooms = adminResource.getAllRooms();
-        printItems(rooms, "No rooms found.", "Available rooms:");
+        printItems(rooms::forEach, "No rooms found.", "Available rooms:");
     }
 
     /**
      * Displays all customers stored in the system.
      */
     private static void showAllCustomers() {
-        Collection<Customer> customers = adminResource.getAllCustomers();
-        printItems(customers, "No customers found.", "All Customers:");
+        printItems(adminResource::forEachCustomer, "No customers found.", "All Customers:");
     }
 
     /**
-     * Prints a collection of items with a header and empty message if the collection is empty.
+     * Prints every item with a header, or an empty message if there are none,
+     * streaming them to standard output through one buffered writer.
      *
-     * @param items the collection of items to print
-     * @param emptyMessage the message to print if the collection is empty
+     * @param items walks the items to print
+     * @param emptyMessage the message to print if there are no items
      * @param header the header to print before printing the items
      */
-    private static <T> void printItems(Collection<T> items, String emptyMessage, String header) {
-        System.out.println(header);
-        if (items.isEmpty()) {
-            System.out.println(emptyMessage);
-        } else {
-            items.forEach(System.out::println);
+    private static <T> void printItems(Consumer<Consumer<T>> items, String emptyMessage, String header) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        boolean[] found = new boolean[1];
+
+        out.println(header);
+        items.accept(item -> {
+            found[0] = true;
+            out.println(item);
+        });
+        if (!found[0]) {
+            out.println(emptyMessage);
         }
+        out.flush();
     }
 }
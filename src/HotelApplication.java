@@ -1,13 +1,71 @@
+import api.AdminResource;
+import api.HotelResource;
+import cluster.ClusterNode;
+import metrics.HotelMetrics;
+import server.HotelHttpServer;
+import service.reservation.AvailabilityBackend;
+import service.reservation.ReservationService;
+import service.reservation.RoomPartitioning;
+import storage.HotelStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * HotelApplication
  * The entry point for the Hotel Reservation Application.
- * It starts the application by calling the showMainMenu() method of the MainMenu class.
+ * It selects the availability backend from {@code hotel.availability.backend}, split into
+ * {@code hotel.availability.shards} shards by {@code hotel.availability.partitioning} when more than one is set.
+ * It restores the durable storage when {@code hotel.data.dir} is set, and runs as a node of a hotel cluster
+ * when {@code hotel.cluster.port} is set, joining the cluster of {@code hotel.cluster.seed} if given.
+ * It then either serves the hotel over HTTP
+ * when {@code hotel.http.port} is set, or starts the interactive application
+ * by calling the showMainMenu() method of the MainMenu class.
+ * Operation metrics are published as the platform MBean {@value HotelMetrics#OBJECT_NAME}.
  *
  * @author ahmad deni atmaja saputra
  */
 public class HotelApplication {
 
-    public static void main(String[] args) {
-        MainMenu.showMainMenu();
+    public static void main(String[] args) throws IOException {
+        HotelMetrics.getSingleton().registerMBean();
+        ReservationService.getSingleton().useAvailabilityBackend(
+                AvailabilityBackend.valueOf(System.getProperty("hotel.availability.backend", "INTERVAL_INDEX")),
+                Integer.getInteger("hotel.availability.shards", 1),
+                RoomPartitioning.valueOf(System.getProperty("hotel.availability.partitioning", "HASH")));
+        final HotelStorage storage = HotelStorage.openFromSystemProperties();
+        final ClusterNode cluster = ClusterNode.startFromSystemProperties();
+        if (cluster != null) {
+            HotelResource.getSingleton().attachCluster(cluster);
+            AdminResource.getSingleton().attachCluster(cluster);
+        }
+        final Integer httpPort = Integer.getInteger("hotel.http.port");
+        final HotelHttpServer httpServer = httpPort == null ? null
+                : new HotelHttpServer(httpPort, Integer.getInteger("hotel.http.backlog", HotelHttpServer.DEFAULT_BACKLOG));
+
+        if (storage != null || cluster != null || httpServer != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (httpServer != null) {
+                    httpServer.close();
+                }
+                if (cluster != null) {
+                    cluster.close();
+                }
+                if (storage != null) {
+                    try {
+                        storage.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            }));
+        }
+
+        if (httpServer != null) {
+            httpServer.start();
+            System.out.println("Hotel HTTP server listening on port " + httpServer.getPort());
+        } else {
+            MainMenu.showMainMenu();
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,12 +3,14 @@ import api.HotelResource;
 import model.customer.Customer;
 import model.reservation.Reservation;
 import model.room.IRoom;
+import service.reservation.AlternativeStay;
+import service.reservation.RoomNotAvailableException;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -18,6 +20,8 @@ import java.util.Scanner;
  */
 public class MainMenu {
     private static final String DEFAULT_DATE_FORMAT = "MM/dd/yyyy";
+    private static final int RECOMMENDATION_HORIZON_DAYS = 180;
+    private static final int RECOMMENDATION_LIMIT = 3;
     private static final HotelResource hotelResource = HotelResource.getSingleton();
     private static final AdminResource adminResource = AdminResource.getSingleton();
     private static final Scanner scanner = new Scanner(System.in);
@@ -118,7 +122,8 @@ public class MainMenu {
      * Prompts the user to enter the check-in and check-out dates in MM/dd/yyyy format.
      * Validates the entered dates and ensures that the check-out date is after the check-in date.
      * Retrieves available rooms for the specified dates from the hotel resource.
-     * If no rooms are available, informs the user. Otherwise, displays available rooms and proceeds to room reservation.
+     * If no rooms are available, recommends the nearest alternative dates. Otherwise, displays available rooms
+     * and proceeds to room reservation.
      */
     private static void searchAndReserveRoom() {
         Collection<IRoom> rooms = adminResource.getAllRooms();
@@ -144,35 +149,7 @@ public class MainMenu {
             Collection<IRoom> availableRooms = hotelResource.findARoom(checkIn, checkOut);
             if (availableRooms.isEmpty()) {
                 System.out.println("No rooms available for selected dates. Searching for recommended rooms...");
-
-                Calendar recommendCheckIn = Calendar.getInstance();
-                recommendCheckIn.setTime(checkIn);
-
-                Calendar recommendCheckOut = Calendar.getInstance();
-                recommendCheckOut.setTime(checkOut);
-
-                SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
-
-                Collection<IRoom> recommendedRooms;
-                int daysSettings = 7;
-                int daysIncrement = 7;
-                while (true) {
-                    recommendCheckIn.add(Calendar.DATE, daysSettings);
-                    recommendCheckOut.add(Calendar.DATE, daysSettings);
-
-                    recommendedRooms = hotelResource.findARoom(recommendCheckIn.getTime(), recommendCheckOut.getTime());
-
-                    if (!recommendedRooms.isEmpty()) {
-                        System.out.println("Recommended rooms for alternative dates: checkin " + sdf.format(recommendCheckIn.getTime()) + " and checkout " + sdf.format(recommendCheckOut.getTime()));
-                        printAvailableRooms(recommendedRooms);
-                        reserveRoom(recommendCheckIn.getTime(), recommendCheckOut.getTime(), recommendedRooms);
-                        break;
-                    }
-
-                    System.out.println("No recommended rooms available for alternative dates. Searching for rooms " + daysIncrement + " days later...");
-
-                    daysIncrement += 7;
-                }
+                recommendAlternativeStay(checkIn, checkOut);
             } else {
                 printAvailableRooms(availableRooms);
                 reserveRoom(checkIn, checkOut, availableRooms);
@@ -184,6 +161,42 @@ public class MainMenu {
 
 
 
+    /**
+     * Recommends stays of the same length on the nearest dates with free rooms, before or after the requested ones.
+     * Lists up to RECOMMENDATION_LIMIT alternatives within RECOMMENDATION_HORIZON_DAYS days and lets the user pick one.
+     * If no alternative exists within the horizon, informs the user instead of searching further.
+     */
+    private static void recommendAlternativeStay(Date checkIn, Date checkOut) {
+        List<AlternativeStay> alternatives = hotelResource.findAlternativeStays(checkIn, checkOut,
+                RECOMMENDATION_HORIZON_DAYS, RECOMMENDATION_LIMIT);
+        if (alternatives.isEmpty()) {
+            System.out.println("No rooms available within " + RECOMMENDATION_HORIZON_DAYS + " days of the selected dates.");
+            return;
+        }
+
+        System.out.println("Recommended alternative dates:");
+        for (int i = 0; i < alternatives.size(); i++) {
+            System.out.println((i + 1) + ". " + alternatives.get(i));
+        }
+        System.out.println("Please select a number for the alternative dates, or any other key to return to main menu:");
+
+        String line = scanner.nextLine();
+        int choice;
+        try {
+            choice = Integer.parseInt(line.trim());
+        } catch (NumberFormatException ex) {
+            choice = 0;
+        }
+        if (choice < 1 || choice > alternatives.size()) {
+            System.out.println("Returning to main menu.");
+            return;
+        }
+
+        AlternativeStay alternative = alternatives.get(choice - 1);
+        printAvailableRooms(alternative.getAvailableRooms());
+        reserveRoom(alternative.getCheckInDate(), alternative.getCheckOutDate(), alternative.getAvailableRooms());
+    }
+
     /**
      * Prompts the user to enter a date in MM/dd/yyyy format and retrieves the input from the scanner.
      * Parses the input string to a Date object using the SimpleDateFormat with the default date format.
@@ -274,6 +287,8 @@ public class MainMenu {
      * Checks if the entered room is among the available rooms for the specified dates.
      * If the room is valid and available, completes the reservation process by calling the bookARoom method from the hotel resource.
      * Displays a success message along with the reservation details upon successful reservation.
+     * If the room was booked by someone else in the meantime, or the dates are not a valid stay,
+     * displays the problem instead.
      * If the entered room number is invalid or not available, displays a message indicating an invalid room number.
      */
     private static void completeReservation(String customerEmail, Date checkInDate, Date checkOutDate, Collection<IRoom> rooms) {
@@ -281,9 +296,13 @@ public class MainMenu {
         String roomNumber = scanner.nextLine();
         IRoom room = hotelResource.getRoom(roomNumber);
         if (room != null && rooms.contains(room)) {
-            Reservation reservation = hotelResource.bookARoom(customerEmail, room, checkInDate, checkOutDate);
-            System.out.println("Reservation successful:");
-            System.out.println(reservation);
+            try {
+                Reservation reservation = hotelResource.bookARoom(customerEmail, room, checkInDate, checkOutDate);
+                System.out.println("Reservation successful:");
+                System.out.println(reservation);
+            } catch (RoomNotAvailableException | IllegalArgumentException ex) {
+                System.out.println(ex.getMessage());
+            }
         } else {
             System.out.println("Invalid room number.");
         }
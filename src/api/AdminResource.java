@@ -1,18 +1,38 @@
 package api;
 
+import cluster.ClusterNode;
+import metrics.HotelMetrics;
+import metrics.HotelOperation;
+import metrics.OperationStatistics;
 import model.customer.Customer;
+import model.reservation.Reservation;
 import model.room.IRoom;
 import service.customer.CustomerService;
+import service.reservation.AvailabilityCacheStatistics;
+import service.reservation.OccupancyReport;
 import service.reservation.ReservationService;
+import service.reservation.RoomImportReport;
+import service.reservation.RoomManifest;
+import storage.DataTransfer;
+import storage.ExportFormat;
+import storage.TransferSummary;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * AdminResource
  * <p>
  * Provides access to administrative operations such as managing rooms, retrieving customer information,
  * and displaying reservations.
+ * Adding, importing and listing rooms and customers, and occupancy reports, are measured by {@link HotelMetrics}.
+ * When a {@link ClusterNode} is attached, rooms are added to and listed from the nodes owning them, and imported
+ * rooms are handed to their owners once imported; reservations, reports and exports cover this node only.
  * Singleton pattern is used to ensure only one instance of this class exists.
  *
  * @author ahmad deni atmaja saputra
@@ -25,6 +45,8 @@ public class AdminResource {
     // Services
     private final CustomerService customerService = CustomerService.getSingleton();
     private final ReservationService reservationService = ReservationService.getSingleton();
+    private final HotelMetrics metrics = HotelMetrics.getSingleton();
+    private volatile ClusterNode cluster;
 
     // Private constructor to prevent instantiation
     private AdminResource() {}
@@ -39,12 +61,68 @@ public class AdminResource {
     }
 
     /**
-     * Adds rooms to the system.
+     * Routes the room operations of this resource through a cluster node from now on.
+     *
+     * @param cluster the node this application runs as
+     */
+    public void attachCluster(ClusterNode cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Adds rooms to the system with one bulk insert.
      *
      * @param rooms the list of rooms to add
      */
     public void addRoom(List<IRoom> rooms) {
-        rooms.forEach(reservationService::addRoom);
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            if (node != null) {
+                node.addRooms(rooms);
+            } else {
+                reservationService.addRooms(rooms);
+            }
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.ADD_ROOM);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.ADD_ROOM, start);
+        }
+    }
+
+    /**
+     * Imports the rooms of a manifest file, one room per line as {@code roomNumber,price,roomType}.
+     * Invalid and duplicate rows are reported without stopping the rest of the import.
+     *
+     * @param manifest the manifest file
+     * @return the number of rooms added and the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public RoomImportReport importRooms(Path manifest) throws IOException {
+        final List<String> lines = Files.readAllLines(manifest);
+        final long start = metrics.start();
+        try {
+            final RoomImportReport report = RoomManifest.importRooms(lines, reservationService);
+            rebalanceCluster();
+            return report;
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.IMPORT_ROOMS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.IMPORT_ROOMS, start);
+        }
+    }
+
+    /**
+     * Retrieves a room by its room number, looked up in the room number index.
+     *
+     * @param roomNumber the room number
+     * @return the room with the specified number, or null if not found
+     */
+    public IRoom getRoom(String roomNumber) {
+        final ClusterNode node = cluster;
+        return node != null ? node.getRoom(roomNumber) : reservationService.getARoom(roomNumber);
     }
 
     /**
@@ -53,7 +131,16 @@ public class AdminResource {
      * @return a collection of all rooms
      */
     public Collection<IRoom> getAllRooms() {
-        return reservationService.getAllRooms();
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.getAllRooms() : reservationService.getAllRooms();
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_ALL_ROOMS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_ALL_ROOMS, start);
+        }
     }
 
     /**
@@ -62,7 +149,24 @@ public class AdminResource {
      * @return a collection of all customers
      */
     public Collection<Customer> getAllCustomers() {
-        return customerService.getAllCustomers();
+        final long start = metrics.start();
+        try {
+            return customerService.getAllCustomers();
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_ALL_CUSTOMERS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_ALL_CUSTOMERS, start);
+        }
+    }
+
+    /**
+     * Performs the given action for every customer in the system, without copying the customers.
+     *
+     * @param action the action to perform
+     */
+    public void forEachCustomer(Consumer<Customer> action) {
+        customerService.forEachCustomer(action);
     }
 
     /**
@@ -71,4 +175,88 @@ public class AdminResource {
     public void displayAllReservations() {
         reservationService.printAllReservation();
     }
+
+    /**
+     * Performs the given action for every reservation made in the system.
+     *
+     * @param action the action to perform
+     */
+    public void forEachReservation(Consumer<Reservation> action) {
+        reservationService.forEachReservation(action);
+    }
+
+    /**
+     * Computes the per-night occupancy, ADR, RevPAR, revenue by room type and length-of-stay histogram
+     * of a range of nights, using every core.
+     *
+     * @param startDate the first night of the range
+     * @param endDate the day after the last night of the range
+     * @return the occupancy report
+     * @throws IllegalArgumentException if the end date is not after the start date
+     */
+    public OccupancyReport getOccupancyReport(Date startDate, Date endDate) {
+        final long start = metrics.start();
+        try {
+            return reservationService.getOccupancyReport(startDate, endDate);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_OCCUPANCY_REPORT);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_OCCUPANCY_REPORT, start);
+        }
+    }
+
+    /**
+     * Exports all rooms, customers and reservations to a file.
+     *
+     * @param file the file to write
+     * @param format the format of the file
+     * @return a summary with the number of records written
+     * @throws IOException if the file cannot be written
+     */
+    public TransferSummary exportData(Path file, ExportFormat format) throws IOException {
+        return DataTransfer.exportTo(file, format);
+    }
+
+    /**
+     * Imports rooms, customers and reservations from an exported file.
+     *
+     * @param file the file to read
+     * @param format the format of the file
+     * @return a summary with the number of records read and rejected
+     * @throws IOException if the file cannot be read
+     */
+    public TransferSummary importData(Path file, ExportFormat format) throws IOException {
+        final TransferSummary summary = DataTransfer.importFrom(file, format);
+        rebalanceCluster();
+        return summary;
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction counters of the room search cache.
+     *
+     * @return the cache statistics
+     */
+    public AvailabilityCacheStatistics getAvailabilityCacheStatistics() {
+        return reservationService.getAvailabilityCacheStatistics();
+    }
+
+    /**
+     * Retrieves the call counts and latency percentiles of every measured operation.
+     *
+     * @return the statistics of each operation
+     */
+    public List<OperationStatistics> getOperationStatistics() {
+        return metrics.getOperationStatistics();
+    }
+
+    /**
+     * Hands rooms added to this node directly to the cluster nodes owning them, if a cluster node is attached.
+     */
+    private void rebalanceCluster() {
+        final ClusterNode node = cluster;
+        if (node != null) {
+            node.rebalance();
+        }
+    }
 }
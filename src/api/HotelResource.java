@@ -1,19 +1,33 @@
 package api;
 
+import cluster.ClusterNode;
 import model.customer.Customer;
 import model.reservation.Reservation;
 import model.room.IRoom;
+import metrics.HotelMetrics;
+import metrics.HotelOperation;
 import service.customer.CustomerService;
+import service.reservation.AlternativeStay;
+import service.reservation.AvailabilityPage;
 import service.reservation.ReservationService;
+import service.reservation.RoomFilter;
+import service.reservation.RoomOrder;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * HotelResource
  * <p>
  * Provides access to hotel-related operations such as managing customers, rooms, and reservations.
+ * Every operation except streaming is measured by {@link HotelMetrics}.
+ * When a {@link ClusterNode} is attached, calls about one room go to the node owning the room,
+ * and searches and listings cover the rooms of every node.
  * Singleton pattern is used to ensure only one instance of this class exists.
  *
  * @author ahmad deni atmaja saputra
@@ -26,6 +40,8 @@ public class HotelResource {
     // Services
     private final CustomerService customerService = CustomerService.getSingleton();
     public final ReservationService reservationService = ReservationService.getSingleton();
+    private final HotelMetrics metrics = HotelMetrics.getSingleton();
+    private volatile ClusterNode cluster;
 
     // Private constructor to prevent instantiation
     private HotelResource() {}
@@ -39,6 +55,15 @@ public class HotelResource {
         return SINGLETON;
     }
 
+    /**
+     * Routes the operations of this resource through a cluster node from now on.
+     *
+     * @param cluster the node this application runs as
+     */
+    public void attachCluster(ClusterNode cluster) {
+        this.cluster = cluster;
+    }
+
     /**
      * Retrieves a customer by email.
      *
@@ -46,7 +71,15 @@ public class HotelResource {
      * @return the customer with the specified email, or null if not found
      */
     public Customer getCustomer(String email) {
-        return customerService.getCustomer(email);
+        final long start = metrics.start();
+        try {
+            return customerService.getCustomer(email);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_CUSTOMER);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_CUSTOMER, start);
+        }
     }
 
     /**
@@ -57,7 +90,43 @@ public class HotelResource {
      * @param lastName the last name of the new customer
      */
     public void createACustomer(String email, String firstName, String lastName) {
-        customerService.addCustomer(email, firstName, lastName);
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            if (node != null) {
+                node.addCustomer(email, firstName, lastName);
+            } else {
+                customerService.addCustomer(email, firstName, lastName);
+            }
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.CREATE_A_CUSTOMER);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.CREATE_A_CUSTOMER, start);
+        }
+    }
+
+    /**
+     * Creates a new customer unless a customer with the same email exists already, as one atomic step.
+     *
+     * @param email the email of the new customer
+     * @param firstName the first name of the new customer
+     * @param lastName the last name of the new customer
+     * @return true if the customer was created, false if the email was already taken
+     * @throws IllegalArgumentException if the email format is incorrect
+     */
+    public boolean createACustomerIfAbsent(String email, String firstName, String lastName) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.addCustomerIfAbsent(email, firstName, lastName)
+                    : customerService.addCustomerIfAbsent(email, firstName, lastName);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.CREATE_A_CUSTOMER);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.CREATE_A_CUSTOMER, start);
+        }
     }
 
     /**
@@ -67,7 +136,16 @@ public class HotelResource {
      * @return the room with the specified number
      */
     public IRoom getRoom(String roomNumber) {
-        return reservationService.getARoom(roomNumber);
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.getRoom(roomNumber) : reservationService.getARoom(roomNumber);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_ROOM);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_ROOM, start);
+        }
     }
 
     /**
@@ -78,9 +156,125 @@ public class HotelResource {
      * @param checkInDate the check-in date for the reservation
      * @param checkOutDate the check-out date for the reservation
      * @return the reservation for the booked room
+     * @throws IllegalArgumentException if the customer does not exist
+     * @throws service.reservation.RoomNotAvailableException if the room is already booked during the given dates
      */
     public Reservation bookARoom(String customerEmail, IRoom room, Date checkInDate, Date checkOutDate) {
-        return reservationService.reserveARoom(getCustomer(customerEmail), room, checkInDate, checkOutDate);
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            if (node != null) {
+                return node.bookARoom(requireCustomer(customerEmail), room.getRoomNumber(), checkInDate, checkOutDate);
+            }
+            return reservationService.reserveARoom(requireCustomer(customerEmail), room, checkInDate, checkOutDate);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.BOOK_A_ROOM);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.BOOK_A_ROOM, start);
+        }
+    }
+
+    /**
+     * Books several rooms for a customer for the same dates, all or nothing.
+     * Either every room is booked, or none is and the first room that was taken is reported.
+     *
+     * @param customerEmail the email of the customer booking the rooms
+     * @param roomNumbers the numbers of the rooms to be booked
+     * @param checkInDate the check-in date for the reservations
+     * @param checkOutDate the check-out date for the reservations
+     * @return the reservations for the booked rooms, in the order of the given room numbers
+     * @throws IllegalArgumentException if the customer or one of the rooms does not exist
+     * @throws service.reservation.RoomNotAvailableException if one of the rooms is already booked during the given dates
+     */
+    public List<Reservation> bookRooms(String customerEmail, List<String> roomNumbers, Date checkInDate, Date checkOutDate) {
+        final long start = metrics.start();
+        try {
+            final Customer customer = customerService.getCustomer(customerEmail);
+            if (customer == null) {
+                throw new IllegalArgumentException("Customer not found: " + customerEmail);
+            }
+
+            final ClusterNode node = cluster;
+            if (node != null) {
+                return node.bookRooms(customer, roomNumbers, checkInDate, checkOutDate);
+            }
+
+            final List<IRoom> rooms = new ArrayList<>(roomNumbers.size());
+            for (String roomNumber : roomNumbers) {
+                final IRoom room = reservationService.getARoom(roomNumber);
+                if (room == null) {
+                    throw new IllegalArgumentException("Room not found: " + roomNumber);
+                }
+                rooms.add(room);
+            }
+
+            return reservationService.reserveRooms(customer, rooms, checkInDate, checkOutDate);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.BOOK_ROOMS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.BOOK_ROOMS, start);
+        }
+    }
+
+    /**
+     * Cancels a reservation of a customer.
+     *
+     * @param customerEmail the email of the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the check-in date of the reservation
+     * @return the cancelled reservation, or null if the customer has no reservation of the room starting that day
+     * @throws IllegalArgumentException if the customer or the room does not exist
+     */
+    public Reservation cancelReservation(String customerEmail, String roomNumber, Date checkInDate) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            if (node != null) {
+                return node.cancelReservation(requireCustomer(customerEmail), roomNumber, checkInDate);
+            }
+            return reservationService.cancelReservation(requireCustomer(customerEmail), requireRoom(roomNumber),
+                    checkInDate);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.CANCEL_RESERVATION);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.CANCEL_RESERVATION, start);
+        }
+    }
+
+    /**
+     * Moves a reservation of a customer to new dates in the same room.
+     * The customer either keeps the old dates or gets the new ones; the room is never released in between.
+     *
+     * @param customerEmail the email of the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the current check-in date of the reservation
+     * @param newCheckInDate the new check-in date
+     * @param newCheckOutDate the new check-out date
+     * @return the reservation for the new dates
+     * @throws IllegalArgumentException if the customer, the room or the reservation does not exist,
+     * or the new check-out date is not after the new check-in date
+     * @throws service.reservation.RoomNotAvailableException if the room is already booked during the new dates
+     */
+    public Reservation modifyReservation(String customerEmail, String roomNumber, Date checkInDate,
+                                         Date newCheckInDate, Date newCheckOutDate) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            if (node != null) {
+                return node.modifyReservation(requireCustomer(customerEmail), roomNumber, checkInDate,
+                        newCheckInDate, newCheckOutDate);
+            }
+            return reservationService.modifyReservation(requireCustomer(customerEmail), requireRoom(roomNumber),
+                    checkInDate, newCheckInDate, newCheckOutDate);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.MODIFY_RESERVATION);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.MODIFY_RESERVATION, start);
+        }
     }
 
     /**
@@ -90,13 +284,23 @@ public class HotelResource {
      * @return a collection of reservations made by the customer
      */
     public Collection<Reservation> getCustomersReservations(String customerEmail) {
-        final Customer customer = getCustomer(customerEmail);
+        final long start = metrics.start();
+        try {
+            final Customer customer = customerService.getCustomer(customerEmail);
 
-        if (customer == null) {
-            return Collections.emptyList();
-        }
+            if (customer == null) {
+                return Collections.emptyList();
+            }
 
-        return reservationService.getCustomersReservation(getCustomer(customerEmail));
+            final ClusterNode node = cluster;
+            return node != null ? node.getCustomersReservations(customer)
+                    : reservationService.getCustomersReservation(customer);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.GET_CUSTOMERS_RESERVATIONS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.GET_CUSTOMERS_RESERVATIONS, start);
+        }
     }
 
     /**
@@ -107,7 +311,156 @@ public class HotelResource {
      * @return a collection of available rooms
      */
     public Collection<IRoom> findARoom(final Date checkIn, final Date checkOut) {
-        return reservationService.findRooms(checkIn, checkOut);
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.findRooms(checkIn, checkOut, RoomFilter.ANY)
+                    : reservationService.findRooms(checkIn, checkOut);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.FIND_A_ROOM);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.FIND_A_ROOM, start);
+        }
+    }
+
+    /**
+     * Finds available rooms of the requested types and price range for a given date range.
+     *
+     * @param checkIn the check-in date
+     * @param checkOut the check-out date
+     * @param filter the room types and price range to accept
+     * @return a collection of available rooms matching the filter
+     */
+    public Collection<IRoom> findARoom(final Date checkIn, final Date checkOut, final RoomFilter filter) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.findRooms(checkIn, checkOut, filter)
+                    : reservationService.findRooms(checkIn, checkOut, filter);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.FIND_A_ROOM);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.FIND_A_ROOM, start);
+        }
+    }
+
+    /**
+     * Finds the best available rooms of the requested types and price range for a given date range,
+     * such as the ten cheapest rooms with {@link RoomOrder#PRICE_ASCENDING}.
+     *
+     * @param checkIn the check-in date
+     * @param checkOut the check-out date
+     * @param limit the largest number of rooms to return
+     * @param order the order deciding which rooms are best, a {@link RoomOrder} or any other comparator
+     * @param filter the room types and price range to accept
+     * @return the best available rooms, best first
+     */
+    public List<IRoom> findBestRooms(final Date checkIn, final Date checkOut, final int limit,
+                                     final Comparator<? super IRoom> order, final RoomFilter filter) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.findBestRooms(checkIn, checkOut, limit, order, filter)
+                    : reservationService.findBestRooms(checkIn, checkOut, limit, order, filter);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.FIND_BEST_ROOMS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.FIND_BEST_ROOMS, start);
+        }
     }
 
+    /**
+     * Streams available rooms for a given date range, checking each room only when the stream reaches it.
+     * In a cluster the rooms of every node are collected first.
+     *
+     * @param checkIn the check-in date
+     * @param checkOut the check-out date
+     * @return a lazy stream of available rooms, in room number order
+     */
+    public Stream<IRoom> streamAvailableRooms(final Date checkIn, final Date checkOut) {
+        final ClusterNode node = cluster;
+        return node != null ? node.findRooms(checkIn, checkOut, RoomFilter.ANY).stream()
+                : reservationService.streamRooms(checkIn, checkOut);
+    }
+
+    /**
+     * Finds one page of available rooms for a given date range.
+     *
+     * @param checkIn the check-in date
+     * @param checkOut the check-out date
+     * @param limit the largest number of rooms on the page
+     * @param pageToken the continuation token of the previous page, or null for the first page
+     * @return the page of available rooms, in room number order
+     */
+    public AvailabilityPage findARoomPage(final Date checkIn, final Date checkOut, final int limit, final String pageToken) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.findRoomsPage(checkIn, checkOut, limit, pageToken)
+                    : reservationService.findRoomsPage(checkIn, checkOut, limit, pageToken);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.FIND_A_ROOM_PAGE);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.FIND_A_ROOM_PAGE, start);
+        }
+    }
+
+    /**
+     * Recommends stays of the same length as the requested one on the nearest other dates.
+     *
+     * @param checkIn the requested check-in date
+     * @param checkOut the requested check-out date
+     * @param horizonDays the largest number of days a stay may be moved by
+     * @param limit the largest number of recommendations to return
+     * @return the recommended stays, closest to the requested dates first
+     */
+    public List<AlternativeStay> findAlternativeStays(final Date checkIn, final Date checkOut,
+                                                      final int horizonDays, final int limit) {
+        final long start = metrics.start();
+        try {
+            final ClusterNode node = cluster;
+            return node != null ? node.findAlternativeStays(checkIn, checkOut, horizonDays, limit)
+                    : reservationService.findAlternativeStays(checkIn, checkOut, horizonDays, limit);
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(HotelOperation.FIND_ALTERNATIVE_STAYS);
+            throw ex;
+        } finally {
+            metrics.record(HotelOperation.FIND_ALTERNATIVE_STAYS, start);
+        }
+    }
+
+
+    /**
+     * Retrieves a customer, failing if there is none with the given email.
+     *
+     * @param customerEmail the email of the customer
+     * @return the customer
+     * @throws IllegalArgumentException if the customer does not exist
+     */
+    private Customer requireCustomer(String customerEmail) {
+        final Customer customer = customerService.getCustomer(customerEmail);
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer not found: " + customerEmail);
+        }
+        return customer;
+    }
+
+    /**
+     * Retrieves a room, failing if there is none with the given number.
+     *
+     * @param roomNumber the room number
+     * @return the room
+     * @throws IllegalArgumentException if the room does not exist
+     */
+    private IRoom requireRoom(String roomNumber) {
+        final IRoom room = reservationService.getARoom(roomNumber);
+        if (room == null) {
+            throw new IllegalArgumentException("Room not found: " + roomNumber);
+        }
+        return room;
+    }
 }
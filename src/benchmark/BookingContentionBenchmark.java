@@ -0,0 +1,154 @@
+package benchmark;
+
+import api.AdminResource;
+import api.HotelResource;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.reservation.AvailabilityBackend;
+import service.reservation.ReservationService;
+import service.reservation.RoomPartitioning;
+import service.reservation.RoomNotAvailableException;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BookingContentionBenchmark
+ * <p>
+ * Measures search and booking throughput of one availability backend, optionally split into shards,
+ * under a mixed, read-heavy load.
+ * Every worker thread repeatedly either searches for free rooms or books a random room for a random stay,
+ * and the benchmark reports operations per second for both kinds of operation.
+ * <p>
+ * The services are singletons, so each backend is measured in its own JVM run:
+ * <pre>
+ * java benchmark.BookingContentionBenchmark [backend] [threads] [rooms] [seconds] [searchPercent] [shards] [partitioning]
+ * java benchmark.BookingContentionBenchmark OPTIMISTIC_SNAPSHOT 16 2000 10 90
+ * java benchmark.BookingContentionBenchmark INTERVAL_INDEX 16 2000 10 90
+ * java benchmark.BookingContentionBenchmark BITMAP_CALENDAR 16 2000 10 90 8 HASH
+ * </pre>
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class BookingContentionBenchmark {
+
+    private static final String CUSTOMER_EMAIL = "benchmark@hotel.com";
+    private static final int BOOKING_WINDOW_DAYS = 365;
+    private static final int MAX_STAY_NIGHTS = 7;
+    private static final int WARMUP_SECONDS = 3;
+
+    private static final HotelResource hotelResource = HotelResource.getSingleton();
+    private static final AdminResource adminResource = AdminResource.getSingleton();
+
+    public static void main(String[] args) throws InterruptedException {
+        final AvailabilityBackend backend = args.length > 0
+                ? AvailabilityBackend.valueOf(args[0]) : AvailabilityBackend.OPTIMISTIC_SNAPSHOT;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final int roomCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        final int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        final int searchPercent = args.length > 4 ? Integer.parseInt(args[4]) : 90;
+        final int shards = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        final RoomPartitioning partitioning = args.length > 6
+                ? RoomPartitioning.valueOf(args[6]) : RoomPartitioning.HASH;
+
+        ReservationService.getSingleton().useAvailabilityBackend(backend, shards, partitioning);
+        hotelResource.createACustomer(CUSTOMER_EMAIL, "Bench", "Mark");
+
+        final List<IRoom> rooms = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            rooms.add(new Room(String.valueOf(i + 1), 100.0, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE));
+        }
+        adminResource.addRoom(rooms);
+
+        final LocalDate firstDay = LocalDate.now().plusDays(1);
+        System.out.println("Warming up " + backend + " for " + WARMUP_SECONDS + "s...");
+        run(rooms, firstDay, threads, WARMUP_SECONDS, searchPercent);
+
+        System.out.println("Measuring " + backend + ": " + shards + " shard(s) by " + partitioning + ", "
+                + threads + " threads, " + roomCount + " rooms, "
+                + searchPercent + "% searches, " + seconds + "s");
+        final Result result = run(rooms, firstDay, threads, seconds, searchPercent);
+
+        System.out.printf("searches:  %,12.0f ops/s%n", result.searches / (double) seconds);
+        System.out.printf("bookings:  %,12.0f ops/s%n", result.bookings / (double) seconds);
+        System.out.printf("conflicts: %,12.0f ops/s%n", result.conflicts / (double) seconds);
+    }
+
+    /**
+     * Runs the mixed workload on the given number of threads for the given duration.
+     *
+     * @param rooms the rooms to book
+     * @param firstDay the first day a stay may start on
+     * @param threads the number of worker threads
+     * @param seconds the duration of the run in seconds
+     * @param searchPercent the percentage of operations that are searches
+     * @return the operation counts of the run
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static Result run(final List<IRoom> rooms, final LocalDate firstDay, final int threads,
+                              final int seconds, final int searchPercent) throws InterruptedException {
+        final LongAdder searches = new LongAdder();
+        final LongAdder bookings = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            final Thread worker = new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        final LocalDate checkIn = firstDay.plusDays(random.nextInt(BOOKING_WINDOW_DAYS));
+                        final LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(MAX_STAY_NIGHTS));
+
+                        if (random.nextInt(100) < searchPercent) {
+                            hotelResource.findARoom(toDate(checkIn), toDate(checkOut));
+                            searches.increment();
+                        } else {
+                            final IRoom room = rooms.get(random.nextInt(rooms.size()));
+                            try {
+                                hotelResource.bookARoom(CUSTOMER_EMAIL, room, toDate(checkIn), toDate(checkOut));
+                                bookings.increment();
+                            } catch (RoomNotAvailableException ex) {
+                                conflicts.increment();
+                            }
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        start.countDown();
+        done.await();
+        return new Result(searches.sum(), bookings.sum(), conflicts.sum());
+    }
+
+    /**
+     * Converts a local date to a date at midnight in the system time zone.
+     *
+     * @param date the local date
+     * @return the date at the start of that day
+     */
+    private static Date toDate(final LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Operation counts of a benchmark run.
+     */
+    private record Result(long searches, long bookings, long conflicts) {}
+}
@@ -0,0 +1,351 @@
+package benchmark;
+
+import api.AdminResource;
+import model.customer.Customer;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.customer.CustomerService;
+import service.reservation.BookingSequencer;
+import service.reservation.ReservationService;
+import service.reservation.RoomNotAvailableException;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ServiceBenchmarkSuite
+ * <p>
+ * Measures latency and allocation of the hot paths of the reservation and customer services
+ * on a synthetic hotel: {@code findRooms}, {@code reserveARoom}, {@code getCustomersReservation},
+ * {@code addCustomer}, {@code getCustomer} and {@code addRoom}, and on request {@code sequencedReserveARoom},
+ * which books through a {@link BookingSequencer} instead of the service's room locks.
+ * <p>
+ * The hotel is generated once per run from the given room count, reservation count and stay length.
+ * Each benchmark then runs a number of warmup and measured iterations of fixed duration on the given number
+ * of threads, and reports the average time per operation and the bytes allocated per operation,
+ * with the spread across measured iterations. Allocation is read from each worker thread's allocation counter,
+ * so it covers exactly the benchmarked calls and the workload's own date arithmetic.
+ * <p>
+ * The services are singletons, so each parameter combination is measured in its own JVM run.
+ * Parameters are given as {@code name=value} pairs, all optional:
+ * <pre>
+ * java benchmark.ServiceBenchmarkSuite rooms=2000 reservations=20000 nights=3 threads=4
+ * java benchmark.ServiceBenchmarkSuite benchmarks=findRooms,reserveARoom cacheEntries=0 iterations=10
+ * </pre>
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class ServiceBenchmarkSuite {
+
+    private static final int BOOKING_WINDOW_DAYS = 365;
+    private static final int RESERVATIONS_PER_CUSTOMER = 10;
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rooms", "2000");
+        DEFAULTS.put("reservations", "20000");
+        DEFAULTS.put("nights", "3");
+        DEFAULTS.put("threads", "1");
+        DEFAULTS.put("benchmarks", "findRooms,reserveARoom,getCustomersReservation,addCustomer,getCustomer,addRoom");
+        DEFAULTS.put("warmups", "3");
+        DEFAULTS.put("iterations", "5");
+        DEFAULTS.put("iterationSeconds", "2");
+        DEFAULTS.put("cacheEntries", "1024");
+        DEFAULTS.put("seed", "42");
+    }
+
+    private static final ReservationService reservationService = ReservationService.getSingleton();
+    private static final CustomerService customerService = CustomerService.getSingleton();
+    private static final AdminResource adminResource = AdminResource.getSingleton();
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Keeps benchmark results reachable so the JIT cannot remove the benchmarked calls.
+     */
+    private static volatile int sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> parameters = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown parameter: " + arg + ", expected one of " + DEFAULTS.keySet());
+            }
+            parameters.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        final int roomCount = Integer.parseInt(parameters.get("rooms"));
+        final int reservationCount = Integer.parseInt(parameters.get("reservations"));
+        final int nights = Integer.parseInt(parameters.get("nights"));
+        final int threads = Integer.parseInt(parameters.get("threads"));
+        final int warmups = Integer.parseInt(parameters.get("warmups"));
+        final int iterations = Integer.parseInt(parameters.get("iterations"));
+        final int iterationSeconds = Integer.parseInt(parameters.get("iterationSeconds"));
+
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation counters are not supported by this JVM; B/op will read 0.");
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        reservationService.configureAvailabilityCache(Integer.parseInt(parameters.get("cacheEntries")));
+
+        final Hotel hotel = Hotel.generate(roomCount, reservationCount, nights, Long.parseLong(parameters.get("seed")));
+        System.out.printf("Hotel: %d rooms, %d customers, %d reservations (%d requested), %d-night stays%n",
+                hotel.rooms.size(), hotel.customers.size(), hotel.reservations, reservationCount, nights);
+        System.out.printf("Run: %d threads, %d warmup and %d measured iterations of %ds%n",
+                threads, warmups, iterations, iterationSeconds);
+        System.out.printf("%n%-24s %14s %12s %14s %12s%n", "Benchmark", "ns/op", "+/- ns/op", "B/op", "ops/s");
+
+        final Map<String, Operation> operations = operations(hotel, nights);
+        for (String name : parameters.get("benchmarks").split(",")) {
+            final Operation operation = operations.get(name.trim());
+            if (operation == null) {
+                throw new IllegalArgumentException("Unknown benchmark: " + name + ", expected one of " + operations.keySet());
+            }
+
+            for (int i = 0; i < warmups; i++) {
+                measure(operation, threads, iterationSeconds);
+            }
+
+            final Measurement[] measurements = new Measurement[iterations];
+            for (int i = 0; i < iterations; i++) {
+                measurements[i] = measure(operation, threads, iterationSeconds);
+            }
+            report(name.trim(), measurements);
+        }
+    }
+
+    /**
+     * Creates the benchmarked operations against the generated hotel.
+     *
+     * @param hotel the generated hotel
+     * @param nights the length of the stays searched for and booked
+     * @return the operations by benchmark name, in reporting order
+     */
+    private static Map<String, Operation> operations(final Hotel hotel, final int nights) {
+        final AtomicLong newCustomers = new AtomicLong();
+        final AtomicLong newRooms = new AtomicLong(hotel.rooms.size());
+        final BookingSequencer sequencer = new BookingSequencer(reservationService, customerService,
+                BookingSequencer.DEFAULT_CAPACITY, BookingSequencer.DEFAULT_MAX_BATCH);
+        final Map<String, Operation> operations = new LinkedHashMap<>();
+
+        operations.put("findRooms", random -> {
+            final int checkIn = random.nextInt(BOOKING_WINDOW_DAYS);
+            return reservationService.findRooms(hotel.dates[checkIn], hotel.dates[checkIn + nights]).size();
+        });
+        operations.put("reserveARoom", random -> {
+            final int checkIn = random.nextInt(BOOKING_WINDOW_DAYS);
+            final Customer customer = hotel.customers.get(random.nextInt(hotel.customers.size()));
+            final IRoom room = hotel.rooms.get(random.nextInt(hotel.rooms.size()));
+            try {
+                return reservationService.reserveARoom(customer, room, hotel.dates[checkIn],
+                        hotel.dates[checkIn + nights]).hashCode();
+            } catch (RoomNotAvailableException ex) {
+                return 0;
+            }
+        });
+        operations.put("sequencedReserveARoom", random -> {
+            final int checkIn = random.nextInt(BOOKING_WINDOW_DAYS);
+            final Customer customer = hotel.customers.get(random.nextInt(hotel.customers.size()));
+            final IRoom room = hotel.rooms.get(random.nextInt(hotel.rooms.size()));
+            try {
+                return sequencer.reserveARoom(customer, room, hotel.dates[checkIn],
+                        hotel.dates[checkIn + nights]).join().hashCode();
+            } catch (CompletionException ex) {
+                return 0;
+            }
+        });
+        operations.put("getCustomersReservation", random -> {
+            final Customer customer = hotel.customers.get(random.nextInt(hotel.customers.size()));
+            return reservationService.getCustomersReservation(customer).size();
+        });
+        operations.put("addCustomer", random -> {
+            customerService.addCustomer("new" + newCustomers.incrementAndGet() + "@bench.com", "New", "Customer");
+            return 1;
+        });
+        operations.put("getCustomer", random -> {
+            final Customer customer = hotel.customers.get(random.nextInt(hotel.customers.size()));
+            return customerService.getCustomer(customer.getEmail()).hashCode();
+        });
+        operations.put("addRoom", random -> {
+            adminResource.addRoom(List.of(new Room(String.valueOf(newRooms.incrementAndGet()), 100.0, RoomType.SINGLE)));
+            return 1;
+        });
+
+        return operations;
+    }
+
+    /**
+     * Runs one iteration of an operation on the given number of threads.
+     *
+     * @param operation the operation to run
+     * @param threads the number of worker threads
+     * @param seconds the duration of the iteration in seconds
+     * @return the measurement of the iteration
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static Measurement measure(final Operation operation, final int threads, final int seconds)
+            throws InterruptedException {
+        final long[] operationCounts = new long[threads];
+        final long[] allocatedBytes = new long[threads];
+        final long[] elapsedNanos = new long[threads];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                int result = 0;
+                long count = 0;
+                try {
+                    start.await();
+                    final long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+                    final long startNanos = System.nanoTime();
+                    final long deadline = startNanos + seconds * 1_000_000_000L;
+                    long now;
+                    do {
+                        result += operation.run(random);
+                        count++;
+                        now = System.nanoTime();
+                    } while (now < deadline);
+
+                    elapsedNanos[worker] = now - startNanos;
+                    allocatedBytes[worker] = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+                    operationCounts[worker] = count;
+                    sink += result;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        final long operationsRun = Arrays.stream(operationCounts).sum();
+        final long totalNanos = Arrays.stream(elapsedNanos).sum();
+        final long wallNanos = Arrays.stream(elapsedNanos).max().orElse(1);
+        return new Measurement(
+                totalNanos / (double) operationsRun,
+                Arrays.stream(allocatedBytes).sum() / (double) operationsRun,
+                operationsRun * 1e9 / wallNanos);
+    }
+
+    /**
+     * Prints the mean of the measured iterations, with the standard deviation of the time per operation.
+     *
+     * @param name the benchmark name
+     * @param measurements the measured iterations
+     */
+    private static void report(final String name, final Measurement[] measurements) {
+        final double nanosPerOperation = Arrays.stream(measurements).mapToDouble(Measurement::nanosPerOperation).average().orElse(0);
+        final double variance = Arrays.stream(measurements)
+                .mapToDouble(measurement -> Math.pow(measurement.nanosPerOperation() - nanosPerOperation, 2))
+                .sum() / Math.max(1, measurements.length - 1);
+        final double bytesPerOperation = Arrays.stream(measurements).mapToDouble(Measurement::bytesPerOperation).average().orElse(0);
+        final double operationsPerSecond = Arrays.stream(measurements).mapToDouble(Measurement::operationsPerSecond).average().orElse(0);
+
+        System.out.printf("%-24s %,14.1f %,12.1f %,14.1f %,12.0f%n",
+                name, nanosPerOperation, Math.sqrt(variance), bytesPerOperation, operationsPerSecond);
+    }
+
+    /**
+     * A benchmarked call, returning a value derived from its result so the call cannot be optimized away.
+     */
+    @FunctionalInterface
+    private interface Operation {
+        int run(ThreadLocalRandom random);
+    }
+
+    /**
+     * Result of one measured iteration.
+     */
+    private record Measurement(double nanosPerOperation, double bytesPerOperation, double operationsPerSecond) {}
+
+    /**
+     * Synthetic hotel loaded into the services before the benchmarks run.
+     */
+    private static final class Hotel {
+
+        private final List<IRoom> rooms;
+        private final List<Customer> customers;
+        private final Date[] dates;
+        private final int reservations;
+
+        private Hotel(final List<IRoom> rooms, final List<Customer> customers, final Date[] dates, final int reservations) {
+            this.rooms = rooms;
+            this.customers = customers;
+            this.dates = dates;
+            this.reservations = reservations;
+        }
+
+        /**
+         * Generates a hotel with a mix of room types and prices, and books random stays within the booking window
+         * until the requested number of reservations is reached or the hotel is too full to place more.
+         *
+         * @param roomCount the number of rooms
+         * @param reservationCount the number of reservations to place
+         * @param nights the length of every stay
+         * @param seed the seed of the generator, so the same parameters give the same hotel
+         * @return the generated hotel
+         */
+        static Hotel generate(final int roomCount, final int reservationCount, final int nights, final long seed) {
+            final Random random = new Random(seed);
+
+            final LocalDate firstDay = LocalDate.now().plusDays(1);
+            final Date[] dates = new Date[BOOKING_WINDOW_DAYS + nights + 1];
+            for (int i = 0; i < dates.length; i++) {
+                dates[i] = Date.from(firstDay.plusDays(i).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            }
+
+            final List<IRoom> rooms = new ArrayList<>(roomCount);
+            for (int i = 0; i < roomCount; i++) {
+                final RoomType roomType = random.nextBoolean() ? RoomType.SINGLE : RoomType.DOUBLE;
+                final double price = random.nextInt(10) == 0 ? 0.0 : 50.0 + random.nextInt(250);
+                rooms.add(new Room(String.valueOf(i + 1), price, roomType));
+            }
+            adminResource.addRoom(rooms);
+
+            final int customerCount = Math.max(1, reservationCount / RESERVATIONS_PER_CUSTOMER);
+            final List<Customer> customers = new ArrayList<>(customerCount);
+            for (int i = 0; i < customerCount; i++) {
+                final String email = "customer" + i + "@bench.com";
+                customerService.addCustomer(email, "Customer", String.valueOf(i));
+                customers.add(customerService.getCustomer(email));
+            }
+
+            int placed = 0;
+            for (long attempts = 0; placed < reservationCount && attempts < 4L * reservationCount; attempts++) {
+                final int checkIn = random.nextInt(BOOKING_WINDOW_DAYS);
+                try {
+                    reservationService.reserveARoom(customers.get(random.nextInt(customerCount)),
+                            rooms.get(random.nextInt(roomCount)), dates[checkIn], dates[checkIn + nights]);
+                    placed++;
+                } catch (RoomNotAvailableException ex) {
+                    // Try another room and date
+                }
+            }
+
+            return new Hotel(rooms, customers, dates, placed);
+        }
+    }
+}
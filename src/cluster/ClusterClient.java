@@ -0,0 +1,215 @@
+package cluster;
+
+import service.reservation.RoomNotAvailableException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ClusterClient
+ * <p>
+ * Sends {@link ClusterProtocol} requests to other nodes and reads their responses.
+ * Connections are pooled per node: a call borrows an idle connection, or opens a new one, and returns it
+ * once the response has been read, so concurrent calls to the same node use separate connections.
+ * A connection that fails is closed instead of being returned.
+ * Errors reported by the remote node are rethrown as the exception the node threw:
+ * {@link RoomNotAvailableException}, {@link IllegalArgumentException}, or {@link IllegalStateException}
+ * for anything else. Network failures are thrown as {@link UncheckedIOException}.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class ClusterClient implements AutoCloseable {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Map<ClusterMember, Queue<Connection>> idleConnections = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Sends a request to a node and reads its response.
+     *
+     * @param member the node to call
+     * @param operation the operation, one of the request types of {@link ClusterProtocol}
+     * @param hops the number of times the request has already been forwarded
+     * @param request writes the fields of the request
+     * @param response reads the result from a successful response
+     * @param <T> the type of the result
+     * @return the result
+     * @throws RoomNotAvailableException if the node could not book a room
+     * @throws IllegalArgumentException if the node rejected the request
+     * @throws IllegalStateException if the node failed to handle the request
+     * @throws UncheckedIOException if the node cannot be reached
+     */
+    <T> T call(final ClusterMember member, final byte operation, final int hops,
+               final FieldWriter request, final FieldReader<T> response) {
+        final Connection connection = borrow(member);
+        final T result;
+        final RuntimeException error;
+        try {
+            connection.out.writeByte(operation);
+            connection.out.writeByte(hops);
+            request.write(connection.out);
+            connection.out.flush();
+
+            final byte status = connection.in.readByte();
+            result = status == ClusterProtocol.OK ? response.read(connection.in) : null;
+            error = switch (status) {
+                case ClusterProtocol.OK -> null;
+                case ClusterProtocol.ROOM_NOT_AVAILABLE -> new RoomNotAvailableException(connection.in.readUTF(),
+                        ClusterProtocol.readDate(connection.in), ClusterProtocol.readDate(connection.in));
+                case ClusterProtocol.INVALID_REQUEST -> new IllegalArgumentException(connection.in.readUTF());
+                case ClusterProtocol.FAILED -> new IllegalStateException(
+                        "Cluster node " + member + " failed: " + connection.in.readUTF());
+                default -> throw new IOException("Unknown response status from " + member + ": " + status);
+            };
+        } catch (IOException ex) {
+            connection.close();
+            throw new UncheckedIOException("Cluster node " + member + " cannot be reached", ex);
+        } catch (RuntimeException ex) {
+            // The request or response was only partly transferred
+            connection.close();
+            throw ex;
+        }
+
+        release(member, connection);
+        if (error != null) {
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * Borrows an idle connection to a node, or opens a new one.
+     *
+     * @param member the node to connect to
+     * @return the connection
+     * @throws UncheckedIOException if the node cannot be reached
+     */
+    private Connection borrow(final ClusterMember member) {
+        final Queue<Connection> idle = idleConnections.get(member);
+        final Connection pooled = idle == null ? null : idle.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        final Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.connect(new InetSocketAddress(member.getHost(), member.getPort()), CONNECT_TIMEOUT_MILLIS);
+            return new Connection(socket);
+        } catch (IOException ex) {
+            try {
+                socket.close();
+            } catch (IOException closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+            throw new UncheckedIOException("Cluster node " + member + " cannot be reached", ex);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool of its node, or closes it if the client is closed.
+     *
+     * @param member the node the connection is open to
+     * @param connection the connection
+     */
+    private void release(final ClusterMember member, final Connection connection) {
+        if (closed) {
+            connection.close();
+            return;
+        }
+        idleConnections.computeIfAbsent(member, key -> new ConcurrentLinkedQueue<>()).offer(connection);
+    }
+
+    /**
+     * Closes every idle connection. Connections in use are closed when their call completes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Queue<Connection> idle : idleConnections.values()) {
+            for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the fields of a request, or the result of a response.
+     */
+    @FunctionalInterface
+    interface FieldWriter {
+
+        /**
+         * Writes the fields after the operation and hop count of a request, or after the status of a response.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the stream cannot be written
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the result of a successful response.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    interface FieldReader<T> {
+
+        /**
+         * Reads the result after the status of the response.
+         *
+         * @param in the stream to read from
+         * @return the result
+         * @throws IOException if the stream cannot be read
+         */
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Open connection to a node with its buffered streams.
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        /**
+         * Wraps a connected socket.
+         *
+         * @param socket the socket
+         * @throws IOException if the streams of the socket cannot be opened
+         */
+        Connection(final Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+        }
+
+        /**
+         * Closes the connection, ignoring errors.
+         */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Already broken
+            }
+        }
+    }
+}
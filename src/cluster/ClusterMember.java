@@ -0,0 +1,97 @@
+package cluster;
+
+import java.util.Objects;
+
+/**
+ * ClusterMember
+ * <p>
+ * Address of a node of the hotel cluster, the host and port its cluster protocol listens on.
+ * The address also identifies the node on the consistent-hash ring, so every node computes the same owners.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class ClusterMember {
+
+    private final String host;
+    private final int port;
+
+    /**
+     * Constructs the address of a node.
+     *
+     * @param host the host name or IP address of the node
+     * @param port the port of the node's cluster protocol
+     * @throws IllegalArgumentException if the port is out of range
+     */
+    public ClusterMember(final String host, final int port) {
+        if (port <= 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid cluster port: " + port);
+        }
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Parses an address written as {@code host:port}.
+     *
+     * @param address the address to parse
+     * @return the member at that address
+     * @throws IllegalArgumentException if the address is not of the form {@code host:port}
+     */
+    public static ClusterMember parse(final String address) {
+        final int separator = address.lastIndexOf(':');
+        if (separator <= 0 || separator == address.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port but found " + address);
+        }
+        try {
+            return new ClusterMember(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cluster port in " + address);
+        }
+    }
+
+    /**
+     * Gets the host of the node.
+     *
+     * @return the host name or IP address
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the port of the node's cluster protocol.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof ClusterMember member)) {
+            return false;
+        }
+
+        return port == member.port && host.equals(member.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port);
+    }
+
+    /**
+     * Returns the address of the node.
+     *
+     * @return the address, as {@code host:port}
+     */
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
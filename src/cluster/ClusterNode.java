@@ -0,0 +1,1223 @@
+package cluster;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.customer.CustomerService;
+import service.reservation.AlternativeStay;
+import service.reservation.AvailabilityPage;
+import service.reservation.ReservationService;
+import service.reservation.RoomFilter;
+import service.reservation.RoomNotAvailableException;
+import service.reservation.RoomOrder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ClusterNode
+ * <p>
+ * One node of a hotel cluster made of several JVMs. Every room belongs to one node, chosen by a
+ * {@link ConsistentHashRing} over the room number, and only that node holds the room and its reservations;
+ * customers are copied to every node. Nodes talk {@link ClusterProtocol} to each other over TCP.
+ * <p>
+ * Any node accepts every call: a call about one room is forwarded to the room's owner, and a search or listing
+ * is fanned out to every node in parallel and the results merged, so callers see one hotel.
+ * A forwarded booking carries its customer, so the owner can take it even before the customer has been copied to it.
+ * Booking rooms of several owners at once books the rooms of each owner in turn, cancelling the ones already
+ * booked if a later owner refuses; other customers may briefly see part of such a batch.
+ * <p>
+ * A node joins the cluster by contacting any member, which adds it to the ring, announces the new ring to every
+ * other member and copies the customers to it. Each node then hands the rooms it no longer owns, with their
+ * reservations, to their new owners in the background. Rooms stay bookable throughout: the old owner holds back
+ * bookings of the rooms it hands off only while they are copied, without holding any lock across the call, and
+ * a node that owns a room which has not arrived yet forwards calls for it to the previous owner. Handing off
+ * relies on the room locks, so cluster nodes should run a lock-based availability backend. Nodes do not leave the cluster; a node that stops is expected
+ * to come back at the same address, with its storage.
+ * <p>
+ * Started from system properties, for example three nodes on one host:
+ * <pre>
+ * java -Dhotel.cluster.port=7001 -Dhotel.http.port=8001 HotelApplication
+ * java -Dhotel.cluster.port=7002 -Dhotel.cluster.seed=127.0.0.1:7001 -Dhotel.http.port=8002 HotelApplication
+ * java -Dhotel.cluster.port=7003 -Dhotel.cluster.seed=127.0.0.1:7001 -Dhotel.http.port=8003 HotelApplication
+ * </pre>
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class ClusterNode implements AutoCloseable {
+
+    private static final int CUSTOMERS_PER_MESSAGE = 1024;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final ClusterClient.FieldWriter NO_RESULT = out -> {};
+    private static final Comparator<Reservation> RESERVATION_ORDER =
+            Comparator.comparingInt(Reservation::getCheckInDay)
+                    .thenComparing(Reservation::getRoom, RoomOrder.ROOM_NUMBER)
+                    .thenComparingInt(Reservation::getCheckOutDay);
+
+    private final ClusterMember self;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService rebalancer =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("hotel-cluster-rebalancer").daemon().factory());
+    private final ClusterClient client = new ClusterClient();
+    private final ReservationService reservationService = ReservationService.getSingleton();
+    private final CustomerService customerService = CustomerService.getSingleton();
+    // Guards switching rings; never held across a call to another node
+    private final ReentrantLock membershipLock = new ReentrantLock();
+    private volatile ConsistentHashRing ring;
+    private volatile ConsistentHashRing previousRing;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a node forming a cluster of its own, listening on its address.
+     * Call {@link #start()} to accept connections, then {@link #join(ClusterMember)} to join another cluster.
+     *
+     * @param self the address of this node
+     * @throws IOException if the address cannot be bound
+     */
+    public ClusterNode(final ClusterMember self) throws IOException {
+        this.self = self;
+        this.ring = new ConsistentHashRing(List.of(self));
+        this.serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(self.getHost(), self.getPort()));
+        } catch (IOException ex) {
+            serverSocket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Starts a node from the system properties, if {@code hotel.cluster.port} is set.
+     * The node listens on {@code hotel.cluster.host} (127.0.0.1 unless set) and, if {@code hotel.cluster.seed}
+     * is set to the {@code host:port} of a member, joins that member's cluster.
+     *
+     * @return the started node, or null if {@code hotel.cluster.port} is not set
+     * @throws IOException if the address cannot be bound
+     */
+    public static ClusterNode startFromSystemProperties() throws IOException {
+        final Integer port = Integer.getInteger("hotel.cluster.port");
+        if (port == null) {
+            return null;
+        }
+
+        final ClusterNode node = new ClusterNode(
+                new ClusterMember(System.getProperty("hotel.cluster.host", "127.0.0.1"), port));
+        node.start();
+        final String seed = System.getProperty("hotel.cluster.seed");
+        if (seed != null) {
+            try {
+                node.join(ClusterMember.parse(seed));
+            } catch (RuntimeException ex) {
+                node.close();
+                throw ex;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Starts accepting connections from other nodes.
+     */
+    public void start() {
+        executor.execute(this::acceptConnections);
+    }
+
+    /**
+     * Joins the cluster of a member. Rooms of this node that now belong to other nodes are handed to them
+     * in the background.
+     *
+     * @param seed any member of the cluster to join
+     * @throws java.io.UncheckedIOException if the member cannot be reached
+     */
+    public void join(final ClusterMember seed) {
+        if (seed.equals(self)) {
+            return;
+        }
+        adoptMembers(client.call(seed, ClusterProtocol.JOIN, 0,
+                out -> ClusterProtocol.writeMember(out, self), ClusterProtocol::readMembers));
+    }
+
+    /**
+     * Gets the address of this node.
+     *
+     * @return the address
+     */
+    public ClusterMember getSelf() {
+        return self;
+    }
+
+    /**
+     * Gets the ring this node currently routes by.
+     *
+     * @return the ring
+     */
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Creates a customer on this node and copies it to every other node.
+     *
+     * @param email the email of the new customer
+     * @param firstName the first name of the new customer
+     * @param lastName the last name of the new customer
+     * @throws IllegalArgumentException if the email is invalid
+     */
+    public void addCustomer(final String email, final String firstName, final String lastName) {
+        customerService.addCustomer(email, firstName, lastName);
+        copyCustomer(customerService.getCustomer(email));
+    }
+
+    /**
+     * Creates a customer on this node unless the email is taken there, and copies a created customer to every
+     * other node. The email is only checked on this node, so calls with the same email should go to the same node.
+     *
+     * @param email the email of the new customer
+     * @param firstName the first name of the new customer
+     * @param lastName the last name of the new customer
+     * @return true if the customer was created, false if the email was already taken
+     * @throws IllegalArgumentException if the email is invalid
+     */
+    public boolean addCustomerIfAbsent(final String email, final String firstName, final String lastName) {
+        if (!customerService.addCustomerIfAbsent(email, firstName, lastName)) {
+            return false;
+        }
+        copyCustomer(customerService.getCustomer(email));
+        return true;
+    }
+
+    /**
+     * Adds rooms to their owners, one bulk insert per owner.
+     *
+     * @param rooms the rooms to add
+     */
+    public void addRooms(final Collection<IRoom> rooms) {
+        final ConsistentHashRing current = ring;
+        final Map<ClusterMember, List<IRoom>> roomsByOwner = new HashMap<>();
+        for (IRoom room : rooms) {
+            roomsByOwner.computeIfAbsent(current.ownerOf(room.getRoomNumber()), owner -> new ArrayList<>()).add(room);
+        }
+
+        fanOut(current, member -> {
+            final List<IRoom> ownedRooms = roomsByOwner.get(member);
+            if (ownedRooms == null) {
+                return null;
+            }
+            if (member.equals(self)) {
+                reservationService.addRooms(ownedRooms);
+                return null;
+            }
+            return client.call(member, ClusterProtocol.ADD_ROOMS, 0,
+                    out -> ClusterProtocol.writeRooms(out, ownedRooms), in -> null);
+        });
+    }
+
+    /**
+     * Retrieves a room from its owner.
+     *
+     * @param roomNumber the room number
+     * @return the room, or null if no node has it
+     */
+    public IRoom getRoom(final String roomNumber) {
+        return getRoom(roomNumber, 0);
+    }
+
+    /**
+     * Lists the rooms of every node.
+     *
+     * @return the rooms, in room number order
+     */
+    public Collection<IRoom> getAllRooms() {
+        return mergeRooms(fanOut(ring, member -> member.equals(self)
+                ? reservationService.getAllRooms()
+                : client.call(member, ClusterProtocol.GET_ALL_ROOMS, 0, NO_RESULT, ClusterProtocol::readRooms)));
+    }
+
+    /**
+     * Books a room on its owner.
+     *
+     * @param customer the customer booking the room
+     * @param roomNumber the number of the room to book
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @return the reservation
+     * @throws RoomNotAvailableException if the room is already booked during the given dates
+     * @throws IllegalArgumentException if the room does not exist
+     */
+    public Reservation bookARoom(final Customer customer, final String roomNumber,
+                                 final Date checkInDate, final Date checkOutDate) {
+        return bookARoom(customer, roomNumber, checkInDate, checkOutDate, 0);
+    }
+
+    /**
+     * Books several rooms for the same dates, all or nothing. The rooms of each owner are booked together;
+     * if an owner refuses, the rooms already booked on other owners are cancelled again.
+     *
+     * @param customer the customer booking the rooms
+     * @param roomNumbers the numbers of the rooms to book
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @return the reservations, in the order of the given room numbers
+     * @throws RoomNotAvailableException if one of the rooms is already booked during the given dates
+     * @throws IllegalArgumentException if one of the rooms does not exist or is requested twice
+     */
+    public List<Reservation> bookRooms(final Customer customer, final List<String> roomNumbers,
+                                       final Date checkInDate, final Date checkOutDate) {
+        final ConsistentHashRing current = ring;
+        final Map<ClusterMember, List<String>> numbersByOwner = new LinkedHashMap<>();
+        for (String roomNumber : roomNumbers) {
+            numbersByOwner.computeIfAbsent(current.ownerOf(roomNumber), owner -> new ArrayList<>()).add(roomNumber);
+        }
+
+        final Map<String, Reservation> booked = new HashMap<>();
+        try {
+            for (Map.Entry<ClusterMember, List<String>> owned : numbersByOwner.entrySet()) {
+                for (Reservation reservation : bookOwnedRooms(owned.getKey(), customer, owned.getValue(),
+                        checkInDate, checkOutDate, 0)) {
+                    booked.put(reservation.getRoom().getRoomNumber(), reservation);
+                }
+            }
+        } catch (RuntimeException ex) {
+            for (Reservation reservation : booked.values()) {
+                try {
+                    cancelReservation(customer, reservation.getRoom().getRoomNumber(), checkInDate);
+                } catch (RuntimeException cancelEx) {
+                    ex.addSuppressed(cancelEx);
+                }
+            }
+            throw ex;
+        }
+
+        final List<Reservation> reservations = new ArrayList<>(roomNumbers.size());
+        for (String roomNumber : roomNumbers) {
+            reservations.add(booked.get(roomNumber));
+        }
+        return reservations;
+    }
+
+    /**
+     * Cancels a reservation on the owner of its room.
+     *
+     * @param customer the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the check-in date of the reservation
+     * @return the cancelled reservation, or null if the customer has no reservation of the room starting that day
+     * @throws IllegalArgumentException if the room does not exist
+     */
+    public Reservation cancelReservation(final Customer customer, final String roomNumber, final Date checkInDate) {
+        return cancelReservation(customer, roomNumber, checkInDate, 0);
+    }
+
+    /**
+     * Moves a reservation to new dates on the owner of its room.
+     *
+     * @param customer the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the current check-in date of the reservation
+     * @param newCheckInDate the new check-in date
+     * @param newCheckOutDate the new check-out date
+     * @return the reservation for the new dates
+     * @throws RoomNotAvailableException if the room is already booked during the new dates
+     * @throws IllegalArgumentException if the room or the reservation does not exist, or the new dates are invalid
+     */
+    public Reservation modifyReservation(final Customer customer, final String roomNumber, final Date checkInDate,
+                                         final Date newCheckInDate, final Date newCheckOutDate) {
+        return modifyReservation(customer, roomNumber, checkInDate, newCheckInDate, newCheckOutDate, 0);
+    }
+
+    /**
+     * Collects the reservations of a customer from every node.
+     *
+     * @param customer the customer
+     * @return the reservations, ordered by check-in date and room number
+     */
+    public Collection<Reservation> getCustomersReservations(final Customer customer) {
+        final NavigableSet<Reservation> reservations = new TreeSet<>(RESERVATION_ORDER);
+        for (Collection<Reservation> found : fanOut(ring, member -> member.equals(self)
+                ? reservationService.getCustomersReservation(customer)
+                : client.call(member, ClusterProtocol.GET_CUSTOMERS_RESERVATIONS, 0,
+                        out -> out.writeUTF(customer.getEmail()), in -> ClusterProtocol.readStays(in, customer)))) {
+            reservations.addAll(found);
+        }
+        return List.copyOf(reservations);
+    }
+
+    /**
+     * Finds the rooms available on every node.
+     *
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param filter the room types and price range to accept
+     * @return the available rooms, in room number order
+     */
+    public Collection<IRoom> findRooms(final Date checkInDate, final Date checkOutDate, final RoomFilter filter) {
+        return mergeRooms(fanOut(ring, member -> member.equals(self)
+                ? reservationService.findRooms(checkInDate, checkOutDate, filter)
+                : client.call(member, ClusterProtocol.FIND_ROOMS, 0, out -> {
+                    ClusterProtocol.writeDate(out, checkInDate);
+                    ClusterProtocol.writeDate(out, checkOutDate);
+                    ClusterProtocol.writeFilter(out, filter);
+                }, ClusterProtocol::readRooms)));
+    }
+
+    /**
+     * Finds the best available rooms across every node. For a {@link RoomOrder} every node returns its own best
+     * rooms and the lists are merged; for any other order every available room is collected and ranked here.
+     *
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param limit the largest number of rooms to return
+     * @param order the order deciding which rooms are best
+     * @param filter the room types and price range to accept
+     * @return the best available rooms, best first
+     */
+    public List<IRoom> findBestRooms(final Date checkInDate, final Date checkOutDate, final int limit,
+                                     final Comparator<? super IRoom> order, final RoomFilter filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        final Collection<IRoom> candidates;
+        if (order instanceof RoomOrder roomOrder) {
+            candidates = mergeRooms(fanOut(ring, member -> member.equals(self)
+                    ? reservationService.findBestRooms(checkInDate, checkOutDate, limit, roomOrder, filter)
+                    : client.call(member, ClusterProtocol.FIND_BEST_ROOMS, 0, out -> {
+                        ClusterProtocol.writeDate(out, checkInDate);
+                        ClusterProtocol.writeDate(out, checkOutDate);
+                        out.writeInt(limit);
+                        out.writeByte(roomOrder.ordinal());
+                        ClusterProtocol.writeFilter(out, filter);
+                    }, ClusterProtocol::readRooms)));
+        } else {
+            candidates = findRooms(checkInDate, checkOutDate, filter);
+        }
+
+        final List<IRoom> best = new ArrayList<>(candidates);
+        best.sort(order);
+        return best.size() > limit ? List.copyOf(best.subList(0, limit)) : best;
+    }
+
+    /**
+     * Finds one page of available rooms across every node, in room number order.
+     * Every node returns its own page after the token, and the first rooms of the merged pages form the page.
+     *
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param limit the largest number of rooms on the page
+     * @param pageToken the continuation token of the previous page, or null for the first page
+     * @return the page of available rooms
+     * @throws IllegalArgumentException if the limit is not positive or the page token is malformed
+     */
+    public AvailabilityPage findRoomsPage(final Date checkInDate, final Date checkOutDate, final int limit,
+                                          final String pageToken) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+
+        final List<IRoom> merged = new ArrayList<>(mergeRooms(fanOut(ring, member -> member.equals(self)
+                ? reservationService.findRoomsPage(checkInDate, checkOutDate, limit, pageToken).getRooms()
+                : client.call(member, ClusterProtocol.FIND_ROOMS_PAGE, 0, out -> {
+                    ClusterProtocol.writeDate(out, checkInDate);
+                    ClusterProtocol.writeDate(out, checkOutDate);
+                    out.writeInt(limit);
+                    out.writeBoolean(pageToken != null);
+                    if (pageToken != null) {
+                        out.writeUTF(pageToken);
+                    }
+                }, ClusterProtocol::readRooms))));
+
+        if (merged.size() < limit) {
+            return new AvailabilityPage(merged, null);
+        }
+        final List<IRoom> page = List.copyOf(merged.subList(0, limit));
+        return new AvailabilityPage(page,
+                ReservationService.encodePageToken(page.get(limit - 1).getRoomNumber()));
+    }
+
+    /**
+     * Recommends alternative stays across every node. Every node reports each nearby stay it has free rooms for,
+     * and the rooms of the same stay are merged.
+     *
+     * @param checkInDate the requested check-in date
+     * @param checkOutDate the requested check-out date
+     * @param horizonDays the largest number of days a stay may be moved by
+     * @param limit the largest number of recommendations to return
+     * @return the recommended stays, closest to the requested dates first, the later one first on a tie
+     */
+    public List<AlternativeStay> findAlternativeStays(final Date checkInDate, final Date checkOutDate,
+                                                      final int horizonDays, final int limit) {
+        if (limit <= 0 || horizonDays <= 0) {
+            return List.of();
+        }
+
+        final int everyStay = 2 * horizonDays;
+        final Map<Integer, AlternativeStay> staysByShift = new TreeMap<>(
+                Comparator.comparingInt((Integer shift) -> Math.abs(shift)).thenComparing(Comparator.reverseOrder()));
+        final Map<Integer, Set<IRoom>> roomsByShift = new HashMap<>();
+        for (List<AlternativeStay> stays : fanOut(ring, member -> member.equals(self)
+                ? reservationService.findAlternativeStays(checkInDate, checkOutDate, horizonDays, everyStay)
+                : client.call(member, ClusterProtocol.FIND_ALTERNATIVE_STAYS, 0, out -> {
+                    ClusterProtocol.writeDate(out, checkInDate);
+                    ClusterProtocol.writeDate(out, checkOutDate);
+                    out.writeInt(horizonDays);
+                    out.writeInt(everyStay);
+                }, ClusterNode::readAlternativeStays))) {
+            for (AlternativeStay stay : stays) {
+                staysByShift.putIfAbsent(stay.getDaysFromRequest(), stay);
+                roomsByShift.computeIfAbsent(stay.getDaysFromRequest(), shift -> new TreeSet<>(RoomOrder.ROOM_NUMBER))
+                        .addAll(stay.getAvailableRooms());
+            }
+        }
+
+        final List<AlternativeStay> alternatives = new ArrayList<>(Math.min(limit, staysByShift.size()));
+        for (AlternativeStay stay : staysByShift.values()) {
+            if (alternatives.size() == limit) {
+                break;
+            }
+            alternatives.add(new AlternativeStay(stay.getCheckInDate(), stay.getCheckOutDate(),
+                    stay.getDaysFromRequest(), List.copyOf(roomsByShift.get(stay.getDaysFromRequest()))));
+        }
+        return alternatives;
+    }
+
+    /**
+     * Hands every room of this node that belongs to another node, with its reservations, to its owner.
+     * Runs on its own after a change of the ring; call it after adding rooms to this node directly,
+     * such as through an import, to move them to their owners.
+     *
+     * @return the number of rooms handed off
+     */
+    public int rebalance() {
+        final ConsistentHashRing current = ring;
+        int handedOff = 0;
+        for (ClusterMember member : current.getMembers()) {
+            if (!member.equals(self)) {
+                handedOff += reservationService.handOffRooms(
+                        room -> current.ownerOf(room.getRoomNumber()).equals(member),
+                        rooms -> sendRooms(member, rooms));
+            }
+        }
+        return handedOff;
+    }
+
+    /**
+     * Stops accepting connections and closes the connections to other nodes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            // Already closed
+        }
+        rebalancer.shutdownNow();
+        executor.shutdownNow();
+        client.close();
+    }
+
+    /**
+     * Retrieves a room from its owner.
+     *
+     * @param roomNumber the room number
+     * @param hops the number of times the request has been forwarded
+     * @return the room, or null if no node has it
+     */
+    private IRoom getRoom(final String roomNumber, final int hops) {
+        return routeToOwner(roomNumber, hops, () -> reservationService.getARoom(roomNumber),
+                (owner, nextHops) -> client.call(owner, ClusterProtocol.GET_ROOM, nextHops,
+                        out -> out.writeUTF(roomNumber), ClusterProtocol::readOptionalRoom));
+    }
+
+    /**
+     * Books a room on its owner.
+     *
+     * @param customer the customer booking the room
+     * @param roomNumber the number of the room to book
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param hops the number of times the request has been forwarded
+     * @return the reservation
+     */
+    private Reservation bookARoom(final Customer customer, final String roomNumber,
+                                  final Date checkInDate, final Date checkOutDate, final int hops) {
+        return routeToOwner(roomNumber, hops,
+                () -> reservationService.reserveARoom(customer, requireLocalRoom(roomNumber), checkInDate, checkOutDate),
+                (owner, nextHops) -> client.call(owner, ClusterProtocol.BOOK_A_ROOM, nextHops, out -> {
+                    ClusterProtocol.writeCustomer(out, customer);
+                    out.writeUTF(roomNumber);
+                    ClusterProtocol.writeDate(out, checkInDate);
+                    ClusterProtocol.writeDate(out, checkOutDate);
+                }, in -> ClusterProtocol.readStay(in, customer)));
+    }
+
+    /**
+     * Books rooms that all belong to one owner, all or nothing.
+     *
+     * @param owner the owner of the rooms
+     * @param customer the customer booking the rooms
+     * @param roomNumbers the numbers of the rooms to book
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param hops the number of times the request has been forwarded
+     * @return the reservations, in the order of the given room numbers
+     */
+    private List<Reservation> bookOwnedRooms(final ClusterMember owner, final Customer customer,
+                                             final List<String> roomNumbers, final Date checkInDate,
+                                             final Date checkOutDate, final int hops) {
+        if (owner.equals(self) || hops >= ClusterProtocol.MAX_HOPS) {
+            final List<IRoom> rooms = new ArrayList<>(roomNumbers.size());
+            for (String roomNumber : roomNumbers) {
+                rooms.add(requireLocalRoom(roomNumber));
+            }
+            return reservationService.reserveRooms(customer, rooms, checkInDate, checkOutDate);
+        }
+
+        return client.call(owner, ClusterProtocol.BOOK_ROOMS, hops + 1, out -> {
+            ClusterProtocol.writeCustomer(out, customer);
+            out.writeInt(roomNumbers.size());
+            for (String roomNumber : roomNumbers) {
+                out.writeUTF(roomNumber);
+            }
+            ClusterProtocol.writeDate(out, checkInDate);
+            ClusterProtocol.writeDate(out, checkOutDate);
+        }, in -> ClusterProtocol.readStays(in, customer));
+    }
+
+    /**
+     * Cancels a reservation on the owner of its room.
+     *
+     * @param customer the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the check-in date of the reservation
+     * @param hops the number of times the request has been forwarded
+     * @return the cancelled reservation, or null if there is none
+     */
+    private Reservation cancelReservation(final Customer customer, final String roomNumber, final Date checkInDate,
+                                          final int hops) {
+        return routeToOwner(roomNumber, hops, () -> {
+            final Reservation cancelled =
+                    reservationService.cancelReservation(customer, requireLocalRoom(roomNumber), checkInDate);
+            if (cancelled == null) {
+                // The room may have been handed off while the cancellation waited for its lock
+                requireLocalRoom(roomNumber);
+            }
+            return cancelled;
+        }, (owner, nextHops) -> client.call(owner, ClusterProtocol.CANCEL_RESERVATION, nextHops, out -> {
+            ClusterProtocol.writeCustomer(out, customer);
+            out.writeUTF(roomNumber);
+            ClusterProtocol.writeDate(out, checkInDate);
+        }, in -> in.readBoolean() ? ClusterProtocol.readStay(in, customer) : null));
+    }
+
+    /**
+     * Moves a reservation to new dates on the owner of its room.
+     *
+     * @param customer the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDate the current check-in date of the reservation
+     * @param newCheckInDate the new check-in date
+     * @param newCheckOutDate the new check-out date
+     * @param hops the number of times the request has been forwarded
+     * @return the reservation for the new dates
+     */
+    private Reservation modifyReservation(final Customer customer, final String roomNumber, final Date checkInDate,
+                                          final Date newCheckInDate, final Date newCheckOutDate, final int hops) {
+        return routeToOwner(roomNumber, hops,
+                () -> reservationService.modifyReservation(customer, requireLocalRoom(roomNumber), checkInDate,
+                        newCheckInDate, newCheckOutDate),
+                (owner, nextHops) -> client.call(owner, ClusterProtocol.MODIFY_RESERVATION, nextHops, out -> {
+                    ClusterProtocol.writeCustomer(out, customer);
+                    out.writeUTF(roomNumber);
+                    ClusterProtocol.writeDate(out, checkInDate);
+                    ClusterProtocol.writeDate(out, newCheckInDate);
+                    ClusterProtocol.writeDate(out, newCheckOutDate);
+                }, in -> ClusterProtocol.readStay(in, customer)));
+    }
+
+    /**
+     * Runs a call about one room where the room is. A room held by this node is served here. Otherwise the call
+     * is forwarded to the room's owner, or, if this node owns the room but it has not been handed over yet,
+     * to its previous owner. A call that has been forwarded too often is served here, reporting the room as missing.
+     *
+     * @param roomNumber the number of the room
+     * @param hops the number of times the call has been forwarded
+     * @param local runs the call on this node; throws {@link IllegalArgumentException} if the room is not here
+     * @param forward runs the call on another node
+     * @param <T> the type of the result
+     * @return the result of the call
+     */
+    private <T> T routeToOwner(final String roomNumber, final int hops, final Supplier<T> local,
+                               final Forward<T> forward) {
+        if (reservationService.getARoom(roomNumber) != null) {
+            try {
+                return local.get();
+            } catch (IllegalArgumentException ex) {
+                if (reservationService.getARoom(roomNumber) != null) {
+                    throw ex;
+                }
+                // Handed off meanwhile
+            }
+        }
+
+        if (hops < ClusterProtocol.MAX_HOPS) {
+            final ClusterMember owner = ring.ownerOf(roomNumber);
+            if (!owner.equals(self)) {
+                return forward.to(owner, hops + 1);
+            }
+
+            final ConsistentHashRing previous = previousRing;
+            final ClusterMember previousOwner = previous == null ? self : previous.ownerOf(roomNumber);
+            if (!previousOwner.equals(self)) {
+                try {
+                    return forward.to(previousOwner, hops + 1);
+                } catch (IllegalArgumentException ex) {
+                    if (reservationService.getARoom(roomNumber) == null) {
+                        throw ex;
+                    }
+                    // Handed over meanwhile
+                }
+            }
+        }
+        return local.get();
+    }
+
+    /**
+     * Runs a call on every member of a ring in parallel, this node included.
+     *
+     * @param members the ring whose members to call
+     * @param call makes the call to one member
+     * @param <T> the type of the result of each call
+     * @return the results, in the order of the members
+     */
+    private <T> List<T> fanOut(final ConsistentHashRing members, final Function<ClusterMember, T> call) {
+        final List<CompletableFuture<T>> calls = new ArrayList<>(members.getMembers().size());
+        for (ClusterMember member : members.getMembers()) {
+            calls.add(CompletableFuture.supplyAsync(() -> call.apply(member), executor));
+        }
+
+        final List<T> results = new ArrayList<>(calls.size());
+        try {
+            for (CompletableFuture<T> pending : calls) {
+                results.add(pending.join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+        return results;
+    }
+
+    /**
+     * Merges the rooms reported by several nodes, dropping a room reported twice while it is handed over.
+     *
+     * @param roomLists the rooms of each node
+     * @return the rooms, in room number order
+     */
+    private static List<IRoom> mergeRooms(final List<? extends Collection<IRoom>> roomLists) {
+        final NavigableSet<IRoom> merged = new TreeSet<>(RoomOrder.ROOM_NUMBER);
+        for (Collection<IRoom> rooms : roomLists) {
+            merged.addAll(rooms);
+        }
+        return List.copyOf(merged);
+    }
+
+    /**
+     * Retrieves a room of this node.
+     *
+     * @param roomNumber the room number
+     * @return the room
+     * @throws IllegalArgumentException if this node does not have the room
+     */
+    private IRoom requireLocalRoom(final String roomNumber) {
+        final IRoom room = reservationService.getARoom(roomNumber);
+        if (room == null) {
+            throw new IllegalArgumentException("Room not found: " + roomNumber);
+        }
+        return room;
+    }
+
+    /**
+     * Returns the customer with the email of a customer received from another node, creating it if it is unknown.
+     *
+     * @param customer the customer received
+     * @return the customer of this node
+     */
+    private Customer ensureCustomer(final Customer customer) {
+        final Customer existing = customerService.getCustomer(customer.getEmail());
+        if (existing != null) {
+            return existing;
+        }
+        customerService.addCustomer(customer.getEmail(), customer.getFirstName(), customer.getLastName());
+        return customerService.getCustomer(customer.getEmail());
+    }
+
+    /**
+     * Adds a node to the ring, announces the new ring to every member and copies the customers to the new node.
+     * The ring is switched under the membership lock and announced after it has been released, so a member that
+     * is announcing a ring of its own at the same time is never waited on; members merge the rings they are
+     * announced, so the order in which the announcements arrive does not matter.
+     *
+     * @param member the joining node
+     * @return the new ring
+     */
+    private ConsistentHashRing admit(final ClusterMember member) {
+        final ConsistentHashRing grown;
+        final boolean changed;
+        membershipLock.lock();
+        try {
+            grown = ring.withMember(member);
+            changed = grown != ring;
+            if (changed) {
+                adoptMembers(grown.getMembers());
+            }
+        } finally {
+            membershipLock.unlock();
+        }
+
+        if (changed) {
+            fanOut(grown, other -> other.equals(self) ? null : client.call(other, ClusterProtocol.MEMBERS, 0,
+                    out -> ClusterProtocol.writeMembers(out, grown.getMembers()), in -> null));
+        }
+        sendCustomers(member);
+        return grown;
+    }
+
+    /**
+     * Switches to a ring made of the current members and the given ones, and hands off the rooms
+     * that now belong to other nodes in the background.
+     *
+     * @param members the members announced by another node
+     */
+    private void adoptMembers(final Collection<ClusterMember> members) {
+        membershipLock.lock();
+        try {
+            final Set<ClusterMember> union = new LinkedHashSet<>(ring.getMembers());
+            union.addAll(members);
+            if (union.size() == ring.getMembers().size()) {
+                return;
+            }
+            if (ring.getMembers().size() == 1) {
+                // Joining: before this node took its share, the rooms belonged to the cluster it joins
+                union.remove(self);
+                previousRing = new ConsistentHashRing(union);
+                union.add(self);
+            } else {
+                previousRing = ring;
+            }
+            ring = new ConsistentHashRing(union);
+        } finally {
+            membershipLock.unlock();
+        }
+        scheduleRebalance();
+    }
+
+    /**
+     * Hands off rooms that belong to other nodes on the rebalancer thread.
+     */
+    private void scheduleRebalance() {
+        try {
+            rebalancer.execute(() -> {
+                try {
+                    rebalance();
+                } catch (RuntimeException ex) {
+                    System.err.println("Cluster rebalance of " + self + " failed: " + ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Closed
+        }
+    }
+
+    /**
+     * Sends rooms, with their reservations and the customers who made them, to the node taking them over.
+     *
+     * @param member the new owner of the rooms
+     * @param rooms the rooms, each with its reservations
+     */
+    private void sendRooms(final ClusterMember member, final Map<IRoom, List<Reservation>> rooms) {
+        client.call(member, ClusterProtocol.ADOPT_ROOMS, 0, out -> {
+            ClusterProtocol.writeRooms(out, rooms.keySet());
+            int count = 0;
+            for (List<Reservation> reservations : rooms.values()) {
+                count += reservations.size();
+            }
+            out.writeInt(count);
+            for (List<Reservation> reservations : rooms.values()) {
+                for (Reservation reservation : reservations) {
+                    ClusterProtocol.writeCustomer(out, reservation.getCustomer());
+                    ClusterProtocol.writeStay(out, reservation);
+                }
+            }
+        }, in -> null);
+    }
+
+    /**
+     * Copies one customer of this node to every other node.
+     *
+     * @param customer the customer to copy
+     */
+    private void copyCustomer(final Customer customer) {
+        fanOut(ring, member -> member.equals(self) ? null : client.call(member, ClusterProtocol.ADD_CUSTOMERS, 0,
+                out -> {
+                    out.writeInt(1);
+                    ClusterProtocol.writeCustomer(out, customer);
+                }, in -> null));
+    }
+
+    /**
+     * Copies every customer of this node to another node.
+     *
+     * @param member the node to copy the customers to
+     */
+    private void sendCustomers(final ClusterMember member) {
+        if (member.equals(self)) {
+            return;
+        }
+
+        final List<Customer> customers = new ArrayList<>(customerService.getAllCustomers());
+        for (int from = 0; from < customers.size(); from += CUSTOMERS_PER_MESSAGE) {
+            final List<Customer> chunk = customers.subList(from, Math.min(customers.size(), from + CUSTOMERS_PER_MESSAGE));
+            client.call(member, ClusterProtocol.ADD_CUSTOMERS, 0, out -> {
+                out.writeInt(chunk.size());
+                for (Customer customer : chunk) {
+                    ClusterProtocol.writeCustomer(out, customer);
+                }
+            }, in -> null);
+        }
+    }
+
+    /**
+     * Accepts connections from other nodes until the node is closed, serving each on its own virtual thread.
+     */
+    private void acceptConnections() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                if (!closed) {
+                    System.err.println("Cluster node " + self + " stopped accepting connections: " + ex);
+                }
+                return;
+            }
+
+            try {
+                executor.execute(() -> serve(socket));
+            } catch (RejectedExecutionException ex) {
+                try {
+                    socket.close();
+                } catch (IOException closeEx) {
+                    // Closing anyway
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Serves the requests of one connection, one at a time, until the other node closes it.
+     *
+     * @param socket the connection
+     */
+    private void serve(final Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            final DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+            for (int operation = in.read(); operation >= 0; operation = in.read()) {
+                respond((byte) operation, in.readByte(), in, out);
+                out.flush();
+            }
+        } catch (IOException ex) {
+            // The other node went away
+        }
+    }
+
+    /**
+     * Handles one request and writes its response, turning exceptions into error responses.
+     *
+     * @param operation the operation of the request
+     * @param hops the number of times the request has been forwarded
+     * @param in the stream to read the fields of the request from
+     * @param out the stream to write the response to
+     * @throws IOException if the connection fails or the request is malformed
+     */
+    private void respond(final byte operation, final int hops, final DataInputStream in, final DataOutputStream out)
+            throws IOException {
+        final ClusterClient.FieldWriter result;
+        try {
+            result = handle(operation, hops, in);
+        } catch (RoomNotAvailableException ex) {
+            out.writeByte(ClusterProtocol.ROOM_NOT_AVAILABLE);
+            out.writeUTF(ex.getRoomNumber());
+            ClusterProtocol.writeDate(out, ex.getCheckInDate());
+            ClusterProtocol.writeDate(out, ex.getCheckOutDate());
+            return;
+        } catch (IllegalArgumentException ex) {
+            out.writeByte(ClusterProtocol.INVALID_REQUEST);
+            out.writeUTF(String.valueOf(ex.getMessage()));
+            return;
+        } catch (RuntimeException ex) {
+            out.writeByte(ClusterProtocol.FAILED);
+            out.writeUTF(String.valueOf(ex));
+            return;
+        }
+
+        out.writeByte(ClusterProtocol.OK);
+        result.write(out);
+    }
+
+    /**
+     * Reads the fields of a request, runs it, and returns the writer of its result.
+     * Every field is read before the request runs, so a failing request leaves the connection usable.
+     *
+     * @param operation the operation of the request
+     * @param hops the number of times the request has been forwarded
+     * @param in the stream to read the fields of the request from
+     * @return writes the result
+     * @throws IOException if the connection fails or the operation is unknown
+     */
+    private ClusterClient.FieldWriter handle(final byte operation, final int hops, final DataInputStream in)
+            throws IOException {
+        switch (operation) {
+            case ClusterProtocol.JOIN -> {
+                final ClusterMember member = ClusterProtocol.readMember(in);
+                final List<ClusterMember> members = admit(member).getMembers();
+                return out -> ClusterProtocol.writeMembers(out, members);
+            }
+            case ClusterProtocol.MEMBERS -> {
+                adoptMembers(ClusterProtocol.readMembers(in));
+                return NO_RESULT;
+            }
+            case ClusterProtocol.ADD_CUSTOMERS -> {
+                final int count = in.readInt();
+                final List<Customer> customers = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    customers.add(ClusterProtocol.readCustomer(in));
+                }
+                customers.forEach(this::ensureCustomer);
+                return NO_RESULT;
+            }
+            case ClusterProtocol.ADD_ROOMS -> {
+                final List<IRoom> rooms = ClusterProtocol.readRooms(in);
+                reservationService.addRooms(rooms);
+                final ConsistentHashRing current = ring;
+                if (rooms.stream().anyMatch(room -> !current.ownerOf(room.getRoomNumber()).equals(self))) {
+                    scheduleRebalance();
+                }
+                return NO_RESULT;
+            }
+            case ClusterProtocol.ADOPT_ROOMS -> {
+                final List<IRoom> rooms = ClusterProtocol.readRooms(in);
+                final int count = in.readInt();
+                final List<Reservation> received = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    received.add(ClusterProtocol.readStay(in, ClusterProtocol.readCustomer(in)));
+                }
+                adoptRooms(rooms, received);
+                return NO_RESULT;
+            }
+            case ClusterProtocol.GET_ROOM -> {
+                final IRoom room = getRoom(in.readUTF(), hops);
+                return out -> ClusterProtocol.writeOptionalRoom(out, room);
+            }
+            case ClusterProtocol.BOOK_A_ROOM -> {
+                final Customer customer = ClusterProtocol.readCustomer(in);
+                final String roomNumber = in.readUTF();
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final Reservation reservation =
+                        bookARoom(ensureCustomer(customer), roomNumber, checkInDate, checkOutDate, hops);
+                return out -> ClusterProtocol.writeStay(out, reservation);
+            }
+            case ClusterProtocol.BOOK_ROOMS -> {
+                final Customer customer = ClusterProtocol.readCustomer(in);
+                final int count = in.readInt();
+                final List<String> roomNumbers = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    roomNumbers.add(in.readUTF());
+                }
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final List<Reservation> reservations = bookOwnedRooms(ring.ownerOf(roomNumbers.get(0)),
+                        ensureCustomer(customer), roomNumbers, checkInDate, checkOutDate, hops);
+                return out -> ClusterProtocol.writeStays(out, reservations);
+            }
+            case ClusterProtocol.CANCEL_RESERVATION -> {
+                final Customer customer = ClusterProtocol.readCustomer(in);
+                final String roomNumber = in.readUTF();
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Reservation cancelled = cancelReservation(ensureCustomer(customer), roomNumber, checkInDate, hops);
+                return out -> {
+                    out.writeBoolean(cancelled != null);
+                    if (cancelled != null) {
+                        ClusterProtocol.writeStay(out, cancelled);
+                    }
+                };
+            }
+            case ClusterProtocol.MODIFY_RESERVATION -> {
+                final Customer customer = ClusterProtocol.readCustomer(in);
+                final String roomNumber = in.readUTF();
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date newCheckInDate = ClusterProtocol.readDate(in);
+                final Date newCheckOutDate = ClusterProtocol.readDate(in);
+                final Reservation reservation = modifyReservation(ensureCustomer(customer), roomNumber, checkInDate,
+                        newCheckInDate, newCheckOutDate, hops);
+                return out -> ClusterProtocol.writeStay(out, reservation);
+            }
+            case ClusterProtocol.FIND_ROOMS -> {
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final Collection<IRoom> rooms =
+                        reservationService.findRooms(checkInDate, checkOutDate, ClusterProtocol.readFilter(in));
+                return out -> ClusterProtocol.writeRooms(out, rooms);
+            }
+            case ClusterProtocol.FIND_BEST_ROOMS -> {
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final int limit = in.readInt();
+                final RoomOrder order = RoomOrder.values()[in.readByte()];
+                final List<IRoom> rooms = reservationService.findBestRooms(checkInDate, checkOutDate, limit, order,
+                        ClusterProtocol.readFilter(in));
+                return out -> ClusterProtocol.writeRooms(out, rooms);
+            }
+            case ClusterProtocol.FIND_ROOMS_PAGE -> {
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final int limit = in.readInt();
+                final String pageToken = in.readBoolean() ? in.readUTF() : null;
+                final List<IRoom> rooms =
+                        reservationService.findRoomsPage(checkInDate, checkOutDate, limit, pageToken).getRooms();
+                return out -> ClusterProtocol.writeRooms(out, rooms);
+            }
+            case ClusterProtocol.FIND_ALTERNATIVE_STAYS -> {
+                final Date checkInDate = ClusterProtocol.readDate(in);
+                final Date checkOutDate = ClusterProtocol.readDate(in);
+                final int horizonDays = in.readInt();
+                final List<AlternativeStay> stays = reservationService.findAlternativeStays(checkInDate, checkOutDate,
+                        horizonDays, in.readInt());
+                return out -> writeAlternativeStays(out, stays);
+            }
+            case ClusterProtocol.GET_CUSTOMERS_RESERVATIONS -> {
+                final Customer customer = customerService.getCustomer(in.readUTF());
+                final List<Reservation> reservations = customer == null
+                        ? List.of() : List.copyOf(reservationService.getCustomersReservation(customer));
+                return out -> ClusterProtocol.writeStays(out, reservations);
+            }
+            case ClusterProtocol.GET_ALL_ROOMS -> {
+                final List<IRoom> rooms = List.copyOf(reservationService.getAllRooms());
+                return out -> ClusterProtocol.writeRooms(out, rooms);
+            }
+            default -> throw new IOException("Unknown cluster operation: " + operation);
+        }
+    }
+
+    /**
+     * Adopts rooms handed over by another node, creating the customers of their reservations if they are unknown.
+     *
+     * @param rooms the rooms
+     * @param received the reservations of the rooms, with the customers as received
+     */
+    private void adoptRooms(final List<IRoom> rooms, final List<Reservation> received) {
+        final Map<String, IRoom> roomsByNumber = new HashMap<>();
+        for (IRoom room : rooms) {
+            roomsByNumber.put(room.getRoomNumber(), room);
+        }
+
+        final List<Reservation> reservations = new ArrayList<>(received.size());
+        for (Reservation reservation : received) {
+            final IRoom room = roomsByNumber.getOrDefault(reservation.getRoom().getRoomNumber(), reservation.getRoom());
+            reservations.add(new Reservation(ensureCustomer(reservation.getCustomer()), room,
+                    reservation.getCheckInDate(), reservation.getCheckOutDate()));
+        }
+        reservationService.adoptRooms(rooms, reservations);
+    }
+
+    /**
+     * Writes a list of alternative stays.
+     *
+     * @param out the stream to write to
+     * @param stays the stays to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeAlternativeStays(final DataOutputStream out, final List<AlternativeStay> stays)
+            throws IOException {
+        out.writeInt(stays.size());
+        for (AlternativeStay stay : stays) {
+            ClusterProtocol.writeDate(out, stay.getCheckInDate());
+            ClusterProtocol.writeDate(out, stay.getCheckOutDate());
+            out.writeInt(stay.getDaysFromRequest());
+            ClusterProtocol.writeRooms(out, stay.getAvailableRooms());
+        }
+    }
+
+    /**
+     * Reads a list of alternative stays.
+     *
+     * @param in the stream to read from
+     * @return the stays
+     * @throws IOException if the stream cannot be read
+     */
+    private static List<AlternativeStay> readAlternativeStays(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<AlternativeStay> stays = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Date checkInDate = ClusterProtocol.readDate(in);
+            final Date checkOutDate = ClusterProtocol.readDate(in);
+            final int daysFromRequest = in.readInt();
+            stays.add(new AlternativeStay(checkInDate, checkOutDate, daysFromRequest, ClusterProtocol.readRooms(in)));
+        }
+        return stays;
+    }
+
+    /**
+     * Runs a call about one room on another node.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface Forward<T> {
+
+        /**
+         * Runs the call on a node.
+         *
+         * @param member the node to run the call on
+         * @param hops the number of times the call will have been forwarded
+         * @return the result of the call
+         */
+        T to(ClusterMember member, int hops);
+    }
+}
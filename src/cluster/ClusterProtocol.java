@@ -0,0 +1,344 @@
+package cluster;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.reservation.RoomFilter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ClusterProtocol
+ * <p>
+ * Binary request/response protocol spoken between the nodes of the cluster over plain TCP connections.
+ * A request is a one-byte operation, a hop count and the fields of the operation; a response is a one-byte status
+ * followed by the result, or by the details of the error. Connections are kept open and carry one request
+ * at a time. Strings are written with {@link DataOutputStream#writeUTF(String)} and dates as epoch milliseconds.
+ * <p>
+ * Requests about one room carry the number of times they have already been forwarded, so a request for a room
+ * that is moving between nodes while the cluster rebalances is forwarded a bounded number of times.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class ClusterProtocol {
+
+    static final byte JOIN = 1;
+    static final byte MEMBERS = 2;
+    static final byte ADD_CUSTOMERS = 3;
+    static final byte ADD_ROOMS = 4;
+    static final byte ADOPT_ROOMS = 5;
+    static final byte GET_ROOM = 6;
+    static final byte BOOK_A_ROOM = 7;
+    static final byte BOOK_ROOMS = 8;
+    static final byte CANCEL_RESERVATION = 9;
+    static final byte MODIFY_RESERVATION = 10;
+    static final byte FIND_ROOMS = 11;
+    static final byte FIND_BEST_ROOMS = 12;
+    static final byte FIND_ROOMS_PAGE = 13;
+    static final byte FIND_ALTERNATIVE_STAYS = 14;
+    static final byte GET_CUSTOMERS_RESERVATIONS = 15;
+    static final byte GET_ALL_ROOMS = 16;
+
+    static final byte OK = 0;
+    static final byte ROOM_NOT_AVAILABLE = 1;
+    static final byte INVALID_REQUEST = 2;
+    static final byte FAILED = 3;
+
+    /**
+     * Largest number of times a request about one room is forwarded between nodes.
+     */
+    static final int MAX_HOPS = 2;
+
+    private static final byte PAID_ROOM = 0;
+    private static final byte FREE_ROOM = 1;
+
+    private ClusterProtocol() {}
+
+    /**
+     * Writes a member address.
+     *
+     * @param out the stream to write to
+     * @param member the member to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeMember(final DataOutputStream out, final ClusterMember member) throws IOException {
+        out.writeUTF(member.getHost());
+        out.writeInt(member.getPort());
+    }
+
+    /**
+     * Reads a member address.
+     *
+     * @param in the stream to read from
+     * @return the member
+     * @throws IOException if the stream cannot be read
+     */
+    static ClusterMember readMember(final DataInputStream in) throws IOException {
+        return new ClusterMember(in.readUTF(), in.readInt());
+    }
+
+    /**
+     * Writes a list of member addresses.
+     *
+     * @param out the stream to write to
+     * @param members the members to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeMembers(final DataOutputStream out, final Collection<ClusterMember> members) throws IOException {
+        out.writeInt(members.size());
+        for (ClusterMember member : members) {
+            writeMember(out, member);
+        }
+    }
+
+    /**
+     * Reads a list of member addresses.
+     *
+     * @param in the stream to read from
+     * @return the members
+     * @throws IOException if the stream cannot be read
+     */
+    static List<ClusterMember> readMembers(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<ClusterMember> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(readMember(in));
+        }
+        return members;
+    }
+
+    /**
+     * Writes a customer.
+     *
+     * @param out the stream to write to
+     * @param customer the customer to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeCustomer(final DataOutputStream out, final Customer customer) throws IOException {
+        out.writeUTF(customer.getEmail());
+        out.writeUTF(customer.getFirstName());
+        out.writeUTF(customer.getLastName());
+    }
+
+    /**
+     * Reads a customer, without validating the email again.
+     *
+     * @param in the stream to read from
+     * @return the customer
+     * @throws IOException if the stream cannot be read
+     */
+    static Customer readCustomer(final DataInputStream in) throws IOException {
+        final String email = in.readUTF();
+        final String firstName = in.readUTF();
+        return Customer.restore(firstName, in.readUTF(), email);
+    }
+
+    /**
+     * Writes the room and dates of a reservation, leaving out the customer.
+     *
+     * @param out the stream to write to
+     * @param reservation the reservation to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeStay(final DataOutputStream out, final Reservation reservation) throws IOException {
+        writeRoom(out, reservation.getRoom());
+        writeDate(out, reservation.getCheckInDate());
+        writeDate(out, reservation.getCheckOutDate());
+    }
+
+    /**
+     * Reads the room and dates of a reservation.
+     *
+     * @param in the stream to read from
+     * @param customer the customer who made the reservation
+     * @return the reservation
+     * @throws IOException if the stream cannot be read
+     */
+    static Reservation readStay(final DataInputStream in, final Customer customer) throws IOException {
+        final IRoom room = readRoom(in);
+        final Date checkInDate = readDate(in);
+        return new Reservation(customer, room, checkInDate, readDate(in));
+    }
+
+    /**
+     * Writes a list of reservations without their customer.
+     *
+     * @param out the stream to write to
+     * @param reservations the reservations to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeStays(final DataOutputStream out, final Collection<Reservation> reservations) throws IOException {
+        out.writeInt(reservations.size());
+        for (Reservation reservation : reservations) {
+            writeStay(out, reservation);
+        }
+    }
+
+    /**
+     * Reads a list of reservations of one customer.
+     *
+     * @param in the stream to read from
+     * @param customer the customer who made the reservations
+     * @return the reservations
+     * @throws IOException if the stream cannot be read
+     */
+    static List<Reservation> readStays(final DataInputStream in, final Customer customer) throws IOException {
+        final int count = in.readInt();
+        final List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reservations.add(readStay(in, customer));
+        }
+        return reservations;
+    }
+
+    /**
+     * Writes a room.
+     *
+     * @param out the stream to write to
+     * @param room the room to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeRoom(final DataOutputStream out, final IRoom room) throws IOException {
+        out.writeUTF(room.getRoomNumber());
+        out.writeByte(room instanceof FreeRoom ? FREE_ROOM : PAID_ROOM);
+        out.writeDouble(room.getRoomPrice());
+        out.writeUTF(room.getRoomType().label);
+    }
+
+    /**
+     * Reads a room.
+     *
+     * @param in the stream to read from
+     * @return the room
+     * @throws IOException if the stream cannot be read
+     */
+    static IRoom readRoom(final DataInputStream in) throws IOException {
+        final String roomNumber = in.readUTF();
+        final byte kind = in.readByte();
+        final double price = in.readDouble();
+        final RoomType roomType = RoomType.valueOfLabel(in.readUTF());
+        return kind == FREE_ROOM ? new FreeRoom(roomNumber, roomType) : new Room(roomNumber, price, roomType);
+    }
+
+    /**
+     * Writes a room that may be missing.
+     *
+     * @param out the stream to write to
+     * @param room the room to write, or null
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeOptionalRoom(final DataOutputStream out, final IRoom room) throws IOException {
+        out.writeBoolean(room != null);
+        if (room != null) {
+            writeRoom(out, room);
+        }
+    }
+
+    /**
+     * Reads a room that may be missing.
+     *
+     * @param in the stream to read from
+     * @return the room, or null
+     * @throws IOException if the stream cannot be read
+     */
+    static IRoom readOptionalRoom(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? readRoom(in) : null;
+    }
+
+    /**
+     * Writes a list of rooms.
+     *
+     * @param out the stream to write to
+     * @param rooms the rooms to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeRooms(final DataOutputStream out, final Collection<IRoom> rooms) throws IOException {
+        out.writeInt(rooms.size());
+        for (IRoom room : rooms) {
+            writeRoom(out, room);
+        }
+    }
+
+    /**
+     * Reads a list of rooms.
+     *
+     * @param in the stream to read from
+     * @return the rooms
+     * @throws IOException if the stream cannot be read
+     */
+    static List<IRoom> readRooms(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<IRoom> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rooms.add(readRoom(in));
+        }
+        return rooms;
+    }
+
+    /**
+     * Writes a date.
+     *
+     * @param out the stream to write to
+     * @param date the date to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeDate(final DataOutputStream out, final Date date) throws IOException {
+        out.writeLong(date.getTime());
+    }
+
+    /**
+     * Reads a date.
+     *
+     * @param in the stream to read from
+     * @return the date
+     * @throws IOException if the stream cannot be read
+     */
+    static Date readDate(final DataInputStream in) throws IOException {
+        return new Date(in.readLong());
+    }
+
+    /**
+     * Writes a room filter as a bit set of room types and a price range.
+     *
+     * @param out the stream to write to
+     * @param filter the filter to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeFilter(final DataOutputStream out, final RoomFilter filter) throws IOException {
+        int roomTypes = 0;
+        for (RoomType roomType : filter.getRoomTypes()) {
+            roomTypes |= 1 << roomType.ordinal();
+        }
+        out.writeInt(roomTypes);
+        out.writeDouble(filter.getMinPrice());
+        out.writeDouble(filter.getMaxPrice());
+    }
+
+    /**
+     * Reads a room filter.
+     *
+     * @param in the stream to read from
+     * @return the filter
+     * @throws IOException if the stream cannot be read
+     */
+    static RoomFilter readFilter(final DataInputStream in) throws IOException {
+        final int roomTypes = in.readInt();
+        final List<RoomType> accepted = new ArrayList<>();
+        for (RoomType roomType : RoomType.values()) {
+            if ((roomTypes & 1 << roomType.ordinal()) != 0) {
+                accepted.add(roomType);
+            }
+        }
+        return RoomFilter.ANY.withRoomTypes(accepted.toArray(new RoomType[0]))
+                .withPriceBetween(in.readDouble(), in.readDouble());
+    }
+}
@@ -0,0 +1,144 @@
+package cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * ConsistentHashRing
+ * <p>
+ * Assigns every room number to one node of the cluster by consistent hashing.
+ * Each member is placed on a ring of 64-bit hashes at {@value #VIRTUAL_NODES} points, and a room belongs to the
+ * member at the first point at or after the hash of its room number, wrapping around. Adding a member therefore
+ * only moves the rooms that fall just before its points, about one in every {@code n + 1} rooms,
+ * and spreads them evenly over the existing members.
+ * <p>
+ * Rings are immutable; {@link #withMember(ClusterMember)} returns a new ring.
+ * Two rings with the same members assign every room the same way, whatever the order the members were added in.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class ConsistentHashRing {
+
+    /**
+     * Number of points each member is placed at on the ring.
+     */
+    public static final int VIRTUAL_NODES = 64;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<ClusterMember> members;
+    private final NavigableMap<Long, ClusterMember> points = new TreeMap<>();
+
+    /**
+     * Constructs a ring of the given members.
+     *
+     * @param members the members of the cluster
+     * @throws IllegalArgumentException if there are no members
+     */
+    public ConsistentHashRing(final Collection<ClusterMember> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one member.");
+        }
+
+        final List<ClusterMember> distinct = new ArrayList<>(members.size());
+        for (ClusterMember member : members) {
+            if (!distinct.contains(member)) {
+                distinct.add(member);
+            }
+        }
+        distinct.sort((member, other) -> member.toString().compareTo(other.toString()));
+        this.members = Collections.unmodifiableList(distinct);
+
+        for (ClusterMember member : distinct) {
+            for (int point = 0; point < VIRTUAL_NODES; point++) {
+                // On a collision the member that sorts first keeps the point, so every node agrees
+                points.putIfAbsent(hash(member + "#" + point), member);
+            }
+        }
+    }
+
+    /**
+     * Returns a ring with one more member, or this ring if the member already belongs to it.
+     *
+     * @param member the member to add
+     * @return the new ring
+     */
+    public ConsistentHashRing withMember(final ClusterMember member) {
+        if (members.contains(member)) {
+            return this;
+        }
+        final List<ClusterMember> grown = new ArrayList<>(members);
+        grown.add(member);
+        return new ConsistentHashRing(grown);
+    }
+
+    /**
+     * Returns the member owning a room.
+     *
+     * @param roomNumber the room number
+     * @return the owning member
+     */
+    public ClusterMember ownerOf(final String roomNumber) {
+        final Map.Entry<Long, ClusterMember> point = points.ceilingEntry(hash(roomNumber));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * Gets the members of the ring.
+     *
+     * @return an unmodifiable list of the members, ordered by address
+     */
+    public List<ClusterMember> getMembers() {
+        return members;
+    }
+
+    /**
+     * Checks if a node belongs to the ring.
+     *
+     * @param member the node to look up
+     * @return true if the node is a member, false otherwise
+     */
+    public boolean contains(final ClusterMember member) {
+        return members.contains(member);
+    }
+
+    /**
+     * Hashes a key onto the ring with 64-bit FNV-1a, followed by a finalizing mix
+     * so that keys differing only in their last characters still land far apart.
+     *
+     * @param key the key to hash
+     * @return the position of the key on the ring
+     */
+    private static long hash(final String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Returns a string representation of the ring.
+     *
+     * @return a string containing the members
+     */
+    @Override
+    public String toString() {
+        return "ConsistentHashRing{" +
+                "Members: " + members +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+package metrics;
+
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HotelMetrics
+ * <p>
+ * Keeps a call counter, a failure counter and a {@link LatencyHistogram} for every {@link HotelOperation},
+ * and reports them together with room, customer and reservation counts through a platform MBean.
+ * Singleton pattern is used to ensure only one instance of this class exists.
+ * <p>
+ * A measured call brackets its work with {@link #start()} and {@link #record(HotelOperation, long)}:
+ * <pre>
+ * final long start = metrics.start();
+ * try {
+ *     return work();
+ * } catch (RuntimeException ex) {
+ *     metrics.recordFailure(HotelOperation.FIND_A_ROOM);
+ *     throw ex;
+ * } finally {
+ *     metrics.record(HotelOperation.FIND_A_ROOM, start);
+ * }
+ * </pre>
+ * Neither method allocates. Measuring is on unless {@code hotel.metrics.enabled} is set to false,
+ * and can be switched at runtime through the MBean; while it is off, both methods return right away.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class HotelMetrics implements HotelMetricsMXBean {
+
+    /**
+     * Name under which the metrics are registered with the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "hotel:type=HotelMetrics";
+
+    // Singleton instance
+    private static final HotelMetrics SINGLETON = new HotelMetrics();
+
+    private final Map<HotelOperation, LatencyHistogram> latencies = new EnumMap<>(HotelOperation.class);
+    private final Map<HotelOperation, LongAdder> failures = new EnumMap<>(HotelOperation.class);
+    private volatile boolean enabled = Boolean.parseBoolean(System.getProperty("hotel.metrics.enabled", "true"));
+
+    // Private constructor to prevent instantiation
+    private HotelMetrics() {
+        for (HotelOperation operation : HotelOperation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            failures.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Retrieves the singleton instance of HotelMetrics.
+     *
+     * @return the singleton instance
+     */
+    public static HotelMetrics getSingleton() {
+        return SINGLETON;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, unless they already are.
+     *
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ex) {
+            // Already registered
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, ex);
+        }
+    }
+
+    /**
+     * Marks the start of a measured call.
+     *
+     * @return the start time to pass to {@link #record(HotelOperation, long)}, or 0 if measuring is off
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Counts a call and records its latency.
+     *
+     * @param operation the operation that was called
+     * @param start the value returned by {@link #start()} when the call began
+     */
+    public void record(final HotelOperation operation, final long start) {
+        if (start != 0) {
+            latencies.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts a call that threw an exception. The call is still recorded by {@link #record(HotelOperation, long)}.
+     *
+     * @param operation the operation that failed
+     */
+    public void recordFailure(final HotelOperation operation) {
+        if (enabled) {
+            failures.get(operation).increment();
+        }
+    }
+
+    /**
+     * Gets the statistics of one operation.
+     *
+     * @param operation the operation
+     * @return the statistics
+     */
+    public OperationStatistics getOperationStatistics(final HotelOperation operation) {
+        return OperationStatistics.of(operation, latencies.get(operation), failures.get(operation).sum());
+    }
+
+    @Override
+    public List<OperationStatistics> getOperationStatistics() {
+        final List<OperationStatistics> statistics = new ArrayList<>(latencies.size());
+        for (HotelOperation operation : HotelOperation.values()) {
+            statistics.add(getOperationStatistics(operation));
+        }
+        return statistics;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getRoomCount() {
+        return ReservationService.getSingleton().getRoomCount();
+    }
+
+    @Override
+    public int getCustomerCount() {
+        return CustomerService.getSingleton().getCustomerCount();
+    }
+
+    @Override
+    public long getReservationCount() {
+        return ReservationService.getSingleton().getReservationCount();
+    }
+}
@@ -0,0 +1,56 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * HotelMetricsMXBean
+ * <p>
+ * Management interface of {@link HotelMetrics}, registered with the platform MBean server
+ * under {@value HotelMetrics#OBJECT_NAME}.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public interface HotelMetricsMXBean {
+
+    /**
+     * Indicates whether calls are being measured.
+     *
+     * @return true if measuring, false otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns measuring on or off. Counters and histograms keep their values while measuring is off.
+     *
+     * @param enabled true to measure calls, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets the number of rooms in the hotel.
+     *
+     * @return the room count
+     */
+    int getRoomCount();
+
+    /**
+     * Gets the number of customers.
+     *
+     * @return the customer count
+     */
+    int getCustomerCount();
+
+    /**
+     * Gets the number of reservations, read from a counter kept by the reservation service.
+     *
+     * @return the reservation count
+     */
+    long getReservationCount();
+
+    /**
+     * Gets the statistics of every measured operation.
+     *
+     * @return the statistics, in the order of {@link HotelOperation}
+     */
+    List<OperationStatistics> getOperationStatistics();
+}
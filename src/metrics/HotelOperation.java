@@ -0,0 +1,28 @@
+package metrics;
+
+/**
+ * HotelOperation
+ * <p>
+ * Enumerates the operations of the hotel and admin resources whose calls and latencies are measured.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum HotelOperation {
+    GET_CUSTOMER,
+    CREATE_A_CUSTOMER,
+    GET_ROOM,
+    BOOK_A_ROOM,
+    BOOK_ROOMS,
+    CANCEL_RESERVATION,
+    MODIFY_RESERVATION,
+    GET_CUSTOMERS_RESERVATIONS,
+    FIND_A_ROOM,
+    FIND_BEST_ROOMS,
+    FIND_A_ROOM_PAGE,
+    FIND_ALTERNATIVE_STAYS,
+    ADD_ROOM,
+    IMPORT_ROOMS,
+    GET_ALL_ROOMS,
+    GET_ALL_CUSTOMERS,
+    GET_OCCUPANCY_REPORT
+}
@@ -0,0 +1,160 @@
+package metrics;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * OperationStatistics
+ * <p>
+ * Point-in-time summary of the calls to one {@link HotelOperation}: how many calls were made and failed,
+ * and the mean, median, tail and maximum latency in microseconds.
+ * It is exposed through JMX as composite data.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class OperationStatistics {
+
+    private final String operation;
+    private final long calls;
+    private final long failures;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    /**
+     * Constructs operation statistics with the specified values.
+     *
+     * @param operation the name of the operation
+     * @param calls the number of calls
+     * @param failures the number of calls that threw an exception
+     * @param meanMicros the mean latency
+     * @param p50Micros the median latency
+     * @param p99Micros the 99th percentile latency
+     * @param p999Micros the 99.9th percentile latency
+     * @param maxMicros the largest latency
+     */
+    public OperationStatistics(String operation, long calls, long failures, double meanMicros,
+                               double p50Micros, double p99Micros, double p999Micros, double maxMicros) {
+        this.operation = operation;
+        this.calls = calls;
+        this.failures = failures;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Summarizes the latencies of an operation.
+     *
+     * @param operation the operation
+     * @param latencies the latency histogram of the operation
+     * @param failures the number of calls that threw an exception
+     * @return the statistics
+     */
+    static OperationStatistics of(final HotelOperation operation, final LatencyHistogram latencies, final long failures) {
+        return new OperationStatistics(operation.name(), latencies.getCount(), failures,
+                latencies.getMeanNanos() / 1_000.0,
+                latencies.getQuantileNanos(0.5) / 1_000.0,
+                latencies.getQuantileNanos(0.99) / 1_000.0,
+                latencies.getQuantileNanos(0.999) / 1_000.0,
+                latencies.getMaxNanos() / 1_000.0);
+    }
+
+    /**
+     * Recreates statistics from their JMX representation.
+     *
+     * @param data the composite data
+     * @return the statistics
+     */
+    public static OperationStatistics from(CompositeData data) {
+        return new OperationStatistics((String) data.get("operation"), (Long) data.get("calls"),
+                (Long) data.get("failures"), (Double) data.get("meanMicros"), (Double) data.get("p50Micros"),
+                (Double) data.get("p99Micros"), (Double) data.get("p999Micros"), (Double) data.get("maxMicros"));
+    }
+
+    /**
+     * Gets the name of the operation.
+     *
+     * @return the operation name
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the number of calls.
+     *
+     * @return the call count
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Gets the number of calls that threw an exception.
+     *
+     * @return the failure count
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return the mean in microseconds
+     */
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    /**
+     * Gets the median latency.
+     *
+     * @return the 50th percentile in microseconds
+     */
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    /**
+     * Gets the 99th percentile latency.
+     *
+     * @return the 99th percentile in microseconds
+     */
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * Gets the 99.9th percentile latency.
+     *
+     * @return the 99.9th percentile in microseconds
+     */
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    /**
+     * Gets the largest latency.
+     *
+     * @return the maximum in microseconds
+     */
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return a string containing the counts and latencies
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: calls=%d, failures=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p999=%.1fus, max=%.1fus",
+                operation, calls, failures, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
@@ -29,13 +29,40 @@ public class Customer {
      * @throws IllegalArgumentException if the email format is incorrect
      */
     public Customer(String firstName, String lastName, String email) {
-        validateEmail(email);
+        this(firstName, lastName, email, true);
+    }
+
+    /**
+     * Constructs a customer object, optionally skipping email validation.
+     *
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     * @param email the email address of the customer
+     * @param validate whether the email format should be validated
+     */
+    private Customer(String firstName, String lastName, String email, boolean validate) {
+        if (validate) {
+            validateEmail(email);
+        }
 
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
     }
 
+    /**
+     * Recreates a customer from storage without validating the email again.
+     * Only customers that were validated when they were first created may be restored this way.
+     *
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     * @param email the email address of the customer
+     * @return the restored customer
+     */
+    public static Customer restore(String firstName, String lastName, String email) {
+        return new Customer(firstName, lastName, email, false);
+    }
+
     /**
      * Validates the email format using a regular expression pattern.
      *
@@ -59,6 +86,24 @@ public class Customer {
         return EMAIL_PATTERN.matcher(email).matches();
     }
 
+    /**
+     * Gets the first name of the customer.
+     *
+     * @return the first name
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Gets the last name of the customer.
+     *
+     * @return the last name
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
     /**
      * Gets the email address of the customer.
      *
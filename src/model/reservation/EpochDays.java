@@ -0,0 +1,49 @@
+package model.reservation;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * EpochDays
+ * <p>
+ * Converts dates entered by guests into day numbers counted from the epoch in the system time zone.
+ * Reservations have day granularity, so a stay from check-in to check-out covers the nights
+ * {@code [toEpochDay(checkIn), toEpochDay(checkOut))}.
+ * This is the only place where dates and epoch days are converted into each other.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class EpochDays {
+
+    private EpochDays() {}
+
+    /**
+     * Returns the epoch day of the given date in the system time zone.
+     *
+     * @param date the date to convert
+     * @return the number of days since 1970-01-01
+     */
+    public static int toEpochDay(final Date date) {
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Returns the date at the start of the given epoch day in the system time zone.
+     *
+     * @param epochDay the number of days since 1970-01-01
+     * @return the date at midnight of that day
+     */
+    public static Date toDate(final int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Returns the epoch day of the current date in the system time zone.
+     *
+     * @return the number of days since 1970-01-01
+     */
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+}
@@ -3,7 +3,8 @@ package model.reservation;
 import model.customer.Customer;
 import model.room.IRoom;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 /**
@@ -11,16 +12,36 @@ import java.util.Date;
  * <p>
  * Represents a reservation made by a customer for a room.
  * Stores information about the customer, room, check-in date, and check-out date.
+ * Reservations have day granularity, so both dates are kept as epoch days: the stay covers the nights
+ * {@code [checkInDay, checkOutDay)}, and the {@link Date} constructor and getters adapt to and from
+ * the system time zone.
  * Provides methods to access reservation details.
  *
  * @author ahmad deni atmaja saputra
  */
 public class Reservation {
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
     private final Customer customer;
     private final IRoom room;
-    private final Date checkInDate;
-    private final Date checkOutDate;
+    private final int checkInDay;
+    private final int checkOutDay;
+
+    /**
+     * Constructs a reservation with the specified customer, room, check-in day, and check-out day.
+     *
+     * @param customer the customer making the reservation
+     * @param room the room reserved by the customer
+     * @param checkInDay the check-in date of the reservation, as the number of days since 1970-01-01
+     * @param checkOutDay the check-out date of the reservation, as the number of days since 1970-01-01
+     */
+    public Reservation(Customer customer, IRoom room, int checkInDay, int checkOutDay) {
+        this.customer = customer;
+        this.room = room;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
+    }
 
     /**
      * Constructs a reservation with the specified customer, room, check-in date, and check-out date.
@@ -30,11 +51,30 @@ public class Reservation {
      * @param checkInDate the check-in date of the reservation
      * @param checkOutDate the check-out date of the reservation
      */
+    public Reservation(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate) {
+        this(customer, room, (int) checkInDate.toEpochDay(), (int) checkOutDate.toEpochDay());
+    }
+
+    /**
+     * Constructs a reservation with the specified customer, room, check-in date, and check-out date.
+     * Only the day of each date in the system time zone is kept.
+     *
+     * @param customer the customer making the reservation
+     * @param room the room reserved by the customer
+     * @param checkInDate the check-in date of the reservation
+     * @param checkOutDate the check-out date of the reservation
+     */
     public Reservation(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
-        this.customer = customer;
-        this.room = room;
-        this.checkInDate = checkInDate;
-        this.checkOutDate = checkOutDate;
+        this(customer, room, EpochDays.toEpochDay(checkInDate), EpochDays.toEpochDay(checkOutDate));
+    }
+
+    /**
+     * Gets the customer who made the reservation.
+     *
+     * @return the customer
+     */
+    public Customer getCustomer() {
+        return customer;
     }
 
     /**
@@ -46,13 +86,31 @@ public class Reservation {
         return room;
     }
 
+    /**
+     * Gets the check-in date of the reservation as an epoch day.
+     *
+     * @return the number of days since 1970-01-01
+     */
+    public int getCheckInDay() {
+        return checkInDay;
+    }
+
+    /**
+     * Gets the check-out date of the reservation as an epoch day.
+     *
+     * @return the number of days since 1970-01-01
+     */
+    public int getCheckOutDay() {
+        return checkOutDay;
+    }
+
     /**
      * Gets the check-in date of the reservation.
      *
      * @return the check-in date
      */
-    public Date getCheckInDate() {
-        return checkInDate;
+    public LocalDate getCheckIn() {
+        return LocalDate.ofEpochDay(checkInDay);
     }
 
     /**
@@ -60,8 +118,51 @@ public class Reservation {
      *
      * @return the check-out date
      */
+    public LocalDate getCheckOut() {
+        return LocalDate.ofEpochDay(checkOutDay);
+    }
+
+    /**
+     * Gets the check-in date of the reservation, at midnight in the system time zone.
+     * A new date is returned on every call, so callers may modify it freely.
+     *
+     * @return the check-in date
+     */
+    public Date getCheckInDate() {
+        return EpochDays.toDate(checkInDay);
+    }
+
+    /**
+     * Gets the check-out date of the reservation, at midnight in the system time zone.
+     * A new date is returned on every call, so callers may modify it freely.
+     *
+     * @return the check-out date
+     */
     public Date getCheckOutDate() {
-        return checkOutDate;
+        return EpochDays.toDate(checkOutDay);
+    }
+
+    /**
+     * Checks if this reservation overlaps with the specified range of epoch days.
+     *
+     * @param checkInDay the check-in day
+     * @param checkOutDay the check-out day
+     * @return true if the reservation overlaps with the range, false otherwise
+     */
+    public boolean overlaps(final int checkInDay, final int checkOutDay) {
+        return checkInDay < this.checkOutDay
+                && checkOutDay > this.checkInDay;
+    }
+
+    /**
+     * Checks if this reservation overlaps with the specified date range.
+     *
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @return true if the reservation overlaps with the date range, false otherwise
+     */
+    public boolean overlaps(final Date checkInDate, final Date checkOutDate) {
+        return overlaps(EpochDays.toEpochDay(checkInDate), EpochDays.toEpochDay(checkOutDate));
     }
 
     /**
@@ -71,12 +172,11 @@ public class Reservation {
      */
     @Override
     public String toString() {
-        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
         return "Reservation{" +
                 "Customer: " + customer +
                 ", Room: " + room +
-                ", Check-In Date: " + sdf.format(checkInDate) +
-                ", Check-Out Date: " + sdf.format(checkOutDate) +
+                ", Check-In Date: " + DATE_FORMAT.format(getCheckIn()) +
+                ", Check-Out Date: " + DATE_FORMAT.format(getCheckOut()) +
                 '}';
     }
 }
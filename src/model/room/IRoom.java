@@ -1,5 +1,7 @@
 package model.room;
 
+import model.room.enums.RoomType;
+
 /**
  * IRoom
  *
@@ -8,4 +10,10 @@ package model.room;
 public interface IRoom {
     public String getRoomNumber();
 
-}
\ No newline at end of file
+    public Double getRoomPrice();
+
+    public RoomType getRoomType();
+
+    public boolean isFree();
+
+}
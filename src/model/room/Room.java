@@ -41,6 +41,33 @@ public class Room implements IRoom {
         return this.roomNumber;
     }
 
+    /**
+     * Returns the price of the room per night.
+     *
+     * @return the room price
+     */
+    public Double getRoomPrice() {
+        return this.price;
+    }
+
+    /**
+     * Returns the room type.
+     *
+     * @return the room type enumeration
+     */
+    public RoomType getRoomType() {
+        return this.enumeration;
+    }
+
+    /**
+     * Indicates whether the room is offered at no charge.
+     *
+     * @return true if the room price is zero, false otherwise
+     */
+    public boolean isFree() {
+        return this.price != null && this.price == 0.0;
+    }
+
     /**
      * Returns a string representation of the room.
      *
@@ -72,5 +99,14 @@ public class Room implements IRoom {
         return Objects.equals(this.roomNumber, room.roomNumber);
     }
 
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, based on the room number.
+     *
+     * @return the hash code of the room
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.roomNumber);
+    }
 
 }
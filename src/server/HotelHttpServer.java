@@ -0,0 +1,947 @@
+package server;
+
+import api.AdminResource;
+import api.HotelResource;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.OperationStatistics;
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.reservation.AlternativeStay;
+import service.reservation.AvailabilityCacheStatistics;
+import service.reservation.AvailabilityPage;
+import service.reservation.OccupancyReport;
+import service.reservation.RoomFilter;
+import service.reservation.RoomNotAvailableException;
+import service.reservation.RoomOrder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HotelHttpServer
+ * <p>
+ * Embedded HTTP front end exposing the operations of {@link HotelResource} and {@link AdminResource} as JSON.
+ * Every request runs on its own virtual thread, so a request blocked on a room lock or on a durable write
+ * parks cheaply instead of holding a platform thread; the resources and the services behind them are
+ * already safe for concurrent use. Dates are ISO dates ({@code 2026-10-17}), interpreted in the system time zone.
+ * <p>
+ * Endpoints:
+ * <pre>
+ * POST /customers                         {"email", "firstName", "lastName"}
+ * GET  /customers/{email}
+ * GET  /customers/{email}/reservations
+ * GET  /rooms/{roomNumber}
+ * GET  /availability?checkIn&amp;checkOut[&amp;types][&amp;minPrice][&amp;maxPrice]
+ * GET  /availability/best?checkIn&amp;checkOut&amp;limit[&amp;order][&amp;types][&amp;minPrice][&amp;maxPrice]
+ * GET  /availability/page?checkIn&amp;checkOut&amp;limit[&amp;pageToken]
+ * GET  /availability/alternatives?checkIn&amp;checkOut[&amp;horizonDays][&amp;limit]
+ * POST /reservations                      {"email", "roomNumber" or "roomNumbers", "checkIn", "checkOut"}
+ * PUT  /reservations                      {"email", "roomNumber", "checkIn", "newCheckIn", "newCheckOut"}
+ * DELETE /reservations?email&amp;roomNumber&amp;checkIn
+ * GET  /admin/rooms
+ * POST /admin/rooms                       [{"roomNumber", "price", "roomType"}, ...]
+ * GET  /admin/customers
+ * GET  /admin/reservations
+ * GET  /admin/cache
+ * GET  /admin/metrics
+ * GET  /admin/occupancy?from&amp;to
+ * </pre>
+ * Malformed requests, including JSON nested deeper than the parser allows, are answered with 400,
+ * unknown customers and rooms with 404, rooms that are already booked or customers that already exist with 409,
+ * and request bodies larger than {@value #MAX_BODY_BYTES} bytes with 413.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class HotelHttpServer implements AutoCloseable {
+
+    /**
+     * Default number of pending connections the listening socket queues before refusing new ones.
+     */
+    public static final int DEFAULT_BACKLOG = 8192;
+
+    /**
+     * Largest request body, in bytes, that is read.
+     */
+    public static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+
+    private static final int DEFAULT_HORIZON_DAYS = 180;
+    private static final int DEFAULT_ALTERNATIVES = 3;
+
+    private final HotelResource hotelResource = HotelResource.getSingleton();
+    private final AdminResource adminResource = AdminResource.getSingleton();
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server bound to the given port. The server does not accept requests until it is started.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param backlog the number of pending connections to queue
+     * @throws IOException if the port cannot be bound
+     */
+    public HotelHttpServer(final int port, final int backlog) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/customers", exchange -> handle(exchange, this::customers));
+        httpServer.createContext("/rooms", exchange -> handle(exchange, this::rooms));
+        httpServer.createContext("/availability", exchange -> handle(exchange, this::availability));
+        httpServer.createContext("/reservations", exchange -> handle(exchange, this::reservations));
+        httpServer.createContext("/admin", exchange -> handle(exchange, this::admin));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, lets the exchanges in progress finish for up to a second, and shuts the executor down.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(1);
+        executor.close();
+    }
+
+    /**
+     * Handles the customer endpoints.
+     *
+     * @param request the request
+     * @return the response
+     */
+    private Response customers(final Request request) {
+        final List<String> path = request.path();
+        if (path.isEmpty()) {
+            request.requireMethod("POST");
+            final Map<String, Object> body = request.bodyObject();
+            final String email = requiredString(body, "email");
+            if (!hotelResource.createACustomerIfAbsent(email, requiredString(body, "firstName"),
+                    requiredString(body, "lastName"))) {
+                throw new HttpError(409, "Customer already exists: " + email);
+            }
+            return new Response(201, customerJson(hotelResource.getCustomer(email)));
+        }
+
+        request.requireMethod("GET");
+        final Customer customer = hotelResource.getCustomer(path.get(0));
+        if (customer == null) {
+            throw new HttpError(404, "Customer not found: " + path.get(0));
+        }
+        if (path.size() == 1) {
+            return Response.ok(customerJson(customer));
+        }
+        if (path.size() == 2 && path.get(1).equals("reservations")) {
+            final Collection<Reservation> reservations = hotelResource.getCustomersReservations(customer.getEmail());
+            return Response.ok(reservations == null ? List.of() : reservationsJson(reservations));
+        }
+        throw new HttpError(404, "Unknown resource");
+    }
+
+    /**
+     * Handles the room lookup endpoint.
+     *
+     * @param request the request
+     * @return the response
+     */
+    private Response rooms(final Request request) {
+        request.requireMethod("GET");
+        final List<String> path = request.path();
+        if (path.size() != 1) {
+            throw new HttpError(404, "Unknown resource");
+        }
+        return Response.ok(roomJson(requireRoom(path.get(0))));
+    }
+
+    /**
+     * Handles the availability search endpoints.
+     *
+     * @param request the request
+     * @return the response
+     */
+    private Response availability(final Request request) {
+        request.requireMethod("GET");
+        final List<String> path = request.path();
+        final Date checkIn = request.requiredDate("checkIn");
+        final Date checkOut = request.requiredDate("checkOut");
+        if (!checkOut.after(checkIn)) {
+            throw new HttpError(400, "checkOut must be after checkIn");
+        }
+
+        if (path.isEmpty()) {
+            return Response.ok(roomsJson(hotelResource.findARoom(checkIn, checkOut, request.filter())));
+        }
+        if (path.size() == 1) {
+            switch (path.get(0)) {
+                case "best" -> {
+                    final RoomOrder order = request.enumParameter("order", RoomOrder.class, RoomOrder.PRICE_ASCENDING);
+                    return Response.ok(roomsJson(hotelResource.findBestRooms(checkIn, checkOut,
+                            request.requiredInt("limit"), order, request.filter())));
+                }
+                case "page" -> {
+                    final AvailabilityPage page = hotelResource.findARoomPage(checkIn, checkOut,
+                            request.requiredInt("limit"), request.parameter("pageToken"));
+                    final Map<String, Object> json = new LinkedHashMap<>();
+                    json.put("rooms", roomsJson(page.getRooms()));
+                    json.put("nextPageToken", page.getNextPageToken());
+                    return Response.ok(json);
+                }
+                case "alternatives" -> {
+                    final List<Object> json = new ArrayList<>();
+                    for (AlternativeStay stay : hotelResource.findAlternativeStays(checkIn, checkOut,
+                            request.intParameter("horizonDays", DEFAULT_HORIZON_DAYS),
+                            request.intParameter("limit", DEFAULT_ALTERNATIVES))) {
+                        final Map<String, Object> stayJson = new LinkedHashMap<>();
+                        stayJson.put("checkIn", dateJson(stay.getCheckInDate()));
+                        stayJson.put("checkOut", dateJson(stay.getCheckOutDate()));
+                        stayJson.put("daysFromRequest", stay.getDaysFromRequest());
+                        stayJson.put("rooms", roomsJson(stay.getAvailableRooms()));
+                        json.add(stayJson);
+                    }
+                    return Response.ok(json);
+                }
+                default -> {
+                    // Fall through to the unknown resource error below
+                }
+            }
+        }
+        throw new HttpError(404, "Unknown resource");
+    }
+
+    /**
+     * Handles the booking endpoint. A request naming several rooms books them all or none.
+     *
+     * @param request the request
+     * @return the response
+     */
+    private Response reservations(final Request request) {
+        if (!request.path().isEmpty()) {
+            throw new HttpError(404, "Unknown resource");
+        }
+        if (request.method().equals("DELETE")) {
+            return cancelReservation(request);
+        }
+        if (request.method().equals("PUT")) {
+            return modifyReservation(request);
+        }
+        request.requireMethod("POST");
+
+        final Map<String, Object> body = request.bodyObject();
+        final String email = requiredString(body, "email");
+        final Date checkIn = parseDate("checkIn", requiredString(body, "checkIn"));
+        final Date checkOut = parseDate("checkOut", requiredString(body, "checkOut"));
+        if (!checkOut.after(checkIn)) {
+            throw new HttpError(400, "checkOut must be after checkIn");
+        }
+        if (hotelResource.getCustomer(email) == null) {
+            throw new HttpError(404, "Customer not found: " + email);
+        }
+
+        if (body.get("roomNumbers") instanceof List<?> roomNumbers) {
+            final List<String> numbers = new ArrayList<>(roomNumbers.size());
+            for (Object roomNumber : roomNumbers) {
+                if (!(roomNumber instanceof String number)) {
+                    throw new HttpError(400, "roomNumbers must be a list of strings");
+                }
+                requireRoom(number);
+                numbers.add(number);
+            }
+            return new Response(201, reservationsJson(hotelResource.bookRooms(email, numbers, checkIn, checkOut)));
+        }
+
+        final IRoom room = requireRoom(requiredString(body, "roomNumber"));
+        return new Response(201, reservationJson(hotelResource.bookARoom(email, room, checkIn, checkOut)));
+    }
+
+    /**
+     * Cancels the reservation identified by the query parameters.
+     *
+     * @param request the request
+     * @return the cancelled reservation
+     */
+    private Response cancelReservation(final Request request) {
+        final String email = request.parameter("email");
+        final String roomNumber = request.parameter("roomNumber");
+        if (email == null || roomNumber == null) {
+            throw new HttpError(400, "Missing parameter: " + (email == null ? "email" : "roomNumber"));
+        }
+        final Date checkIn = request.requiredDate("checkIn");
+        if (hotelResource.getCustomer(email) == null) {
+            throw new HttpError(404, "Customer not found: " + email);
+        }
+        requireRoom(roomNumber);
+
+        final Reservation cancelled = hotelResource.cancelReservation(email, roomNumber, checkIn);
+        if (cancelled == null) {
+            throw new HttpError(404, "Reservation not found");
+        }
+        return Response.ok(reservationJson(cancelled));
+    }
+
+    /**
+     * Moves the reservation identified by the request body to new dates.
+     *
+     * @param request the request
+     * @return the reservation for the new dates
+     */
+    private Response modifyReservation(final Request request) {
+        final Map<String, Object> body = request.bodyObject();
+        final String email = requiredString(body, "email");
+        final String roomNumber = requiredString(body, "roomNumber");
+        final Date checkIn = parseDate("checkIn", requiredString(body, "checkIn"));
+        final Date newCheckIn = parseDate("newCheckIn", requiredString(body, "newCheckIn"));
+        final Date newCheckOut = parseDate("newCheckOut", requiredString(body, "newCheckOut"));
+        if (!newCheckOut.after(newCheckIn)) {
+            throw new HttpError(400, "newCheckOut must be after newCheckIn");
+        }
+        if (hotelResource.getCustomer(email) == null) {
+            throw new HttpError(404, "Customer not found: " + email);
+        }
+        requireRoom(roomNumber);
+
+        return Response.ok(reservationJson(
+                hotelResource.modifyReservation(email, roomNumber, checkIn, newCheckIn, newCheckOut)));
+    }
+
+    /**
+     * Handles the administrative endpoints.
+     *
+     * @param request the request
+     * @return the response
+     */
+    private Response admin(final Request request) {
+        final List<String> path = request.path();
+        if (path.size() != 1) {
+            throw new HttpError(404, "Unknown resource");
+        }
+
+        switch (path.get(0)) {
+            case "rooms" -> {
+                if (request.method().equals("POST")) {
+                    final List<IRoom> rooms = new ArrayList<>();
+                    for (Object element : request.bodyArray()) {
+                        if (!(element instanceof Map<?, ?> roomJson)) {
+                            throw new HttpError(400, "Rooms must be JSON objects");
+                        }
+                        rooms.add(parseRoom(roomJson));
+                    }
+                    adminResource.addRoom(rooms);
+                    return new Response(201, roomsJson(rooms));
+                }
+                request.requireMethod("GET");
+                return Response.ok(roomsJson(adminResource.getAllRooms()));
+            }
+            case "customers" -> {
+                request.requireMethod("GET");
+                final List<Object> json = new ArrayList<>();
+                for (Customer customer : adminResource.getAllCustomers()) {
+                    json.add(customerJson(customer));
+                }
+                return Response.ok(json);
+            }
+            case "reservations" -> {
+                request.requireMethod("GET");
+                final List<Object> json = new ArrayList<>();
+                adminResource.forEachReservation(reservation -> json.add(reservationJson(reservation)));
+                return Response.ok(json);
+            }
+            case "cache" -> {
+                request.requireMethod("GET");
+                final AvailabilityCacheStatistics statistics = adminResource.getAvailabilityCacheStatistics();
+                final Map<String, Object> json = new LinkedHashMap<>();
+                json.put("hits", statistics.getHits());
+                json.put("misses", statistics.getMisses());
+                json.put("evictions", statistics.getEvictions());
+                json.put("invalidations", statistics.getInvalidations());
+                json.put("size", statistics.getSize());
+                json.put("maxSize", statistics.getMaxSize());
+                json.put("hitRate", statistics.getHitRate());
+                return Response.ok(json);
+            }
+            case "metrics" -> {
+                request.requireMethod("GET");
+                final List<Object> json = new ArrayList<>();
+                for (OperationStatistics statistics : adminResource.getOperationStatistics()) {
+                    final Map<String, Object> operationJson = new LinkedHashMap<>();
+                    operationJson.put("operation", statistics.getOperation());
+                    operationJson.put("calls", statistics.getCalls());
+                    operationJson.put("failures", statistics.getFailures());
+                    operationJson.put("meanMicros", statistics.getMeanMicros());
+                    operationJson.put("p50Micros", statistics.getP50Micros());
+                    operationJson.put("p99Micros", statistics.getP99Micros());
+                    operationJson.put("p999Micros", statistics.getP999Micros());
+                    operationJson.put("maxMicros", statistics.getMaxMicros());
+                    json.add(operationJson);
+                }
+                return Response.ok(json);
+            }
+            case "occupancy" -> {
+                request.requireMethod("GET");
+                final OccupancyReport report = adminResource.getOccupancyReport(
+                        request.requiredDate("from"), request.requiredDate("to"));
+                final Map<String, Object> json = new LinkedHashMap<>();
+                json.put("roomCount", report.getRoomCount());
+                json.put("occupancyRate", report.getOccupancyRate());
+                json.put("roomNightsSold", report.getRoomNightsSold());
+                json.put("availableRoomNights", report.getAvailableRoomNights());
+                json.put("roomRevenue", report.getRoomRevenue());
+                json.put("averageDailyRate", report.getAverageDailyRate());
+                json.put("revenuePerAvailableRoom", report.getRevenuePerAvailableRoom());
+                final Map<String, Object> revenueJson = new LinkedHashMap<>();
+                report.getRevenueByRoomType().forEach((roomType, revenue) -> revenueJson.put(roomType.name(), revenue));
+                json.put("revenueByRoomType", revenueJson);
+                json.put("dailyOccupancyRates", report.getDailyOccupancyRates());
+                json.put("lengthOfStayHistogram", report.getLengthOfStayHistogram());
+                return Response.ok(json);
+            }
+            default -> throw new HttpError(404, "Unknown resource");
+        }
+    }
+
+    /**
+     * Runs a route and writes its response, translating failures into error responses.
+     * The exchange is closed whatever happens, also when an error escapes the route or the response cannot be written.
+     *
+     * @param exchange the exchange to answer
+     * @param route the route handling the request
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(final HttpExchange exchange, final Route route) throws IOException {
+        try (exchange) {
+            Response response;
+            try {
+                response = route.handle(new Request(exchange));
+            } catch (HttpError ex) {
+                response = Response.error(ex.status, ex.getMessage());
+            } catch (RoomNotAvailableException ex) {
+                response = Response.error(409, ex.getMessage());
+            } catch (IllegalArgumentException | DateTimeParseException ex) {
+                response = Response.error(400, ex.getMessage());
+            } catch (RuntimeException ex) {
+                response = Response.error(500, "Internal error");
+            }
+
+            final byte[] body = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Looks up a room, failing with 404 if it does not exist.
+     *
+     * @param roomNumber the number of the room
+     * @return the room
+     */
+    private IRoom requireRoom(final String roomNumber) {
+        final IRoom room = hotelResource.getRoom(roomNumber);
+        if (room == null) {
+            throw new HttpError(404, "Room not found: " + roomNumber);
+        }
+        return room;
+    }
+
+    /**
+     * Creates a room from its JSON representation. A room without a price, or priced at zero, is a free room.
+     *
+     * @param json the JSON object describing the room
+     * @return the room
+     */
+    private static IRoom parseRoom(final Map<?, ?> json) {
+        final String roomNumber = requiredString(json, "roomNumber");
+        final RoomType roomType = parseEnum("roomType", RoomType.class, requiredString(json, "roomType"));
+        final Object price = json.get("price");
+        if (price == null) {
+            return new FreeRoom(roomNumber, roomType);
+        }
+        if (!(price instanceof Double value) || value < 0) {
+            throw new HttpError(400, "price must be a non-negative number");
+        }
+        return value == 0.0 ? new FreeRoom(roomNumber, roomType) : new Room(roomNumber, value, roomType);
+    }
+
+    /**
+     * Gets a string member of a JSON object, failing with 400 if it is missing.
+     *
+     * @param json the JSON object
+     * @param name the name of the member
+     * @return the value of the member
+     */
+    private static String requiredString(final Map<?, ?> json, final String name) {
+        if (!(json.get(name) instanceof String value) || value.isBlank()) {
+            throw new HttpError(400, "Missing string member: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Parses an ISO date into the start of that day in the system time zone.
+     *
+     * @param name the name of the parameter, for the error message
+     * @param value the ISO date
+     * @return the date
+     */
+    private static Date parseDate(final String name, final String value) {
+        try {
+            return Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException ex) {
+            throw new HttpError(400, name + " must be an ISO date (yyyy-MM-dd): " + value);
+        }
+    }
+
+    /**
+     * Parses the name of an enum constant, ignoring case.
+     *
+     * @param name the name of the parameter, for the error message
+     * @param type the enum type
+     * @param value the name of the constant
+     * @param <E> the enum type
+     * @return the constant
+     */
+    private static <E extends Enum<E>> E parseEnum(final String name, final Class<E> type, final String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new HttpError(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Formats a date as the ISO date of its day in the system time zone.
+     *
+     * @param date the date
+     * @return the ISO date
+     */
+    private static String dateJson(final Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString();
+    }
+
+    /**
+     * Converts a customer into its JSON representation.
+     *
+     * @param customer the customer
+     * @return the JSON object
+     */
+    private static Map<String, Object> customerJson(final Customer customer) {
+        final Map<String, Object> json = new LinkedHashMap<>();
+        json.put("email", customer.getEmail());
+        json.put("firstName", customer.getFirstName());
+        json.put("lastName", customer.getLastName());
+        return json;
+    }
+
+    /**
+     * Converts a room into its JSON representation.
+     *
+     * @param room the room
+     * @return the JSON object
+     */
+    private static Map<String, Object> roomJson(final IRoom room) {
+        final Map<String, Object> json = new LinkedHashMap<>();
+        json.put("roomNumber", room.getRoomNumber());
+        json.put("price", room.getRoomPrice());
+        json.put("roomType", room.getRoomType().name());
+        json.put("free", room.isFree());
+        return json;
+    }
+
+    /**
+     * Converts rooms into their JSON representation.
+     *
+     * @param rooms the rooms
+     * @return the JSON array
+     */
+    private static List<Object> roomsJson(final Collection<? extends IRoom> rooms) {
+        final List<Object> json = new ArrayList<>(rooms.size());
+        for (IRoom room : rooms) {
+            json.add(roomJson(room));
+        }
+        return json;
+    }
+
+    /**
+     * Converts a reservation into its JSON representation.
+     *
+     * @param reservation the reservation
+     * @return the JSON object
+     */
+    private static Map<String, Object> reservationJson(final Reservation reservation) {
+        final Map<String, Object> json = new LinkedHashMap<>();
+        json.put("email", reservation.getCustomer().getEmail());
+        json.put("room", roomJson(reservation.getRoom()));
+        json.put("checkIn", reservation.getCheckIn().toString());
+        json.put("checkOut", reservation.getCheckOut().toString());
+        return json;
+    }
+
+    /**
+     * Converts reservations into their JSON representation.
+     *
+     * @param reservations the reservations
+     * @return the JSON array
+     */
+    private static List<Object> reservationsJson(final Collection<Reservation> reservations) {
+        final List<Object> json = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            json.add(reservationJson(reservation));
+        }
+        return json;
+    }
+
+    /**
+     * A handler of the requests below one context path.
+     */
+    @FunctionalInterface
+    private interface Route {
+
+        /**
+         * Handles a request.
+         *
+         * @param request the request
+         * @return the response
+         */
+        Response handle(Request request);
+    }
+
+    /**
+     * A response status with its JSON body.
+     *
+     * @param status the HTTP status code
+     * @param body the value to write as JSON
+     */
+    private record Response(int status, Object body) {
+
+        /**
+         * Creates a 200 response.
+         *
+         * @param body the value to write as JSON
+         * @return the response
+         */
+        static Response ok(final Object body) {
+            return new Response(200, body);
+        }
+
+        /**
+         * Creates an error response with a JSON body of the form {@code {"error": message}}.
+         *
+         * @param status the HTTP status code
+         * @param message the error message
+         * @return the response
+         */
+        static Response error(final int status, final String message) {
+            final Map<String, Object> body = new LinkedHashMap<>();
+            body.put("error", message);
+            return new Response(status, body);
+        }
+    }
+
+    /**
+     * Exception carrying the HTTP status a request fails with.
+     */
+    private static final class HttpError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        /**
+         * Constructs an error.
+         *
+         * @param status the HTTP status code
+         * @param message the error message
+         */
+        HttpError(final int status, final String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * The parts of an exchange a route reads: method, path segments below the context, query parameters and body.
+     */
+    private static final class Request {
+
+        private final HttpExchange exchange;
+        private final List<String> path;
+        private final Map<String, String> parameters;
+
+        /**
+         * Constructs a request view of an exchange.
+         *
+         * @param exchange the exchange
+         */
+        Request(final HttpExchange exchange) {
+            this.exchange = exchange;
+            this.path = pathBelowContext(exchange);
+            this.parameters = queryParameters(exchange.getRequestURI().getRawQuery());
+        }
+
+        /**
+         * Gets the request method.
+         *
+         * @return the method, such as GET
+         */
+        String method() {
+            return exchange.getRequestMethod();
+        }
+
+        /**
+         * Gets the decoded path segments below the context path.
+         *
+         * @return the path segments, empty for the context path itself
+         */
+        List<String> path() {
+            return path;
+        }
+
+        /**
+         * Fails with 405 unless the request uses the given method.
+         *
+         * @param method the expected method
+         */
+        void requireMethod(final String method) {
+            if (!exchange.getRequestMethod().equals(method)) {
+                throw new HttpError(405, "Method not allowed: " + exchange.getRequestMethod());
+            }
+        }
+
+        /**
+         * Gets a query parameter.
+         *
+         * @param name the name of the parameter
+         * @return the decoded value, or null if absent
+         */
+        String parameter(final String name) {
+            return parameters.get(name);
+        }
+
+        /**
+         * Gets a query parameter holding an ISO date, failing with 400 if it is missing or malformed.
+         *
+         * @param name the name of the parameter
+         * @return the date
+         */
+        Date requiredDate(final String name) {
+            final String value = parameter(name);
+            if (value == null) {
+                throw new HttpError(400, "Missing parameter: " + name);
+            }
+            return parseDate(name, value);
+        }
+
+        /**
+         * Gets a query parameter holding an integer, failing with 400 if it is missing or malformed.
+         *
+         * @param name the name of the parameter
+         * @return the integer
+         */
+        int requiredInt(final String name) {
+            if (parameter(name) == null) {
+                throw new HttpError(400, "Missing parameter: " + name);
+            }
+            return intParameter(name, 0);
+        }
+
+        /**
+         * Gets an optional query parameter holding an integer.
+         *
+         * @param name the name of the parameter
+         * @param defaultValue the value to use if the parameter is absent
+         * @return the integer
+         */
+        int intParameter(final String name, final int defaultValue) {
+            final String value = parameter(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                throw new HttpError(400, name + " must be an integer: " + value);
+            }
+        }
+
+        /**
+         * Gets an optional query parameter holding a number.
+         *
+         * @param name the name of the parameter
+         * @param defaultValue the value to use if the parameter is absent
+         * @return the number
+         */
+        double doubleParameter(final String name, final double defaultValue) {
+            final String value = parameter(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException ex) {
+                throw new HttpError(400, name + " must be a number: " + value);
+            }
+        }
+
+        /**
+         * Gets an optional query parameter naming an enum constant, ignoring case.
+         *
+         * @param name the name of the parameter
+         * @param type the enum type
+         * @param defaultValue the value to use if the parameter is absent
+         * @param <E> the enum type
+         * @return the constant
+         */
+        <E extends Enum<E>> E enumParameter(final String name, final Class<E> type, final E defaultValue) {
+            final String value = parameter(name);
+            return value == null ? defaultValue : parseEnum(name, type, value);
+        }
+
+        /**
+         * Builds the room filter from the optional {@code types}, {@code minPrice} and {@code maxPrice} parameters.
+         * Room types are given as a comma-separated list of names.
+         *
+         * @return the filter, {@link RoomFilter#ANY} if none of the parameters is present
+         */
+        RoomFilter filter() {
+            RoomFilter filter = RoomFilter.ANY;
+            final String types = parameter("types");
+            if (types != null) {
+                final String[] names = types.split(",");
+                final RoomType[] roomTypes = new RoomType[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    roomTypes[i] = parseEnum("types", RoomType.class, names[i]);
+                }
+                filter = filter.withRoomTypes(roomTypes);
+            }
+            if (parameter("minPrice") != null || parameter("maxPrice") != null) {
+                filter = filter.withPriceBetween(doubleParameter("minPrice", 0.0),
+                        doubleParameter("maxPrice", Double.POSITIVE_INFINITY));
+            }
+            return filter;
+        }
+
+        /**
+         * Reads the body as a JSON object, failing with 400 if it is anything else.
+         *
+         * @return the members of the object
+         */
+        Map<String, Object> bodyObject() {
+            final Object body = body();
+            if (!(body instanceof Map<?, ?> object)) {
+                throw new HttpError(400, "Request body must be a JSON object");
+            }
+            final Map<String, Object> members = new HashMap<>();
+            object.forEach((name, value) -> members.put((String) name, value));
+            return members;
+        }
+
+        /**
+         * Reads the body as a JSON array, failing with 400 if it is anything else.
+         *
+         * @return the elements of the array
+         */
+        List<?> bodyArray() {
+            if (!(body() instanceof List<?> array)) {
+                throw new HttpError(400, "Request body must be a JSON array");
+            }
+            return array;
+        }
+
+        /**
+         * Reads and parses the JSON body, failing with 413 if it is larger than {@value HotelHttpServer#MAX_BODY_BYTES} bytes.
+         * No more than one byte past the limit is read, whatever length the client declares.
+         *
+         * @return the parsed body
+         */
+        private Object body() {
+            try (InputStream input = exchange.getRequestBody()) {
+                final byte[] body = input.readNBytes(MAX_BODY_BYTES + 1);
+                if (body.length > MAX_BODY_BYTES) {
+                    throw new HttpError(413, "Request body must not exceed " + MAX_BODY_BYTES + " bytes");
+                }
+                return Json.parse(new String(body, StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                throw new HttpError(400, "Unreadable request body");
+            }
+        }
+
+        /**
+         * Splits the part of the decoded request path below the context path into segments.
+         * A path that only shares a prefix with the context path, such as {@code /roomsX}, fails with 404.
+         *
+         * @param exchange the exchange
+         * @return the path segments
+         */
+        private static List<String> pathBelowContext(final HttpExchange exchange) {
+            final String contextPath = exchange.getHttpContext().getPath();
+            final String path = exchange.getRequestURI().getPath();
+            final String belowContext = path.substring(Math.min(contextPath.length(), path.length()));
+            if (!belowContext.isEmpty() && belowContext.charAt(0) != '/') {
+                throw new HttpError(404, "Unknown resource");
+            }
+
+            final List<String> segments = new ArrayList<>();
+            for (String segment : belowContext.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            return segments;
+        }
+
+        /**
+         * Parses a raw query string into decoded parameters. Repeated parameters keep their last value.
+         *
+         * @param rawQuery the raw query string, or null
+         * @return the parameters
+         */
+        private static Map<String, String> queryParameters(final String rawQuery) {
+            final Map<String, String> parameters = new HashMap<>();
+            if (rawQuery == null || rawQuery.isEmpty()) {
+                return parameters;
+            }
+            for (String pair : rawQuery.split("&")) {
+                final int separator = pair.indexOf('=');
+                final String name = separator < 0 ? pair : pair.substring(0, separator);
+                final String value = separator < 0 ? "" : pair.substring(separator + 1);
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return parameters;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Json
+ * <p>
+ * Minimal JSON reader and writer for the HTTP front end.
+ * Objects are read into insertion-ordered maps, arrays into lists, numbers into doubles,
+ * and the literals into booleans and null. Writing accepts the same types,
+ * plus any {@link Number} and {@link Collection}.
+ * Reading rejects documents whose objects and arrays nest deeper than {@value #MAX_DEPTH} levels,
+ * so a hostile document cannot exhaust the stack of the reading thread.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class Json {
+
+    /**
+     * Deepest nesting of objects and arrays a document may have.
+     */
+    static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int position;
+    private int depth;
+
+    private Json(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON document.
+     *
+     * @param text the document to parse
+     * @return the parsed value
+     * @throws IllegalArgumentException if the document is not valid JSON or nests too deeply
+     */
+    static Object parse(final String text) {
+        final Json reader = new Json(text);
+        final Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position != text.length()) {
+            throw reader.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    /**
+     * Writes a value as a JSON document.
+     *
+     * @param value the value to write
+     * @return the JSON text
+     * @throws IllegalArgumentException if the value contains a type that has no JSON representation
+     */
+    static String write(final Object value) {
+        final StringBuilder builder = new StringBuilder();
+        write(builder, value);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the JSON representation of a value.
+     *
+     * @param builder the builder to append to
+     * @param value the value to write
+     */
+    private static void write(final StringBuilder builder, final Object value) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof String string) {
+            writeString(builder, string);
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            builder.append(value);
+        } else if (value instanceof Number number) {
+            final double doubleValue = number.doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                builder.append("null");
+            } else if (doubleValue == Math.rint(doubleValue) && Math.abs(doubleValue) < 1e15) {
+                builder.append((long) doubleValue);
+            } else {
+                builder.append(doubleValue);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) {
+                    builder.append(',');
+                }
+                writeString(builder, String.valueOf(entry.getKey()));
+                builder.append(':');
+                write(builder, entry.getValue());
+                first = false;
+            }
+            builder.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            builder.append('[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    builder.append(',');
+                }
+                write(builder, element);
+                first = false;
+            }
+            builder.append(']');
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    /**
+     * Appends a quoted and escaped JSON string.
+     *
+     * @param builder the builder to append to
+     * @param string the string to write
+     */
+    private static void writeString(final StringBuilder builder, final String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * Reads the value starting at the current position.
+     *
+     * @return the value
+     */
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+
+        final char c = text.charAt(position);
+        return switch (c) {
+            case '{' -> readObject();
+            case '[' -> readArray();
+            case '"' -> readString();
+            case 't' -> readLiteral("true", Boolean.TRUE);
+            case 'f' -> readLiteral("false", Boolean.FALSE);
+            case 'n' -> readLiteral("null", null);
+            default -> readNumber();
+        };
+    }
+
+    /**
+     * Reads an object starting at the current position.
+     *
+     * @return the members of the object, in document order
+     */
+    private Map<String, Object> readObject() {
+        final Map<String, Object> object = new LinkedHashMap<>();
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            depth--;
+            return object;
+        }
+
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            final String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                depth--;
+                return object;
+            }
+        }
+    }
+
+    /**
+     * Reads an array starting at the current position.
+     *
+     * @return the elements of the array
+     */
+    private List<Object> readArray() {
+        final List<Object> array = new ArrayList<>();
+        enter();
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            depth--;
+            return array;
+        }
+
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                depth--;
+                return array;
+            }
+        }
+    }
+
+    /**
+     * Consumes the opening bracket or brace of an object or array and counts one more level of nesting.
+     */
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+        }
+        position++;
+    }
+
+    /**
+     * Reads a string starting at the opening quote at the current position.
+     *
+     * @return the unescaped string
+     */
+    private String readString() {
+        final StringBuilder builder = new StringBuilder();
+        position++;
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            final char c = text.charAt(position++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                throw error("Unterminated escape");
+            }
+            final char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append(escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                }
+                default -> throw error("Invalid escape");
+            }
+        }
+    }
+
+    /**
+     * Reads a number starting at the current position.
+     *
+     * @return the number as a double
+     */
+    private Double readNumber() {
+        final int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number");
+        }
+    }
+
+    /**
+     * Reads a literal such as {@code true} starting at the current position.
+     *
+     * @param literal the expected literal
+     * @param value the value the literal stands for
+     * @return the value
+     */
+    private Object readLiteral(final String literal, final Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("Unexpected token");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    /**
+     * Consumes the given character, failing if the input has another one at the current position.
+     *
+     * @param expected the expected character
+     */
+    private void expect(final char expected) {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Returns the character at the current position without consuming it.
+     *
+     * @return the character, or 0 at the end of the input
+     */
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    /**
+     * Skips whitespace at the current position.
+     */
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Creates the exception reported for malformed input at the current position.
+     *
+     * @param message the description of the problem
+     * @return the exception to throw
+     */
+    private IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + position + ": " + message);
+    }
+}
@@ -1,10 +1,12 @@
 package service.customer;
 
 import model.customer.Customer;
+import service.event.AddCustomerEvent;
+import service.registry.IdRegistry;
+import storage.WriteAheadLog;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * CustomerService
@@ -12,7 +14,10 @@ import java.util.Map;
  * Manages customer-related operations such as adding customers, retrieving customers by email,
  * and retrieving all customers.
  * Implements a singleton design pattern.
- * Uses a HashMap to store customers, where the key is the customer's email.
+ * Uses an {@link IdRegistry} to store customers, which assigns every email a dense int id
+ * that other services use to index their per-customer data, and can be used from concurrent callers.
+ * When a write-ahead log is attached, every new customer is logged once it has been added,
+ * and the caller waits until the record is durable.
  *
  * @author ahmad deni atmaja saputra
  */
@@ -20,7 +25,8 @@ public class CustomerService {
 
     private static final CustomerService SINGLETON = new CustomerService();
 
-    private final Map<String, Customer> customers = new HashMap<>();
+    private final IdRegistry<Customer> customers = new IdRegistry<>();
+    private volatile WriteAheadLog writeAheadLog;
 
     private CustomerService() {}
 
@@ -41,7 +47,83 @@ public class CustomerService {
      * @param lastName the last name of the customer
      */
     public void addCustomer(final String email, final String firstName, final String lastName) {
-        customers.put(email, new Customer(firstName, lastName, email));
+        add(email, firstName, lastName, true);
+    }
+
+    /**
+     * Adds a new customer unless a customer with the same email exists already.
+     * Checking for the email and adding the customer are one atomic step, so of two concurrent calls
+     * with the same email exactly one adds its customer.
+     *
+     * @param email the email of the customer
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     * @return true if the customer was added, false if the email was already taken
+     * @throws IllegalArgumentException if the email format is incorrect
+     */
+    public boolean addCustomerIfAbsent(final String email, final String firstName, final String lastName) {
+        return add(email, firstName, lastName, false);
+    }
+
+    /**
+     * Adds a customer and logs it.
+     *
+     * @param email the email of the customer
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     * @param replace whether a customer with the same email is replaced rather than kept
+     * @return true if the customer was added, false if it was not replaced
+     */
+    private boolean add(final String email, final String firstName, final String lastName, final boolean replace) {
+        final AddCustomerEvent event = new AddCustomerEvent();
+        event.begin();
+        try {
+            final Customer customer = new Customer(firstName, lastName, email);
+            event.valid = true;
+            if (replace) {
+                customers.register(email, customer);
+            } else if (customers.registerIfAbsent(email, customer) == IdRegistry.UNKNOWN) {
+                return false;
+            }
+
+            final WriteAheadLog log = writeAheadLog;
+            if (log != null) {
+                log.awaitDurable(log.appendCustomer(customer));
+                event.logged = true;
+            }
+            return true;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Restores a customer from storage without logging it again.
+     *
+     * @param customer the customer to restore
+     */
+    public void restoreCustomer(final Customer customer) {
+        customers.register(customer.getEmail(), customer);
+    }
+
+    /**
+     * Returns the dense id of a customer. Looking a customer up never registers it;
+     * customers are only added through this service, so that every new customer is logged.
+     *
+     * @param customer the customer to look up
+     * @return the id of the customer, or {@link IdRegistry#UNKNOWN} if no customer with its email was added
+     */
+    public int customerIdOf(final Customer customer) {
+        return customers.idOf(customer.getEmail());
+    }
+
+    /**
+     * Attaches a write-ahead log to which every new customer is appended.
+     *
+     * @param writeAheadLog the log to attach, or null to stop logging
+     */
+    public void attachWriteAheadLog(final WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
     }
 
     /**
@@ -57,9 +139,28 @@ public class CustomerService {
     /**
      * Retrieves all customers stored in the service.
      *
-     * @return a collection containing all customers
+     * @return a snapshot of all customers, in order of registration
      */
     public Collection<Customer> getAllCustomers() {
         return customers.values();
     }
+
+    /**
+     * Performs the given action for every customer, in order of registration,
+     * without copying the customers into a new collection.
+     *
+     * @param action the action to perform
+     */
+    public void forEachCustomer(final Consumer<Customer> action) {
+        customers.forEach(action);
+    }
+
+    /**
+     * Counts the customers stored in the service, in constant time.
+     *
+     * @return the number of customers
+     */
+    public int getCustomerCount() {
+        return customers.size();
+    }
 }
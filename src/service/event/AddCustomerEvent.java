@@ -0,0 +1,39 @@
+package service.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * AddCustomerEvent
+ * <p>
+ * Flight recorder event for adding one customer, including the wait for the write-ahead log.
+ * Disabled by default; enable {@value #NAME} in a recording to collect it.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+@Name(AddCustomerEvent.NAME)
+@Label("Add Customer")
+@Category({"Hotel", "Customers"})
+@Description("Registration of a new customer")
+@Enabled(false)
+@StackTrace(false)
+public final class AddCustomerEvent extends Event {
+
+    /**
+     * Name of the event type in recordings.
+     */
+    public static final String NAME = "hotel.AddCustomer";
+
+    @Label("Valid")
+    @Description("Whether the email was accepted")
+    public boolean valid;
+
+    @Label("Logged")
+    @Description("Whether the customer was written to the write-ahead log")
+    public boolean logged;
+}
@@ -0,0 +1,55 @@
+package service.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * FindRoomsEvent
+ * <p>
+ * Flight recorder event for one availability search of the reservation service.
+ * Disabled by default; enable {@value #NAME} in a recording to collect it.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+@Name(FindRoomsEvent.NAME)
+@Label("Find Rooms")
+@Category({"Hotel", "Reservations"})
+@Description("Search for rooms available over a date range")
+@Enabled(false)
+@StackTrace(false)
+public final class FindRoomsEvent extends Event {
+
+    /**
+     * Name of the event type in recordings.
+     */
+    public static final String NAME = "hotel.FindRooms";
+
+    @Label("Check-In")
+    @Description("First night of the searched stay, as an ISO date")
+    public String checkIn;
+
+    @Label("Nights")
+    @Description("Number of nights between check-in and check-out")
+    public int nights;
+
+    @Label("Filter")
+    @Description("Room types and price range the rooms had to match")
+    public String filter;
+
+    @Label("Cache Hit")
+    @Description("Whether the result came from the availability cache")
+    public boolean cacheHit;
+
+    @Label("Candidates")
+    @Description("Number of rooms whose availability was checked")
+    public int candidates;
+
+    @Label("Results")
+    @Description("Number of available rooms found")
+    public int results;
+}
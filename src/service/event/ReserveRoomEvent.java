@@ -0,0 +1,46 @@
+package service.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ReserveRoomEvent
+ * <p>
+ * Flight recorder event for one attempt to reserve a room, including the wait for the write-ahead log.
+ * Disabled by default; enable {@value #NAME} in a recording to collect it.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+@Name(ReserveRoomEvent.NAME)
+@Label("Reserve Room")
+@Category({"Hotel", "Reservations"})
+@Description("Attempt to reserve a room for a date range")
+@Enabled(false)
+@StackTrace(false)
+public final class ReserveRoomEvent extends Event {
+
+    /**
+     * Name of the event type in recordings.
+     */
+    public static final String NAME = "hotel.ReserveRoom";
+
+    @Label("Room Number")
+    public String roomNumber;
+
+    @Label("Check-In")
+    @Description("First night of the requested stay, as an ISO date")
+    public String checkIn;
+
+    @Label("Nights")
+    @Description("Number of nights between check-in and check-out")
+    public int nights;
+
+    @Label("Conflict")
+    @Description("Whether the room was already booked during the requested dates")
+    public boolean conflict;
+}
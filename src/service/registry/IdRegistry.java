@@ -0,0 +1,155 @@
+package service.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * IdRegistry
+ * <p>
+ * Assigns a dense int id to every key the first time it is registered, starting from 0,
+ * and keeps the registered value of each id in an {@link IdTable}.
+ * The key is only hashed once, at the edge of the service; internal structures then work
+ * with the id, which can index plain arrays and bitmaps directly.
+ * Registering a key again keeps its id and replaces its value. Ids are never reused:
+ * a key that was removed gets a new id if it is registered again.
+ *
+ * @param <T> the type of the registered values
+ * @author ahmad deni atmaja saputra
+ */
+public final class IdRegistry<T> {
+
+    /**
+     * Id returned for keys that have not been registered.
+     */
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final IdTable<T> values = new IdTable<>();
+
+    // Guarded by this
+    private int nextId;
+
+    /**
+     * Registers the value of a key, assigning the key a new id if it has none yet.
+     *
+     * @param key the key of the value
+     * @param value the value to register
+     * @return the id of the key
+     */
+    public synchronized int register(final String key, final T value) {
+        final Integer existing = ids.get(key);
+        if (existing != null) {
+            values.set(existing, value);
+            return existing;
+        }
+
+        final int id = nextId++;
+        values.set(id, value);
+        ids.put(key, id);
+        return id;
+    }
+
+    /**
+     * Registers the value of a key only if the key has not been registered yet, as one atomic step.
+     *
+     * @param key the key of the value
+     * @param value the value to register
+     * @return the new id of the key, or {@link #UNKNOWN} if the key was already registered and kept its value
+     */
+    public synchronized int registerIfAbsent(final String key, final T value) {
+        if (ids.containsKey(key)) {
+            return UNKNOWN;
+        }
+        return register(key, value);
+    }
+
+    /**
+     * Returns the id of a key.
+     *
+     * @param key the key to look up
+     * @return the id of the key, or {@link #UNKNOWN} if the key has not been registered
+     */
+    public int idOf(final String key) {
+        final Integer id = ids.get(key);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * Returns the value registered for an id.
+     *
+     * @param id the id to look up
+     * @return the value, or null if the id has not been assigned
+     */
+    public T get(final int id) {
+        return values.get(id);
+    }
+
+    /**
+     * Returns the value registered for a key.
+     *
+     * @param key the key to look up
+     * @return the value, or null if the key has not been registered
+     */
+    public T get(final String key) {
+        final Integer id = ids.get(key);
+        return id == null ? null : values.get(id);
+    }
+
+    /**
+     * Returns the number of registered keys, which is also the next id to be assigned.
+     *
+     * @return the number of registered keys
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Removes the value registered under a key. The id of the key is not reused;
+     * registering the key again assigns it a new id.
+     *
+     * @param key the key to remove
+     * @return the id the key had, or {@link #UNKNOWN} if it was not registered
+     */
+    public synchronized int remove(final String key) {
+        final Integer id = ids.remove(key);
+        if (id == null) {
+            return UNKNOWN;
+        }
+        values.set(id, null);
+        return id;
+    }
+
+    /**
+     * Performs the given action for every registered value, in order of id.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(final Consumer<? super T> action) {
+        values.forEach(action);
+    }
+
+    /**
+     * Performs the given action for every registered value and its id, in order of id.
+     *
+     * @param action the action to perform
+     */
+    public void forEachWithId(final ObjIntConsumer<? super T> action) {
+        values.forEachWithId(action);
+    }
+
+    /**
+     * Returns a snapshot of every registered value, in order of id.
+     *
+     * @return a new list of the registered values
+     */
+    public List<T> values() {
+        final List<T> snapshot = new ArrayList<>(size());
+        values.forEach(snapshot::add);
+        return snapshot;
+    }
+}
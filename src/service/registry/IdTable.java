@@ -0,0 +1,123 @@
+package service.registry;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * IdTable
+ * <p>
+ * Growable array of values indexed by dense int ids, used in place of a hash map keyed by room number or email.
+ * Reads are lock-free; writes are serialized and grow the array by doubling when an id lies beyond its end.
+ *
+ * @param <T> the type of the values
+ * @author ahmad deni atmaja saputra
+ */
+public final class IdTable<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<T> slots;
+
+    /**
+     * Constructs an empty table.
+     */
+    public IdTable() {
+        this.slots = new AtomicReferenceArray<>(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the value stored for an id.
+     *
+     * @param id the id to look up
+     * @return the value, or null if no value is stored for the id
+     */
+    public T get(final int id) {
+        final AtomicReferenceArray<T> current = slots;
+        return id >= 0 && id < current.length() ? current.get(id) : null;
+    }
+
+    /**
+     * Returns a bound on the ids that have a value, so a range of ids can be split among several workers.
+     *
+     * @return an id greater than every id with a stored value
+     */
+    public int idBound() {
+        return slots.length();
+    }
+
+    /**
+     * Stores the value of an id, replacing any previous value.
+     *
+     * @param id the id to store the value for
+     * @param value the value to store
+     */
+    public synchronized void set(final int id, final T value) {
+        AtomicReferenceArray<T> current = slots;
+        if (id >= current.length()) {
+            final AtomicReferenceArray<T> grown =
+                    new AtomicReferenceArray<>(Math.max(id + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            slots = grown;
+            current = grown;
+        }
+        current.set(id, value);
+    }
+
+    /**
+     * Returns the value stored for an id, storing the value created by the factory if there is none yet.
+     *
+     * @param id the id to look up
+     * @param factory creates the value for the id
+     * @return the stored value
+     */
+    public T computeIfAbsent(final int id, final IntFunction<? extends T> factory) {
+        final T value = get(id);
+        if (value != null) {
+            return value;
+        }
+
+        synchronized (this) {
+            final T existing = get(id);
+            if (existing != null) {
+                return existing;
+            }
+            final T created = factory.apply(id);
+            set(id, created);
+            return created;
+        }
+    }
+
+    /**
+     * Performs the given action for every stored value, in order of id.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(final Consumer<? super T> action) {
+        final AtomicReferenceArray<T> current = slots;
+        for (int id = 0; id < current.length(); id++) {
+            final T value = current.get(id);
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for every stored value and its id, in order of id.
+     *
+     * @param action the action to perform
+     */
+    public void forEachWithId(final ObjIntConsumer<? super T> action) {
+        final AtomicReferenceArray<T> current = slots;
+        for (int id = 0; id < current.length(); id++) {
+            final T value = current.get(id);
+            if (value != null) {
+                action.accept(value, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package service.reservation;
+
+import model.room.IRoom;
+
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * AlternativeStay
+ * <p>
+ * Represents a stay of the requested length on other dates than the ones requested,
+ * together with the rooms that are free for it.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class AlternativeStay {
+
+    private final Date checkInDate;
+    private final Date checkOutDate;
+    private final int daysFromRequest;
+    private final Collection<IRoom> availableRooms;
+
+    /**
+     * Constructs an alternative stay.
+     *
+     * @param checkInDate the check-in date of the alternative stay
+     * @param checkOutDate the check-out date of the alternative stay
+     * @param daysFromRequest the number of days the stay is moved by, negative if it is earlier than requested
+     * @param availableRooms the rooms free for the alternative stay
+     */
+    public AlternativeStay(Date checkInDate, Date checkOutDate, int daysFromRequest, Collection<IRoom> availableRooms) {
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.daysFromRequest = daysFromRequest;
+        this.availableRooms = availableRooms;
+    }
+
+    /**
+     * Gets the check-in date of the alternative stay.
+     *
+     * @return the check-in date
+     */
+    public Date getCheckInDate() {
+        return checkInDate;
+    }
+
+    /**
+     * Gets the check-out date of the alternative stay.
+     *
+     * @return the check-out date
+     */
+    public Date getCheckOutDate() {
+        return checkOutDate;
+    }
+
+    /**
+     * Gets the number of days the stay is moved by compared to the requested dates.
+     *
+     * @return the shift in days, negative if the stay is earlier than requested
+     */
+    public int getDaysFromRequest() {
+        return daysFromRequest;
+    }
+
+    /**
+     * Gets the rooms that are free for the alternative stay.
+     *
+     * @return the available rooms
+     */
+    public Collection<IRoom> getAvailableRooms() {
+        return availableRooms;
+    }
+
+    /**
+     * Returns a string representation of the alternative stay.
+     *
+     * @return a string containing the dates and the number of available rooms
+     */
+    @Override
+    public String toString() {
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+        return "Check-In Date: " + sdf.format(checkInDate)
+                + ", Check-Out Date: " + sdf.format(checkOutDate)
+                + " (" + (daysFromRequest > 0 ? "+" : "") + daysFromRequest + " days, "
+                + availableRooms.size() + " rooms available)";
+    }
+}
@@ -0,0 +1,29 @@
+package service.reservation;
+
+/**
+ * AvailabilityBackend
+ * <p>
+ * Enumerates the availability engines the reservation service can run on.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum AvailabilityBackend {
+
+    /**
+     * Per-room interval index sorted by check-in date.
+     * Works for any date range and keeps memory proportional to the number of reservations.
+     */
+    INTERVAL_INDEX,
+
+    /**
+     * Day-indexed occupancy bitmaps.
+     * Answers range checks and multi-room searches with word-level bit operations.
+     */
+    BITMAP_CALENDAR,
+
+    /**
+     * Immutable per-room snapshots committed with compare-and-set.
+     * Bookings and searches never take locks, which removes reader/writer contention under read-heavy load.
+     */
+    OPTIMISTIC_SNAPSHOT
+}
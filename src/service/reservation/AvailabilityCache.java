@@ -0,0 +1,236 @@
+package service.reservation;
+
+import model.room.IRoom;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AvailabilityCache
+ * <p>
+ * Bounded cache of availability search results, keyed by range of nights and room filter,
+ * that evicts the least recently used result once it is full. It can be used from concurrent callers
+ * without a lock: results are kept in a concurrent map, and only evicting takes a lock, which a caller
+ * that finds it taken skips.
+ * <p>
+ * Changes are tracked with stamps from one clock rather than by walking the entries. Every night of the calendar
+ * falls into one of a fixed number of day buckets, and a changed reservation stamps the buckets of its nights
+ * with the next tick of the clock. A search reads the clock before it starts computing and its result keeps
+ * that stamp; the result is only stored, and only served later, while no bucket of its nights has a newer stamp.
+ * So a booking costs one stamp per night, only results whose nights overlap with it are dropped, and a result
+ * computed before a booking can never be served after it. Nights a whole bucket ring apart share a bucket,
+ * which may drop a result needlessly but never keeps a stale one.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class AvailabilityCache {
+
+    // A power of two, so the bucket of a night is a mask of its epoch day; about three years of nights
+    private static final int DAY_BUCKETS = 1024;
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLongArray dayStamps = new AtomicLongArray(DAY_BUCKETS);
+    // Stamp of the last change that affected all nights, such as a new room
+    private final AtomicLong allDaysStamp = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs a cache holding at most the given number of search results.
+     *
+     * @param maxEntries the largest number of cached results, or 0 to disable caching
+     */
+    AvailabilityCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cached result of a search, counting a hit or a miss.
+     * A result whose nights changed since it was computed is dropped and counted as a miss.
+     *
+     * @param key the search key
+     * @return the cached rooms, or null if the search is not cached
+     */
+    List<IRoom> get(final Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (changedSince(key, entry.stamp)) {
+            if (entries.remove(key, entry)) {
+                invalidations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = System.nanoTime();
+        hits.increment();
+        return entry.rooms;
+    }
+
+    /**
+     * Returns the current stamp, to be passed to {@link #put(Key, List, long)} once the search completes.
+     *
+     * @return the current stamp
+     */
+    long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Stores the result of a search, unless a night of the search changed since the search started.
+     * A change to other nights does not keep the result from being stored.
+     *
+     * @param key the search key
+     * @param rooms the immutable search result
+     * @param startStamp the stamp read before the search started
+     */
+    void put(final Key key, final List<IRoom> rooms, final long startStamp) {
+        if (maxEntries == 0 || changedSince(key, startStamp)) {
+            return;
+        }
+        entries.put(key, new Entry(rooms, startStamp));
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Drops every cached search whose range of nights overlaps with the given one,
+     * by stamping the buckets of the given nights.
+     *
+     * @param checkInDay the check-in day of the changed reservation, as an epoch day
+     * @param checkOutDay the check-out day of the changed reservation, as an epoch day
+     */
+    void invalidate(final int checkInDay, final int checkOutDay) {
+        final long stamp = clock.incrementAndGet();
+        if (checkOutDay - checkInDay >= DAY_BUCKETS) {
+            for (int bucket = 0; bucket < DAY_BUCKETS; bucket++) {
+                dayStamps.accumulateAndGet(bucket, stamp, Math::max);
+            }
+            return;
+        }
+        for (int day = checkInDay; day < checkOutDay; day++) {
+            dayStamps.accumulateAndGet(day & (DAY_BUCKETS - 1), stamp, Math::max);
+        }
+    }
+
+    /**
+     * Drops every cached search, for changes that affect all date ranges such as a new room.
+     */
+    void invalidateAll() {
+        allDaysStamp.accumulateAndGet(clock.incrementAndGet(), Math::max);
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the cache statistics
+     */
+    AvailabilityCacheStatistics statistics() {
+        return new AvailabilityCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(),
+                entries.size(), maxEntries);
+    }
+
+    /**
+     * Checks whether a night of a search was changed after the given stamp was read.
+     *
+     * @param key the search key
+     * @param stamp the stamp read before the search started
+     * @return true if the result of the search may no longer be current
+     */
+    private boolean changedSince(final Key key, final long stamp) {
+        if (allDaysStamp.get() > stamp) {
+            return true;
+        }
+        if (key.checkOutDay() - key.checkInDay() >= DAY_BUCKETS) {
+            for (int bucket = 0; bucket < DAY_BUCKETS; bucket++) {
+                if (dayStamps.get(bucket) > stamp) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int day = key.checkInDay(); day < key.checkOutDay(); day++) {
+            if (dayStamps.get(day & (DAY_BUCKETS - 1)) > stamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the results that are no longer current and then, while the cache is still over its size,
+     * the least recently used ones. Only one caller evicts at a time; the others leave it to that one,
+     * and whatever they added past the size is dropped by the next eviction.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final List<Map.Entry<Key, Entry>> current = new ArrayList<>(entries.size());
+            for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+                if (!changedSince(candidate.getKey(), candidate.getValue().stamp)) {
+                    current.add(candidate);
+                } else if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    invalidations.increment();
+                }
+            }
+            current.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed));
+            for (int i = 0; i < current.size() && entries.size() > maxEntries; i++) {
+                if (entries.remove(current.get(i).getKey(), current.get(i).getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Key of a cached search.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param filter the room filter of the search
+     */
+    record Key(int checkInDay, int checkOutDay, RoomFilter filter) {}
+
+    /**
+     * Cached search result with the stamp read before it was computed and the time it was last served.
+     */
+    private static final class Entry {
+
+        private final List<IRoom> rooms;
+        private final long stamp;
+        private volatile long lastUsed = System.nanoTime();
+
+        /**
+         * Constructs an entry.
+         *
+         * @param rooms the immutable search result
+         * @param stamp the stamp read before the search started
+         */
+        Entry(final List<IRoom> rooms, final long stamp) {
+            this.rooms = rooms;
+            this.stamp = stamp;
+        }
+    }
+}
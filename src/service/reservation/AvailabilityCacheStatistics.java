@@ -0,0 +1,117 @@
+package service.reservation;
+
+/**
+ * AvailabilityCacheStatistics
+ * <p>
+ * Point-in-time counters of the availability search cache.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class AvailabilityCacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    private final int maxSize;
+
+    /**
+     * Constructs a statistics snapshot.
+     *
+     * @param hits the number of searches answered from the cache
+     * @param misses the number of searches that had to be computed
+     * @param evictions the number of results dropped to stay within the size limit
+     * @param invalidations the number of results dropped because a reservation or room changed
+     * @param size the number of cached results
+     * @param maxSize the largest number of cached results
+     */
+    public AvailabilityCacheStatistics(long hits, long misses, long evictions, long invalidations, int size, int maxSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the number of searches answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of searches that had to be computed.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of results dropped to stay within the size limit.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of results dropped because a reservation or room changed.
+     *
+     * @return the invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the cache size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the largest number of cached results.
+     *
+     * @return the cache capacity
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the share of searches answered from the cache.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no searches
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return a string containing all counters
+     */
+    @Override
+    public String toString() {
+        return "Availability cache: {" +
+                "Hits: " + hits +
+                ", Misses: " + misses +
+                ", Evictions: " + evictions +
+                ", Invalidations: " + invalidations +
+                ", Size: " + size + "/" + maxSize +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * AvailabilityEngine
+ * <p>
+ * Backend used by the reservation service to answer availability questions.
+ * Every room and reservation known to the service is registered with the engine,
+ * which keeps whatever structure it needs to decide if a room is free for a range of nights.
+ * Dates are passed as epoch days; a stay covers the nights {@code [checkInDay, checkOutDay)}.
+ * Rooms are identified by the dense id the service assigned them, so engines can index their
+ * per-room state by id instead of hashing room numbers.
+ * <p>
+ * Unless the engine is {@linkplain #isLockFree() lock-free}, the service serializes reservations
+ * for the same room through its room locks.
+ * Implementations must still allow searches to run concurrently with reservations,
+ * and reservations for different rooms to run concurrently with each other.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+interface AvailabilityEngine {
+
+    /**
+     * Registers a room with the engine.
+     *
+     * @param roomId the dense id of the room
+     * @param room the room to register
+     */
+    void addRoom(int roomId, IRoom room);
+
+    /**
+     * Removes a room from the engine, together with any booking it still has.
+     * The caller must hold the room's lock, and no reservation of the room may run concurrently.
+     *
+     * @param roomId the dense id of the room
+     */
+    void removeRoom(int roomId);
+
+    /**
+     * Registers a reservation with the engine, marking its room as booked for its dates.
+     *
+     * @param roomId the dense id of the reserved room
+     * @param reservation the reservation to register
+     */
+    void addReservation(int roomId, Reservation reservation);
+
+    /**
+     * Registers several reservations with the engine.
+     * Engines can override this to apply the whole batch with a single update of their shared structures.
+     *
+     * @param roomIds the dense id of the room of each reservation, at the same index
+     * @param reservations the reservations to register
+     */
+    default void addReservations(final int[] roomIds, final List<Reservation> reservations) {
+        for (int i = 0; i < roomIds.length; i++) {
+            addReservation(roomIds[i], reservations.get(i));
+        }
+    }
+
+    /**
+     * Removes a reservation from the engine, freeing its room for its dates.
+     * For engines that are not lock-free the caller must hold the room's lock.
+     *
+     * @param roomId the dense id of the reserved room
+     * @param reservation the reservation to remove
+     */
+    void removeReservation(int roomId, Reservation reservation);
+
+    /**
+     * Registers a reservation with the engine if its room is available for its dates.
+     * For engines that are not lock-free the caller must hold the room's lock.
+     *
+     * @param roomId the dense id of the reserved room
+     * @param reservation the reservation to register
+     * @return true if the reservation was registered, false if it overlaps an existing one
+     */
+    default boolean addReservationIfAvailable(final int roomId, final Reservation reservation) {
+        if (!isAvailable(roomId, reservation.getCheckInDay(), reservation.getCheckOutDay())) {
+            return false;
+        }
+        addReservation(roomId, reservation);
+        return true;
+    }
+
+    /**
+     * Replaces a registered reservation with another one for the same room, if the room is available for the
+     * new dates once the old reservation is left out. If it is not, the old reservation stays registered.
+     * The room's lock must be held, which keeps other changes of the room out; a lock-free engine additionally
+     * makes the replacement a single atomic step for concurrent bookings and searches.
+     *
+     * @param roomId the dense id of the reserved room
+     * @param previous the registered reservation to replace
+     * @param replacement the reservation to register instead
+     * @return true if the reservation was replaced, false if the replacement overlaps another reservation
+     */
+    default boolean replaceReservation(final int roomId, final Reservation previous, final Reservation replacement) {
+        removeReservation(roomId, previous);
+        if (addReservationIfAvailable(roomId, replacement)) {
+            return true;
+        }
+        addReservation(roomId, previous);
+        return false;
+    }
+
+    /**
+     * Indicates whether {@link #addReservationIfAvailable(int, Reservation)} is atomic on its own,
+     * so the service does not need to take the room's lock around it.
+     *
+     * @return true if the engine commits reservations without external locking, false otherwise
+     */
+    default boolean isLockFree() {
+        return false;
+    }
+
+    /**
+     * Checks if a room has no reservation overlapping with the specified range of nights.
+     *
+     * @param roomId the dense id of the room to check
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if the room is available for the range, false otherwise
+     */
+    boolean isAvailable(int roomId, int checkInDay, int checkOutDay);
+
+    /**
+     * Reports the booked nights of a room that fall within the given range of nights, in ascending order.
+     * Adjacent or overlapping reservations may be reported as one range.
+     *
+     * @param roomId the dense id of the room to inspect
+     * @param fromDay the first night of interest, as an epoch day
+     * @param toDay the night after the last night of interest, as an epoch day
+     * @param consumer receives each booked range as {@code [firstNight, endNight)} in epoch days
+     */
+    void forEachBookedRange(int roomId, int fromDay, int toDay, BookedRangeConsumer consumer);
+
+    /**
+     * Finds all registered rooms that are available for the specified range of nights.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return a collection of available rooms for the given range
+     */
+    Collection<IRoom> findAvailableRooms(int checkInDay, int checkOutDay);
+
+    /**
+     * Receives booked ranges of nights from {@link #forEachBookedRange(int, int, int, BookedRangeConsumer)}.
+     */
+    @FunctionalInterface
+    interface BookedRangeConsumer {
+
+        /**
+         * Accepts one booked range.
+         *
+         * @param firstNight the first booked night, as an epoch day
+         * @param endNight the night after the last booked night, as an epoch day
+         */
+        void accept(int firstNight, int endNight);
+    }
+}
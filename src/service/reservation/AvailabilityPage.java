@@ -0,0 +1,57 @@
+package service.reservation;
+
+import model.room.IRoom;
+
+import java.util.List;
+
+/**
+ * AvailabilityPage
+ * <p>
+ * One page of available rooms, in room number order, together with the token to request the next page.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class AvailabilityPage {
+
+    private final List<IRoom> rooms;
+    private final String nextPageToken;
+
+    /**
+     * Constructs a page of available rooms.
+     *
+     * @param rooms the available rooms on this page
+     * @param nextPageToken the token to request the next page, or null if this is the last page
+     */
+    public AvailabilityPage(List<IRoom> rooms, String nextPageToken) {
+        this.rooms = rooms;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * Gets the available rooms on this page.
+     *
+     * @return the rooms, in room number order
+     */
+    public List<IRoom> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Gets the token to request the page after this one.
+     * A page that ends exactly at the last available room still carries a token, in which case the next page is empty.
+     *
+     * @return the continuation token, or null if there are no more rooms to look at
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    /**
+     * Checks if there may be more available rooms after this page.
+     *
+     * @return true if a next page can be requested, false otherwise
+     */
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,601 @@
+package service.reservation;
+
+import model.reservation.EpochDays;
+import model.reservation.Reservation;
+import model.room.IRoom;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BitmapAvailabilityEngine
+ * <p>
+ * Availability engine that stores occupancy as bitmaps indexed by day.
+ * The dense id of each room is its slot, and two views of the same calendar are kept:
+ * <ul>
+ *     <li>per room, a bitmap of booked nights, so checking one room is a single range test;</li>
+ *     <li>per night, a bitmap of booked room slots, so finding all free rooms for a stay is an OR
+ *     over the nights of the stay followed by a scan for clear bits.</li>
+ * </ul>
+ * Nights are stored relative to an origin day. The calendar grows forward as needed and is rebased when
+ * an earlier night shows up. It only covers nights from {@value #MAX_PAST_NIGHTS} nights before today
+ * to {@value #MAX_FUTURE_NIGHTS} nights after it, so a stay in a far year cannot grow it without bound;
+ * stays reaching outside that horizon are kept in a short list per room instead and checked one by one.
+ * Whenever the calendar grows forward, the nights that have fallen behind the horizon since are dropped,
+ * so its history is rolled forward as bookings move on without a separate timer.
+ * <p>
+ * Bookings of different rooms run in parallel. Changes that move or resize the calendar, such as growing it,
+ * rebasing it or adding a room, take the calendar lock exclusively; everything else shares it.
+ * The nights of a room are guarded by a lock striped by slot, and the slots of a night are set and cleared
+ * word by word with atomic updates, so rooms sharing a word of a night never lose each other's bits.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class BitmapAvailabilityEngine implements AvailabilityEngine {
+
+    /**
+     * Number of nights before today the calendar covers.
+     */
+    static final int MAX_PAST_NIGHTS = 2 * 366;
+
+    /**
+     * Number of nights from today on the calendar covers.
+     */
+    static final int MAX_FUTURE_NIGHTS = 10 * 366;
+
+    private static final int SLOT_LOCK_STRIPES = 64;
+    // The calendar grows by whole blocks of nights, so a run of bookings one night further out grows it once
+    private static final int NIGHT_BLOCK = 32;
+
+    // Structure guarded by the calendar lock: only changed while it is held exclusively
+    private final List<IRoom> roomsBySlot = new ArrayList<>();
+    private final List<BitSet> bookedNightsBySlot = new ArrayList<>();
+    // A night's words are created when the first slot is booked on it
+    private AtomicReferenceArray<AtomicLongArray> bookedSlotsByNight = new AtomicReferenceArray<>(0);
+    private int slotWords = 1;
+    private int originDay = Integer.MIN_VALUE;
+
+    private final Map<Integer, List<Reservation>> outsideReservationsBySlot = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock calendarLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] slotLocks = new ReentrantLock[SLOT_LOCK_STRIPES];
+
+    /**
+     * Constructs an empty engine.
+     */
+    BitmapAvailabilityEngine() {
+        for (int i = 0; i < slotLocks.length; i++) {
+            slotLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void addRoom(final int roomId, final IRoom room) {
+        calendarLock.writeLock().lock();
+        try {
+            registerSlot(roomId, room);
+        } finally {
+            calendarLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeRoom(final int slot) {
+        calendarLock.writeLock().lock();
+        try {
+            if (slot >= roomsBySlot.size()) {
+                return;
+            }
+
+            final BitSet nights = bookedNightsBySlot.get(slot);
+            for (int night = nights.nextSetBit(0); night >= 0 && night < bookedSlotsByNight.length();
+                 night = nights.nextSetBit(night + 1)) {
+                clearSlot(night, slot);
+            }
+            nights.clear();
+            outsideReservationsBySlot.remove(slot);
+            roomsBySlot.set(slot, null);
+        } finally {
+            calendarLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addReservation(final int slot, final Reservation reservation) {
+        lockCalendar(slot, reservation.getRoom(), reservation.getCheckInDay(), reservation.getCheckOutDay());
+        final ReentrantLock slotLock = slotLock(slot);
+        slotLock.lock();
+        try {
+            markBooked(slot, reservation);
+        } finally {
+            slotLock.unlock();
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeReservation(final int slot, final Reservation reservation) {
+        calendarLock.readLock().lock();
+        final ReentrantLock slotLock = slotLock(slot);
+        slotLock.lock();
+        try {
+            if (slot < roomsBySlot.size()) {
+                markFree(slot, reservation);
+            }
+        } finally {
+            slotLock.unlock();
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replaceReservation(final int slot, final Reservation previous, final Reservation replacement) {
+        lockCalendar(slot, replacement.getRoom(), replacement.getCheckInDay(), replacement.getCheckOutDay());
+        final ReentrantLock slotLock = slotLock(slot);
+        slotLock.lock();
+        try {
+            markFree(slot, previous);
+            if (isFree(slot, replacement.getCheckInDay(), replacement.getCheckOutDay())) {
+                markBooked(slot, replacement);
+                return true;
+            }
+            markBooked(slot, previous);
+            return false;
+        } finally {
+            slotLock.unlock();
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isAvailable(final int slot, final int checkInDay, final int checkOutDay) {
+        calendarLock.readLock().lock();
+        final ReentrantLock slotLock = slotLock(slot);
+        slotLock.lock();
+        try {
+            return slot >= roomsBySlot.size() || isFree(slot, checkInDay, checkOutDay);
+        } finally {
+            slotLock.unlock();
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachBookedRange(final int slot, final int fromDay, final int toDay,
+                                   final BookedRangeConsumer consumer) {
+        calendarLock.readLock().lock();
+        final ReentrantLock slotLock = slotLock(slot);
+        slotLock.lock();
+        try {
+            if (slot >= roomsBySlot.size()) {
+                return;
+            }
+
+            final List<Reservation> outside = outsideReservationsBySlot.get(slot);
+            if (outside == null) {
+                forEachCalendarRange(slot, fromDay, toDay, consumer);
+                return;
+            }
+
+            // Rare: merge the calendar ranges with the stays outside it, in ascending order
+            final List<int[]> ranges = new ArrayList<>();
+            forEachCalendarRange(slot, fromDay, toDay, (firstNight, endNight) -> ranges.add(new int[]{firstNight, endNight}));
+            for (Reservation reservation : outside) {
+                if (reservation.getCheckInDay() < toDay && fromDay < reservation.getCheckOutDay()) {
+                    ranges.add(new int[]{reservation.getCheckInDay(), reservation.getCheckOutDay()});
+                }
+            }
+            ranges.sort((range, other) -> Integer.compare(range[0], other[0]));
+            for (int[] range : ranges) {
+                consumer.accept(range[0], range[1]);
+            }
+        } finally {
+            slotLock.unlock();
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay) {
+        calendarLock.readLock().lock();
+        try {
+            final long[] bookedWords = new long[slotWords];
+
+            if (originDay != Integer.MIN_VALUE) {
+                final int firstNight = Math.max(0, checkInDay - originDay);
+                final int lastNight = Math.min(bookedSlotsByNight.length(), checkOutDay - originDay);
+                for (int night = firstNight; night < lastNight; night++) {
+                    final AtomicLongArray words = bookedSlotsByNight.get(night);
+                    if (words == null) {
+                        continue;
+                    }
+                    for (int word = 0; word < bookedWords.length; word++) {
+                        bookedWords[word] |= words.get(word);
+                    }
+                }
+            }
+            final BitSet bookedSlots = BitSet.valueOf(bookedWords);
+            for (Map.Entry<Integer, List<Reservation>> outside : outsideReservationsBySlot.entrySet()) {
+                if (overlapsOutside(outside.getKey(), checkInDay, checkOutDay)) {
+                    bookedSlots.set(outside.getKey());
+                }
+            }
+
+            final List<IRoom> availableRooms = new ArrayList<>(Math.max(0, roomsBySlot.size() - bookedSlots.cardinality()));
+            for (int slot = bookedSlots.nextClearBit(0); slot < roomsBySlot.size(); slot = bookedSlots.nextClearBit(slot + 1)) {
+                final IRoom room = roomsBySlot.get(slot);
+                if (room != null) {
+                    availableRooms.add(room);
+                }
+            }
+
+            return availableRooms;
+        } finally {
+            calendarLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the calendar lock shared, once the slot is registered and, for a stay within the horizon,
+     * the calendar covers the stay. If either needs a change, the lock is taken exclusively first to make it
+     * and then downgraded, so the calendar still covers the stay once the shared lock is held.
+     *
+     * @param slot the id of the room
+     * @param room the room, registered in the slot if the slot is empty
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     */
+    private void lockCalendar(final int slot, final IRoom room, final int checkInDay, final int checkOutDay) {
+        calendarLock.readLock().lock();
+        final boolean fitsHorizon = checkInDay < checkOutDay && withinHorizon(checkInDay, checkOutDay);
+        if (isRegistered(slot) && (!fitsHorizon || covers(checkInDay, checkOutDay))) {
+            return;
+        }
+        calendarLock.readLock().unlock();
+
+        calendarLock.writeLock().lock();
+        try {
+            if (!isRegistered(slot)) {
+                registerSlot(slot, room);
+            }
+            if (fitsHorizon) {
+                cover(checkInDay, checkOutDay);
+            }
+            calendarLock.readLock().lock();
+        } finally {
+            calendarLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the nights of a reservation as booked in both views of the calendar, or keeps it in the room's list
+     * of stays outside the horizon if the calendar does not cover it.
+     * The caller must hold the calendar lock and the slot's lock.
+     *
+     * @param slot the id of the reserved room
+     * @param reservation the reservation to mark
+     */
+    private void markBooked(final int slot, final Reservation reservation) {
+        if (reservation.getCheckInDay() >= reservation.getCheckOutDay()) {
+            return;
+        }
+        if (!covers(reservation.getCheckInDay(), reservation.getCheckOutDay())) {
+            outsideReservationsBySlot.computeIfAbsent(slot, key -> new CopyOnWriteArrayList<>()).add(reservation);
+            return;
+        }
+
+        final int firstNight = reservation.getCheckInDay() - originDay;
+        final int lastNight = reservation.getCheckOutDay() - originDay;
+        bookedNightsBySlot.get(slot).set(firstNight, lastNight);
+        for (int night = firstNight; night < lastNight; night++) {
+            setSlot(night, slot);
+        }
+    }
+
+    /**
+     * Marks the nights of a reservation as free in both views of the calendar, or drops it from the room's list
+     * of stays outside the horizon. Nights the calendar has already dropped are left alone.
+     * The caller must hold the calendar lock and the slot's lock.
+     *
+     * @param slot the id of the reserved room
+     * @param reservation the reservation to mark
+     */
+    private void markFree(final int slot, final Reservation reservation) {
+        final List<Reservation> outside = outsideReservationsBySlot.get(slot);
+        if (outside != null && outside.remove(reservation)) {
+            if (outside.isEmpty()) {
+                outsideReservationsBySlot.remove(slot);
+            }
+            return;
+        }
+        if (originDay == Integer.MIN_VALUE) {
+            return;
+        }
+
+        final int firstNight = Math.max(0, reservation.getCheckInDay() - originDay);
+        final int lastNight = Math.min(bookedSlotsByNight.length(), reservation.getCheckOutDay() - originDay);
+        if (firstNight >= lastNight) {
+            return;
+        }
+
+        bookedNightsBySlot.get(slot).clear(firstNight, lastNight);
+        for (int night = firstNight; night < lastNight; night++) {
+            clearSlot(night, slot);
+        }
+    }
+
+    /**
+     * Checks if a registered room is free for a range of nights.
+     * The caller must hold the calendar lock and the slot's lock.
+     *
+     * @param slot the id of the room
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if no stay of the room overlaps the range, false otherwise
+     */
+    private boolean isFree(final int slot, final int checkInDay, final int checkOutDay) {
+        if (overlapsOutside(slot, checkInDay, checkOutDay)) {
+            return false;
+        }
+        if (originDay == Integer.MIN_VALUE) {
+            return true;
+        }
+
+        final int firstNight = Math.max(0, checkInDay - originDay);
+        final int lastNight = checkOutDay - originDay;
+        if (firstNight >= lastNight) {
+            return true;
+        }
+
+        final int bookedNight = bookedNightsBySlot.get(slot).nextSetBit(firstNight);
+        return bookedNight < 0 || bookedNight >= lastNight;
+    }
+
+    /**
+     * Sets a slot's bit in the booked slots of a night, creating the night's words if it has none yet.
+     * The caller must hold the calendar lock.
+     *
+     * @param night the night offset from the origin
+     * @param slot the id of the room
+     */
+    private void setSlot(final int night, final int slot) {
+        AtomicLongArray words = bookedSlotsByNight.get(night);
+        if (words == null) {
+            bookedSlotsByNight.compareAndSet(night, null, new AtomicLongArray(slotWords));
+            words = bookedSlotsByNight.get(night);
+        }
+        final long bit = 1L << slot;
+        words.getAndAccumulate(slot >>> 6, bit, (word, mask) -> word | mask);
+    }
+
+    /**
+     * Clears a slot's bit in the booked slots of a night.
+     * The caller must hold the calendar lock.
+     *
+     * @param night the night offset from the origin
+     * @param slot the id of the room
+     */
+    private void clearSlot(final int night, final int slot) {
+        final AtomicLongArray words = bookedSlotsByNight.get(night);
+        if (words != null) {
+            final long bit = 1L << slot;
+            words.getAndAccumulate(slot >>> 6, bit, (word, mask) -> word & ~mask);
+        }
+    }
+
+    /**
+     * Reports the booked ranges of a room held in the calendar, leaving out stays outside the horizon.
+     * The caller must hold the calendar lock and the slot's lock.
+     *
+     * @param slot the id of the room
+     * @param fromDay the first night of interest, as an epoch day
+     * @param toDay the night after the last night of interest, as an epoch day
+     * @param consumer receives each booked range
+     */
+    private void forEachCalendarRange(final int slot, final int fromDay, final int toDay,
+                                      final BookedRangeConsumer consumer) {
+        if (originDay == Integer.MIN_VALUE) {
+            return;
+        }
+
+        final BitSet nights = bookedNightsBySlot.get(slot);
+        final int lastNight = toDay - originDay;
+        for (int start = nights.nextSetBit(Math.max(0, fromDay - originDay));
+             start >= 0 && start < lastNight;
+             start = nights.nextSetBit(start)) {
+            final int end = nights.nextClearBit(start);
+            consumer.accept(originDay + start, originDay + end);
+            start = end;
+        }
+    }
+
+    /**
+     * Checks if a stay outside the horizon of a room overlaps with a range of nights.
+     *
+     * @param slot the id of the room
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if one of the room's stays outside the horizon overlaps the range, false otherwise
+     */
+    private boolean overlapsOutside(final int slot, final int checkInDay, final int checkOutDay) {
+        final List<Reservation> outside = outsideReservationsBySlot.get(slot);
+        if (outside == null) {
+            return false;
+        }
+        for (Reservation reservation : outside) {
+            if (reservation.getCheckInDay() < checkOutDay && checkInDay < reservation.getCheckOutDay()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a stay lies within the nights the calendar may cover.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if the stay can be stored in the calendar, false if it must be kept outside it
+     */
+    private static boolean withinHorizon(final int checkInDay, final int checkOutDay) {
+        final int today = EpochDays.today();
+        return checkInDay >= today - MAX_PAST_NIGHTS && checkOutDay <= today + MAX_FUTURE_NIGHTS;
+    }
+
+    /**
+     * Checks if the calendar currently holds every night of a stay.
+     * The caller must hold the calendar lock.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if the stay's nights can be marked in the calendar as it is
+     */
+    private boolean covers(final int checkInDay, final int checkOutDay) {
+        return originDay != Integer.MIN_VALUE && checkInDay >= originDay
+                && checkOutDay - originDay <= bookedSlotsByNight.length();
+    }
+
+    /**
+     * Checks if a slot has a room registered.
+     * The caller must hold the calendar lock.
+     *
+     * @param slot the id of the room
+     * @return true if the slot holds a room
+     */
+    private boolean isRegistered(final int slot) {
+        return slot < roomsBySlot.size() && roomsBySlot.get(slot) != null;
+    }
+
+    /**
+     * Returns the lock guarding the nights of a slot.
+     *
+     * @param slot the id of the room
+     * @return the lock of the slot's stripe
+     */
+    private ReentrantLock slotLock(final int slot) {
+        return slotLocks[slot & (SLOT_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Stores a room in its slot, growing the per-slot lists and the words of every night up to the slot if needed.
+     * The caller must hold the calendar lock exclusively.
+     *
+     * @param slot the id of the room
+     * @param room the room to store
+     */
+    private void registerSlot(final int slot, final IRoom room) {
+        while (roomsBySlot.size() <= slot) {
+            roomsBySlot.add(null);
+            bookedNightsBySlot.add(new BitSet());
+        }
+        roomsBySlot.set(slot, room);
+
+        final int neededWords = (slot >>> 6) + 1;
+        if (neededWords <= slotWords) {
+            return;
+        }
+        final int grownWords = Math.max(neededWords, 2 * slotWords);
+        for (int night = 0; night < bookedSlotsByNight.length(); night++) {
+            final AtomicLongArray words = bookedSlotsByNight.get(night);
+            if (words != null) {
+                final AtomicLongArray grown = new AtomicLongArray(grownWords);
+                for (int word = 0; word < slotWords; word++) {
+                    grown.set(word, words.get(word));
+                }
+                bookedSlotsByNight.set(night, grown);
+            }
+        }
+        slotWords = grownWords;
+    }
+
+    /**
+     * Makes the calendar cover a stay within the horizon: sets the origin on the first stay, rebases
+     * the calendar for a stay before the origin, and grows it for a stay past its end. Before growing,
+     * the nights that have fallen behind the horizon are dropped.
+     * The caller must hold the calendar lock exclusively.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     */
+    private void cover(final int checkInDay, final int checkOutDay) {
+        if (originDay == Integer.MIN_VALUE) {
+            originDay = checkInDay;
+        } else if (checkInDay < originDay) {
+            rebase(checkInDay);
+        }
+        if (checkOutDay - originDay <= bookedSlotsByNight.length()) {
+            return;
+        }
+
+        final int horizonStart = EpochDays.today() - MAX_PAST_NIGHTS;
+        if (originDay < horizonStart && checkInDay >= horizonStart) {
+            rollForward(horizonStart);
+        }
+        final int neededNights = checkOutDay - originDay;
+        resizeNights(0, (neededNights + NIGHT_BLOCK - 1) / NIGHT_BLOCK * NIGHT_BLOCK);
+    }
+
+    /**
+     * Moves the origin back to an earlier day, shifting every bitmap accordingly.
+     * The caller must hold the calendar lock exclusively.
+     *
+     * @param epochDay the new origin, as an epoch day
+     */
+    private void rebase(final int epochDay) {
+        final int shift = originDay - epochDay;
+
+        bookedNightsBySlot.replaceAll(nights -> {
+            final BitSet shifted = new BitSet(nights.length() + shift);
+            for (int start = nights.nextSetBit(0); start >= 0; start = nights.nextSetBit(start)) {
+                final int end = nights.nextClearBit(start);
+                shifted.set(start + shift, end + shift);
+                start = end;
+            }
+            return shifted;
+        });
+        resizeNights(-shift, bookedSlotsByNight.length() + shift);
+        originDay = epochDay;
+    }
+
+    /**
+     * Drops all nights before the given day from the calendar.
+     * Searches that start before the new origin no longer see the dropped reservations.
+     * The caller must hold the calendar lock exclusively.
+     *
+     * @param epochDay the first night to keep, as an epoch day
+     */
+    private void rollForward(final int epochDay) {
+        final int shift = epochDay - originDay;
+        bookedNightsBySlot.replaceAll(nights -> nights.get(shift, Math.max(shift, nights.length())));
+        resizeNights(shift, Math.max(0, bookedSlotsByNight.length() - shift));
+        originDay = epochDay;
+    }
+
+    /**
+     * Replaces the nights of the calendar with a new array of the given length, whose first night is
+     * the given night of the current one. Nights before the current first night are empty.
+     * The caller must hold the calendar lock exclusively.
+     *
+     * @param firstNight the current night that becomes the first one, negative to prepend empty nights
+     * @param length the number of nights of the new calendar
+     */
+    private void resizeNights(final int firstNight, final int length) {
+        final AtomicReferenceArray<AtomicLongArray> resized = new AtomicReferenceArray<>(length);
+        for (int night = Math.max(0, -firstNight); night < length; night++) {
+            if (firstNight + night < bookedSlotsByNight.length()) {
+                resized.set(night, bookedSlotsByNight.get(firstNight + night));
+            }
+        }
+        bookedSlotsByNight = resized;
+    }
+}
@@ -0,0 +1,428 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.customer.CustomerService;
+import storage.WriteAheadLog;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BookingSequencer
+ * <p>
+ * Single-writer pipeline for the mutating operations of the hotel: adding rooms, adding customers and reserving rooms.
+ * Callers put commands on a bounded {@link CommandRing} and get a future back; one writer thread drains the ring
+ * in batches, applies each batch in ring order, and completes the futures once the batch is applied and durable.
+ * <p>
+ * Batching amortizes the cost of every command over the batch: consecutive reservations are checked and
+ * registered with the availability engine in one update, under one acquisition of their room locks, and the
+ * write-ahead log is waited on once per batch instead of once per command. Each command is appended to the log
+ * as it is applied, under the same room locks as the operations that bypass the sequencer, so the order of the log
+ * is the order in which changes took effect, and replaying it reproduces the same state.
+ * <p>
+ * Reads keep going straight to {@link ReservationService} and {@link CustomerService}, and see every command whose
+ * future has completed. With {@link AvailabilityBackend#OPTIMISTIC_SNAPSHOT} the writer publishes an immutable
+ * snapshot of each room it books and searches read those snapshots without taking any lock.
+ * <p>
+ * When the ring is full, callers wait for the writer to make room rather than queueing without bound.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class BookingSequencer implements AutoCloseable {
+
+    /**
+     * Default number of commands the ring holds.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Default largest number of commands applied in one batch.
+     */
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long FULL_RING_PARK_NANOS = 10_000;
+
+    private final ReservationService reservationService;
+    private final CustomerService customerService;
+    private final CommandRing<Command<?>> ring;
+    private final int maxBatch;
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    private volatile long appliedCommands;
+
+    /**
+     * Constructs a sequencer over the given services and starts its writer thread.
+     *
+     * @param reservationService the reservation service to apply rooms and reservations to
+     * @param customerService the customer service to apply customers to
+     * @param capacity the number of commands the ring holds, rounded up to a power of two
+     * @param maxBatch the largest number of commands applied in one batch
+     * @throws IllegalArgumentException if the capacity or batch size is not positive
+     */
+    public BookingSequencer(final ReservationService reservationService, final CustomerService customerService,
+                            final int capacity, final int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive: " + capacity + ", " + maxBatch);
+        }
+
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+        this.ring = new CommandRing<>(capacity);
+        this.maxBatch = maxBatch;
+        this.writer = new Thread(this::runWriter, "booking-sequencer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Adds a room to the hotel.
+     *
+     * @param room the room to add
+     * @return a future completed with the room once it is added and durable
+     */
+    public CompletableFuture<IRoom> addRoom(final IRoom room) {
+        return submit(new AddRoomCommand(room));
+    }
+
+    /**
+     * Adds a new customer.
+     *
+     * @param email the email of the customer
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     * @return a future completed with the customer once it is added and durable,
+     * or failed with {@link IllegalArgumentException} if the email format is incorrect
+     */
+    public CompletableFuture<Customer> addCustomer(final String email, final String firstName, final String lastName) {
+        return submit(new AddCustomerCommand(email, firstName, lastName));
+    }
+
+    /**
+     * Reserves a room for a customer for the specified dates.
+     *
+     * @param customer the customer reserving the room
+     * @param room the room to reserve
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @return a future completed with the reservation once it is applied and durable,
+     * or failed with {@link RoomNotAvailableException} if the room is already booked during the given dates
+     */
+    public CompletableFuture<Reservation> reserveARoom(final Customer customer, final IRoom room,
+                                                       final Date checkInDate, final Date checkOutDate) {
+        return submit(new ReserveCommand(new Reservation(customer, room, checkInDate, checkOutDate)));
+    }
+
+    /**
+     * Gets the number of commands applied so far, including the rejected ones.
+     *
+     * @return the number of applied commands
+     */
+    public long getAppliedCommands() {
+        return appliedCommands;
+    }
+
+    /**
+     * Stops accepting commands, lets the writer apply the commands already in the ring, and waits for it to finish.
+     * Commands submitted concurrently with closing may be failed with {@link IllegalStateException} instead.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        awaitWriter();
+        failStranded();
+    }
+
+    /**
+     * Puts a command on the ring, waiting while the ring is full.
+     *
+     * @param command the command to submit
+     * @param <T> the type of the command's result
+     * @return the future of the command
+     */
+    private <T> CompletableFuture<T> submit(final Command<T> command) {
+        int spins = 0;
+        while (!ring.offer(command)) {
+            if (closed) {
+                command.future.completeExceptionally(new IllegalStateException("The booking sequencer is closed."));
+                return command.future;
+            }
+            if (++spins < SPINS_BEFORE_PARKING) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+            }
+        }
+
+        if (closed) {
+            // The writer may have stopped before seeing the command; fail it once the writer is done
+            awaitWriter();
+            failStranded();
+        } else if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return command.future;
+    }
+
+    /**
+     * Waits for the writer thread to stop, preserving the interrupt status of the calling thread.
+     */
+    private void awaitWriter() {
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fails the commands left in the ring after the writer has stopped.
+     */
+    private synchronized void failStranded() {
+        final List<Command<?>> stranded = new ArrayList<>();
+        ring.drainTo(stranded, Integer.MAX_VALUE);
+        for (Command<?> command : stranded) {
+            command.future.completeExceptionally(new IllegalStateException("The booking sequencer is closed."));
+        }
+    }
+
+    /**
+     * Body of the writer thread: drains and applies batches until the sequencer is closed and the ring is empty.
+     */
+    private void runWriter() {
+        final List<Command<?>> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            ring.drainTo(batch, maxBatch);
+            if (!batch.isEmpty()) {
+                try {
+                    applyBatch(batch);
+                } catch (RuntimeException ex) {
+                    // Keep the only writer alive; the commands of this batch fail instead of waiting forever
+                    failBatch(batch, ex);
+                }
+                batch.clear();
+                continue;
+            }
+
+            if (closed) {
+                return;
+            }
+            writerParked = true;
+            if (!ring.hasPublished() && !closed) {
+                LockSupport.park(this);
+            }
+            writerParked = false;
+        }
+    }
+
+    /**
+     * Applies a batch in order, logging each command that succeeds as it is applied, waits for the log once,
+     * and completes the futures. Runs of consecutive reservations are applied together.
+     *
+     * @param batch the commands to apply, in ring order
+     */
+    private void applyBatch(final List<Command<?>> batch) {
+        final WriteAheadLog log = reservationService.writeAheadLog();
+        int next = 0;
+        while (next < batch.size()) {
+            if (!(batch.get(next) instanceof ReserveCommand)) {
+                batch.get(next++).applyAlone(log);
+                continue;
+            }
+
+            final int runStart = next;
+            final List<Reservation> run = new ArrayList<>();
+            while (next < batch.size() && batch.get(next) instanceof ReserveCommand reserve) {
+                run.add(reserve.reservation);
+                next++;
+            }
+
+            final long[] logPositions = new long[run.size()];
+            final RuntimeException[] failures = reservationService.applyReservations(run, log, logPositions);
+            for (int i = 0; i < failures.length; i++) {
+                final ReserveCommand reserve = (ReserveCommand) batch.get(runStart + i);
+                if (failures[i] == null) {
+                    reserve.logPosition = logPositions[i];
+                    reserve.succeed(reserve.reservation);
+                } else {
+                    reserve.failure = failures[i];
+                }
+            }
+        }
+
+        RuntimeException logFailure = null;
+        if (log != null) {
+            long position = -1;
+            for (Command<?> command : batch) {
+                if (command.failure == null) {
+                    position = Math.max(position, command.logPosition);
+                }
+            }
+            try {
+                if (position >= 0) {
+                    log.awaitDurable(position);
+                }
+            } catch (RuntimeException ex) {
+                logFailure = ex;
+            }
+        }
+
+        appliedCommands += batch.size();
+        for (Command<?> command : batch) {
+            command.complete(logFailure);
+        }
+    }
+
+    /**
+     * Fails the commands of a batch that could not be applied, leaving the ones already completed as they are.
+     *
+     * @param batch the commands of the batch
+     * @param failure the exception the batch failed with
+     */
+    private void failBatch(final List<Command<?>> batch, final RuntimeException failure) {
+        appliedCommands += batch.size();
+        for (Command<?> command : batch) {
+            command.future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * A mutating operation waiting in the ring, with the future its caller holds.
+     *
+     * @param <T> the type of the result
+     */
+    private abstract static class Command<T> {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        RuntimeException failure;
+        long logPosition = -1;
+
+        /**
+         * Applies the command on its own, recording its result or failure.
+         *
+         * @param log the log to append the command to, or null
+         */
+        void applyAlone(final WriteAheadLog log) {
+            try {
+                succeed(apply(log));
+            } catch (RuntimeException ex) {
+                failure = ex;
+            }
+        }
+
+        /**
+         * Records the result of a command that was applied.
+         *
+         * @param result the result
+         */
+        void succeed(final T result) {
+            this.result = result;
+        }
+
+        /**
+         * Completes the future with the recorded result or failure.
+         *
+         * @param logFailure the failure of the batch's log write, or null if it succeeded
+         */
+        void complete(final RuntimeException logFailure) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (logFailure != null) {
+                future.completeExceptionally(logFailure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        /**
+         * Applies the command to the services and appends it to the log, if one is given, without waiting for it.
+         * The log position of the record is kept in {@link #logPosition}.
+         *
+         * @param log the log to append to, or null to apply the command without logging it
+         * @return the result of the command
+         */
+        abstract T apply(WriteAheadLog log);
+    }
+
+    /**
+     * Command adding a room.
+     */
+    private final class AddRoomCommand extends Command<IRoom> {
+
+        private final IRoom room;
+
+        AddRoomCommand(final IRoom room) {
+            this.room = room;
+        }
+
+        @Override
+        IRoom apply(final WriteAheadLog log) {
+            logPosition = reservationService.applyRoom(room, log);
+            return room;
+        }
+    }
+
+    /**
+     * Command adding a customer.
+     */
+    private final class AddCustomerCommand extends Command<Customer> {
+
+        private final String email;
+        private final String firstName;
+        private final String lastName;
+
+        AddCustomerCommand(final String email, final String firstName, final String lastName) {
+            this.email = email;
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+
+        @Override
+        Customer apply(final WriteAheadLog log) {
+            final Customer customer = new Customer(firstName, lastName, email);
+            customerService.restoreCustomer(customer);
+            if (log != null) {
+                logPosition = log.appendCustomer(customer);
+            }
+            return customer;
+        }
+    }
+
+    /**
+     * Command reserving a room; applied together with the reservations next to it in the batch.
+     */
+    private final class ReserveCommand extends Command<Reservation> {
+
+        private final Reservation reservation;
+
+        ReserveCommand(final Reservation reservation) {
+            this.reservation = reservation;
+        }
+
+        @Override
+        Reservation apply(final WriteAheadLog log) {
+            final long[] logPositions = new long[1];
+            final RuntimeException[] failures = reservationService.applyReservations(List.of(reservation), log,
+                    logPositions);
+            if (failures[0] != null) {
+                throw failures[0];
+            }
+            logPosition = logPositions[0];
+            return reservation;
+        }
+    }
+}
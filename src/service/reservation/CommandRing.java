@@ -0,0 +1,99 @@
+package service.reservation;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * CommandRing
+ * <p>
+ * Bounded ring buffer handing commands from many producer threads to a single consumer thread without locks.
+ * Every slot carries a sequence number: a producer claims the next position with compare-and-set, fills the slot,
+ * and publishes it by advancing the slot's sequence; the consumer takes published slots in position order
+ * and hands each slot back to the producers by advancing its sequence by one lap.
+ * A full ring rejects new commands instead of growing, so producers feel back-pressure from a slow consumer.
+ *
+ * @param <T> the type of the commands
+ * @author ahmad deni atmaja saputra
+ */
+class CommandRing<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Constructs an empty ring holding at least the given number of commands, rounded up to a power of two.
+     *
+     * @param minimumCapacity the minimum number of commands the ring can hold
+     */
+    CommandRing(final int minimumCapacity) {
+        final int capacity = Integer.highestOneBit(Math.max(1, minimumCapacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a command at the end of the ring. May be called from any thread.
+     *
+     * @param command the command to add
+     * @return true if the command was added, false if the ring is full
+     */
+    boolean offer(final T command) {
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, command);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Moves the published commands at the front of the ring into a collection, oldest first.
+     * Must only be called from the consumer thread.
+     *
+     * @param sink the collection to add the commands to
+     * @param maxCommands the largest number of commands to move
+     * @return the number of commands moved
+     */
+    int drainTo(final Collection<? super T> sink, final int maxCommands) {
+        int drained = 0;
+        while (drained < maxCommands) {
+            final int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            sink.add(slots.get(index));
+            slots.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Checks if a published command is waiting at the front of the ring.
+     * Must only be called from the consumer thread.
+     *
+     * @return true if the next {@link #drainTo} would move at least one command
+     */
+    boolean hasPublished() {
+        return sequences.get((int) head & mask) == head + 1;
+    }
+}
@@ -0,0 +1,77 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.registry.IdTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * IntervalAvailabilityEngine
+ * <p>
+ * Availability engine backed by one {@link RoomReservationIndex} per room, indexed by room id.
+ * A search checks every room against its own index, so its cost depends on the number of rooms
+ * and the reservations close to the requested range, not on the whole booking history.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class IntervalAvailabilityEngine implements AvailabilityEngine {
+
+    private final IdTable<IRoom> rooms = new IdTable<>();
+    private final IdTable<RoomReservationIndex> roomReservations = new IdTable<>();
+
+    @Override
+    public void addRoom(final int roomId, final IRoom room) {
+        rooms.set(roomId, room);
+        roomReservations.computeIfAbsent(roomId, id -> new RoomReservationIndex());
+    }
+
+    @Override
+    public void removeRoom(final int roomId) {
+        rooms.set(roomId, null);
+        roomReservations.set(roomId, null);
+    }
+
+    @Override
+    public void addReservation(final int roomId, final Reservation reservation) {
+        rooms.computeIfAbsent(roomId, id -> reservation.getRoom());
+        roomReservations.computeIfAbsent(roomId, id -> new RoomReservationIndex()).add(reservation);
+    }
+
+    @Override
+    public void removeReservation(final int roomId, final Reservation reservation) {
+        final RoomReservationIndex index = roomReservations.get(roomId);
+        if (index != null) {
+            index.remove(reservation);
+        }
+    }
+
+    @Override
+    public boolean isAvailable(final int roomId, final int checkInDay, final int checkOutDay) {
+        final RoomReservationIndex index = roomReservations.get(roomId);
+        return index == null || !index.overlaps(checkInDay, checkOutDay);
+    }
+
+    @Override
+    public void forEachBookedRange(final int roomId, final int fromDay, final int toDay,
+                                   final BookedRangeConsumer consumer) {
+        final RoomReservationIndex index = roomReservations.get(roomId);
+        if (index != null) {
+            index.forEachOverlapping(fromDay, toDay, reservation -> consumer.accept(
+                    reservation.getCheckInDay(), reservation.getCheckOutDay()));
+        }
+    }
+
+    @Override
+    public Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay) {
+        final List<IRoom> availableRooms = new ArrayList<>();
+        rooms.forEachWithId((room, roomId) -> {
+            if (isAvailable(roomId, checkInDay, checkOutDay)) {
+                availableRooms.add(room);
+            }
+        });
+        return availableRooms;
+    }
+}
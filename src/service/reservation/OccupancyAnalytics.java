@@ -0,0 +1,199 @@
+package service.reservation;
+
+import model.reservation.EpochDays;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.enums.RoomType;
+import service.registry.IdTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * OccupancyAnalytics
+ * <p>
+ * Computes an {@link OccupancyReport} with a fork/join reduction over the reservations, indexed by customer id.
+ * The customer id range is split in half until a task covers a few hundred customers; each leaf sums its
+ * reservations into its own totals, and the totals of sibling tasks are added together on the way back up.
+ * Room nights are counted in a difference array, one increment at the first night in range and one decrement
+ * after the last, so the cost of a reservation does not depend on its length; the nightly counts are
+ * recovered with one prefix sum at the end.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class OccupancyAnalytics {
+
+    /**
+     * Length of stay from which stays are counted together in the last histogram bucket.
+     */
+    static final int MAX_TRACKED_NIGHTS = 30;
+
+    private static final int CUSTOMERS_PER_TASK = 256;
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private OccupancyAnalytics() {}
+
+    /**
+     * Computes the report of a range of nights.
+     *
+     * @param reservationsByCustomer the reservations of every customer, indexed by customer id
+     * @param roomCount the number of rooms available each night
+     * @param startDay the epoch day of the first night
+     * @param endDay the epoch day after the last night
+     * @return the report
+     */
+    static OccupancyReport compute(final IdTable<? extends Collection<Reservation>> reservationsByCustomer,
+                                   final int roomCount, final int startDay, final int endDay) {
+        final Totals totals = ForkJoinPool.commonPool().invoke(
+                new ReduceTask(reservationsByCustomer, 0, reservationsByCustomer.idBound(), startDay, endDay));
+
+        final List<Double> dailyOccupancyRates = new ArrayList<>(endDay - startDay);
+        long occupied = 0;
+        for (int night = 0; night < endDay - startDay; night++) {
+            occupied += totals.roomNightDeltas[night];
+            dailyOccupancyRates.add(roomCount == 0 ? 0 : (double) occupied / roomCount);
+        }
+
+        final Map<RoomType, Double> revenueByRoomType = new EnumMap<>(RoomType.class);
+        double roomRevenue = 0;
+        for (RoomType roomType : ROOM_TYPES) {
+            revenueByRoomType.put(roomType, totals.revenueByType[roomType.ordinal()]);
+            roomRevenue += totals.revenueByType[roomType.ordinal()];
+        }
+
+        final List<Long> lengthOfStayHistogram = new ArrayList<>(MAX_TRACKED_NIGHTS);
+        for (long stays : totals.staysByLength) {
+            lengthOfStayHistogram.add(stays);
+        }
+
+        return new OccupancyReport(EpochDays.toDate(startDay), EpochDays.toDate(endDay), roomCount,
+                dailyOccupancyRates, totals.roomNightsSold, roomRevenue, revenueByRoomType, lengthOfStayHistogram);
+    }
+
+    /**
+     * Sums the reservations of a range of customer ids, splitting the range among subtasks while it is large.
+     */
+    private static final class ReduceTask extends RecursiveTask<Totals> {
+
+        private static final long serialVersionUID = 1L;
+
+        // Tasks never leave the pool they were forked in
+        private final transient IdTable<? extends Collection<Reservation>> reservationsByCustomer;
+        private final int fromId;
+        private final int toId;
+        private final int startDay;
+        private final int endDay;
+
+        /**
+         * Constructs a task over a range of customer ids.
+         *
+         * @param reservationsByCustomer the reservations of every customer, indexed by customer id
+         * @param fromId the first customer id of the range
+         * @param toId the id after the last customer id of the range
+         * @param startDay the epoch day of the first night
+         * @param endDay the epoch day after the last night
+         */
+        ReduceTask(final IdTable<? extends Collection<Reservation>> reservationsByCustomer, final int fromId,
+                   final int toId, final int startDay, final int endDay) {
+            this.reservationsByCustomer = reservationsByCustomer;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.startDay = startDay;
+            this.endDay = endDay;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (toId - fromId > CUSTOMERS_PER_TASK) {
+                final int middle = (fromId + toId) >>> 1;
+                final ReduceTask left = new ReduceTask(reservationsByCustomer, fromId, middle, startDay, endDay);
+                final ReduceTask right = new ReduceTask(reservationsByCustomer, middle, toId, startDay, endDay);
+                left.fork();
+                final Totals totals = right.compute();
+                totals.add(left.join());
+                return totals;
+            }
+
+            final Totals totals = new Totals(endDay - startDay);
+            for (int customerId = fromId; customerId < toId; customerId++) {
+                final Collection<Reservation> reservations = reservationsByCustomer.get(customerId);
+                if (reservations != null) {
+                    for (Reservation reservation : reservations) {
+                        totals.add(reservation, startDay, endDay);
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Partial sums of a range of customers.
+     */
+    private static final class Totals {
+
+        private final long[] roomNightDeltas;
+        private final double[] revenueByType = new double[ROOM_TYPES.length];
+        private final long[] staysByLength = new long[MAX_TRACKED_NIGHTS];
+        private long roomNightsSold;
+
+        /**
+         * Constructs empty totals.
+         *
+         * @param nights the number of nights in the range
+         */
+        Totals(final int nights) {
+            this.roomNightDeltas = new long[nights + 1];
+        }
+
+        /**
+         * Adds the nights of a reservation that fall inside the range.
+         *
+         * @param reservation the reservation
+         * @param startDay the epoch day of the first night
+         * @param endDay the epoch day after the last night
+         */
+        void add(final Reservation reservation, final int startDay, final int endDay) {
+            final int checkInDay = reservation.getCheckInDay();
+            final int checkOutDay = reservation.getCheckOutDay();
+            if (checkInDay >= startDay && checkInDay < endDay && checkOutDay > checkInDay) {
+                staysByLength[Math.min(checkOutDay - checkInDay, MAX_TRACKED_NIGHTS) - 1]++;
+            }
+
+            final int first = Math.max(checkInDay, startDay);
+            final int last = Math.min(checkOutDay, endDay);
+            if (first >= last) {
+                return;
+            }
+            roomNightDeltas[first - startDay]++;
+            roomNightDeltas[last - startDay]--;
+            roomNightsSold += last - first;
+
+            final IRoom room = reservation.getRoom();
+            revenueByType[room.getRoomType().ordinal()] += (last - first) * room.getRoomPrice();
+        }
+
+        /**
+         * Adds the totals of another range of customers.
+         *
+         * @param other the other totals
+         */
+        void add(final Totals other) {
+            for (int i = 0; i < roomNightDeltas.length; i++) {
+                roomNightDeltas[i] += other.roomNightDeltas[i];
+            }
+            for (int i = 0; i < revenueByType.length; i++) {
+                revenueByType[i] += other.revenueByType[i];
+            }
+            for (int i = 0; i < staysByLength.length; i++) {
+                staysByLength[i] += other.staysByLength[i];
+            }
+            roomNightsSold += other.roomNightsSold;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package service.reservation;
+
+import model.room.enums.RoomType;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OccupancyReport
+ * <p>
+ * Represents the occupancy and revenue of the hotel over a range of nights: the share of rooms occupied each night,
+ * the average daily rate (ADR, revenue per room night sold), the revenue per available room night (RevPAR),
+ * the revenue of each room type, and how many stays of each length began in the range.
+ * Revenue counts the price of every room night inside the range; availability is based on the current rooms.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class OccupancyReport {
+
+    private final Date startDate;
+    private final Date endDate;
+    private final int roomCount;
+    private final List<Double> dailyOccupancyRates;
+    private final long roomNightsSold;
+    private final double roomRevenue;
+    private final Map<RoomType, Double> revenueByRoomType;
+    private final List<Long> lengthOfStayHistogram;
+
+    /**
+     * Constructs an occupancy report.
+     *
+     * @param startDate the first night of the range
+     * @param endDate the day after the last night of the range
+     * @param roomCount the number of rooms available each night
+     * @param dailyOccupancyRates the share of rooms occupied each night, from 0 to 1
+     * @param roomNightsSold the number of room nights reserved in the range
+     * @param roomRevenue the revenue of the room nights reserved in the range
+     * @param revenueByRoomType the revenue of each room type
+     * @param lengthOfStayHistogram the number of stays beginning in the range, by length
+     */
+    public OccupancyReport(Date startDate, Date endDate, int roomCount, List<Double> dailyOccupancyRates,
+                           long roomNightsSold, double roomRevenue, Map<RoomType, Double> revenueByRoomType,
+                           List<Long> lengthOfStayHistogram) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.roomCount = roomCount;
+        this.dailyOccupancyRates = List.copyOf(dailyOccupancyRates);
+        this.roomNightsSold = roomNightsSold;
+        this.roomRevenue = roomRevenue;
+        this.revenueByRoomType = Collections.unmodifiableMap(new EnumMap<>(revenueByRoomType));
+        this.lengthOfStayHistogram = List.copyOf(lengthOfStayHistogram);
+    }
+
+    /**
+     * Gets the first night of the range.
+     *
+     * @return the start date
+     */
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Gets the day after the last night of the range.
+     *
+     * @return the end date
+     */
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Gets the number of rooms available each night.
+     *
+     * @return the room count
+     */
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    /**
+     * Gets the share of rooms occupied each night.
+     *
+     * @return the occupancy rates from 0 to 1, one per night starting with the start date
+     */
+    public List<Double> getDailyOccupancyRates() {
+        return dailyOccupancyRates;
+    }
+
+    /**
+     * Gets the number of room nights reserved in the range.
+     *
+     * @return the room nights sold
+     */
+    public long getRoomNightsSold() {
+        return roomNightsSold;
+    }
+
+    /**
+     * Gets the number of room nights that could have been sold in the range.
+     *
+     * @return the room count times the number of nights
+     */
+    public long getAvailableRoomNights() {
+        return (long) roomCount * dailyOccupancyRates.size();
+    }
+
+    /**
+     * Gets the share of available room nights that were reserved.
+     *
+     * @return the occupancy rate of the whole range, from 0 to 1
+     */
+    public double getOccupancyRate() {
+        final long available = getAvailableRoomNights();
+        return available == 0 ? 0 : (double) roomNightsSold / available;
+    }
+
+    /**
+     * Gets the revenue of the room nights reserved in the range.
+     *
+     * @return the room revenue
+     */
+    public double getRoomRevenue() {
+        return roomRevenue;
+    }
+
+    /**
+     * Gets the average daily rate (ADR).
+     *
+     * @return the revenue per room night sold, or 0 if none was sold
+     */
+    public double getAverageDailyRate() {
+        return roomNightsSold == 0 ? 0 : roomRevenue / roomNightsSold;
+    }
+
+    /**
+     * Gets the revenue per available room (RevPAR).
+     *
+     * @return the revenue per available room night, or 0 if there are no rooms
+     */
+    public double getRevenuePerAvailableRoom() {
+        final long available = getAvailableRoomNights();
+        return available == 0 ? 0 : roomRevenue / available;
+    }
+
+    /**
+     * Gets the revenue of each room type.
+     *
+     * @return an unmodifiable map holding every room type
+     */
+    public Map<RoomType, Double> getRevenueByRoomType() {
+        return revenueByRoomType;
+    }
+
+    /**
+     * Gets the number of stays beginning in the range, by length.
+     *
+     * @return the counts, where element {@code n - 1} counts the stays of {@code n} nights
+     * and the last element counts the stays of that many nights or more
+     */
+    public List<Long> getLengthOfStayHistogram() {
+        return lengthOfStayHistogram;
+    }
+
+    /**
+     * Returns a string representation of the report.
+     *
+     * @return a string containing the main figures
+     */
+    @Override
+    public String toString() {
+        return String.format("OccupancyReport{Nights: %d, Rooms: %d, Occupancy: %.1f%%, Room Nights Sold: %d, "
+                        + "Revenue: $%.2f, ADR: $%.2f, RevPAR: $%.2f, Revenue By Type: %s}",
+                dailyOccupancyRates.size(), roomCount, getOccupancyRate() * 100, roomNightsSold,
+                roomRevenue, getAverageDailyRate(), getRevenuePerAvailableRoom(), revenueByRoomType);
+    }
+}
@@ -0,0 +1,235 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.registry.IdTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * PartitionedAvailabilityEngine
+ * <p>
+ * Splits the rooms, and the reservations of each room, across several shards, each an engine of its own.
+ * A room is assigned to a shard by its {@link RoomPartitioning} when it is first registered, and is given
+ * a dense id local to that shard, so the per-room tables of a shard only cover its own rooms.
+ * Bookings, cancellations and availability checks of a room are routed to the shard owning it;
+ * searches over all rooms are scattered to every shard in parallel and the results gathered,
+ * grouped by shard. Searches run on a pool of their own, with the searching thread taking the first shard,
+ * so they are neither throttled by other work on the common fork/join pool nor stalled when their pool is busy.
+ * Shards do not share any structure, so the shared locks of an engine such as the bitmap calendar
+ * are only contended by the bookings of one shard.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class PartitionedAvailabilityEngine implements AvailabilityEngine {
+
+    // Shared by every partitioned engine, as engines are replaced when the backend changes
+    private static final ExecutorService SHARD_SEARCHES = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().name("shard-search-", 0).daemon().factory());
+
+    private final AvailabilityEngine[] shards;
+    private final RoomPartitioning partitioning;
+    private final IdTable<Placement> placements = new IdTable<>();
+
+    // Guarded by this
+    private final int[] nextLocalIds;
+
+    /**
+     * Constructs an engine with the given number of empty shards.
+     *
+     * @param shardFactory creates the engine of each shard
+     * @param shardCount the number of shards
+     * @param partitioning assigns rooms to shards
+     */
+    PartitionedAvailabilityEngine(final Supplier<AvailabilityEngine> shardFactory, final int shardCount,
+                                  final RoomPartitioning partitioning) {
+        this.shards = new AvailabilityEngine[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = shardFactory.get();
+        }
+        this.partitioning = partitioning;
+        this.nextLocalIds = new int[shardCount];
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void addRoom(final int roomId, final IRoom room) {
+        final Placement placement = placementOf(roomId, room);
+        placement.shard().addRoom(placement.localId(), room);
+    }
+
+    @Override
+    public void removeRoom(final int roomId) {
+        final Placement placement = placements.get(roomId);
+        if (placement != null) {
+            placement.shard().removeRoom(placement.localId());
+        }
+    }
+
+    @Override
+    public void addReservation(final int roomId, final Reservation reservation) {
+        final Placement placement = placementOf(roomId, reservation.getRoom());
+        placement.shard().addReservation(placement.localId(), reservation);
+    }
+
+    @Override
+    public void addReservations(final int[] roomIds, final List<Reservation> reservations) {
+        final int[][] localIds = new int[shards.length][];
+        final List<List<Reservation>> batches = new ArrayList<>(shards.length);
+        final int[] sizes = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            localIds[i] = new int[roomIds.length];
+            batches.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < roomIds.length; i++) {
+            final Placement placement = placementOf(roomIds[i], reservations.get(i).getRoom());
+            final int shard = placement.shardIndex();
+            localIds[shard][sizes[shard]++] = placement.localId();
+            batches.get(shard).add(reservations.get(i));
+        }
+
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (sizes[shard] > 0) {
+                shards[shard].addReservations(Arrays.copyOf(localIds[shard], sizes[shard]), batches.get(shard));
+            }
+        }
+    }
+
+    @Override
+    public void removeReservation(final int roomId, final Reservation reservation) {
+        final Placement placement = placements.get(roomId);
+        if (placement != null) {
+            placement.shard().removeReservation(placement.localId(), reservation);
+        }
+    }
+
+    @Override
+    public boolean addReservationIfAvailable(final int roomId, final Reservation reservation) {
+        final Placement placement = placementOf(roomId, reservation.getRoom());
+        return placement.shard().addReservationIfAvailable(placement.localId(), reservation);
+    }
+
+    @Override
+    public boolean replaceReservation(final int roomId, final Reservation previous, final Reservation replacement) {
+        final Placement placement = placementOf(roomId, replacement.getRoom());
+        return placement.shard().replaceReservation(placement.localId(), previous, replacement);
+    }
+
+    @Override
+    public boolean isLockFree() {
+        return shards[0].isLockFree();
+    }
+
+    @Override
+    public boolean isAvailable(final int roomId, final int checkInDay, final int checkOutDay) {
+        final Placement placement = placements.get(roomId);
+        return placement == null || placement.shard().isAvailable(placement.localId(), checkInDay, checkOutDay);
+    }
+
+    @Override
+    public void forEachBookedRange(final int roomId, final int fromDay, final int toDay,
+                                   final BookedRangeConsumer consumer) {
+        final Placement placement = placements.get(roomId);
+        if (placement != null) {
+            placement.shard().forEachBookedRange(placement.localId(), fromDay, toDay, consumer);
+        }
+    }
+
+    @Override
+    public Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay) {
+        final List<Future<Collection<IRoom>>> scattered = new ArrayList<>(shards.length - 1);
+        for (int i = 1; i < shards.length; i++) {
+            final AvailabilityEngine shard = shards[i];
+            scattered.add(SHARD_SEARCHES.submit(() -> shard.findAvailableRooms(checkInDay, checkOutDay)));
+        }
+
+        final List<Collection<IRoom>> results = new ArrayList<>(shards.length);
+        results.add(shards[0].findAvailableRooms(checkInDay, checkOutDay));
+        for (Future<Collection<IRoom>> result : scattered) {
+            results.add(gather(result));
+        }
+
+        int total = 0;
+        for (Collection<IRoom> result : results) {
+            total += result.size();
+        }
+        final List<IRoom> availableRooms = new ArrayList<>(total);
+        results.forEach(availableRooms::addAll);
+        return availableRooms;
+    }
+
+    /**
+     * Waits for the search of one shard.
+     *
+     * @param result the pending search
+     * @return the available rooms of the shard
+     */
+    private static Collection<IRoom> gather(final Future<Collection<IRoom>> result) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the shard and local id of a room, assigning them the first time the room is seen.
+     *
+     * @param roomId the service-wide id of the room
+     * @param room the room
+     * @return the placement of the room
+     */
+    private Placement placementOf(final int roomId, final IRoom room) {
+        final Placement existing = placements.get(roomId);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (this) {
+            final Placement current = placements.get(roomId);
+            if (current != null) {
+                return current;
+            }
+            final int shard = partitioning.shardOf(room.getRoomNumber(), shards.length);
+            final Placement placement = new Placement(shard, shards[shard], nextLocalIds[shard]++);
+            placements.set(roomId, placement);
+            return placement;
+        }
+    }
+
+    /**
+     * Shard owning a room, and the id of the room within that shard.
+     */
+    private record Placement(int shardIndex, AvailabilityEngine shard, int localId) {}
+}
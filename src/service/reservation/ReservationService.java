@@ -1,31 +1,86 @@
 package service.reservation;
 
 import model.customer.Customer;
+import model.reservation.EpochDays;
 import model.reservation.Reservation;
 import model.room.IRoom;
+import service.customer.CustomerService;
+import service.event.FindRoomsEvent;
+import service.event.ReserveRoomEvent;
+import service.registry.IdRegistry;
+import service.registry.IdTable;
+import storage.WriteAheadLog;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * ReservationService
  * <p>
- * Manages reservations, including adding rooms, reserving rooms for customers,
+ * Manages reservations, including adding rooms, reserving rooms for customers, cancelling and moving reservations,
  * finding available rooms, and printing all reservations.
  * Implements a singleton design pattern.
- * Uses maps to store rooms and reservations, where the keys are room numbers and customer emails, respectively.
+ * Assigns every room a dense int id when it is added; availability engines, room locks and the reservations
+ * of each customer (indexed by the customer id from {@link CustomerService}) are kept in id-indexed tables;
+ * a customer's reservations are a skip-list set ordered by check-in day and room number, so a reservation
+ * can be found and removed in logarithmic time.
  * Provides methods to interact with reservations, such as adding, retrieving, and printing.
- * Provides methods to find available rooms for a given date range.
- * Provides methods to check for overlapping reservations.
+ * Provides methods to find available rooms for a given date range, either all at once,
+ * as a lazy stream, or page by page in room number order.
+ * Delegates availability checks to a pluggable {@link AvailabilityEngine}, selected through
+ * {@link AvailabilityBackend}; the default engine is a per-room interval index. The engine can be split into
+ * shards by {@link RoomPartitioning}, in which case searches over all rooms are scattered across the shards
+ * in parallel and gathered.
+ * Is safe for concurrent use: reserving a room checks availability and stores the reservation
+ * atomically under a lock striped by room id, so bookings for different rooms run in parallel.
+ * Rooms can be handed off to another service together with their reservations, and adopted from one.
+ * When a write-ahead log is attached, every change is logged while the locks of its rooms are still held,
+ * so the log keeps the order in which changes to a room took effect; callers wait for durability
+ * outside of any room lock.
+ * Results of {@link #findRooms(Date, Date)} are kept in a bounded {@link AvailabilityCache};
+ * a reservation, cancellation or change of dates only drops the cached searches whose dates overlap with it,
+ * and a new room drops them all.
+ * Searches and bookings emit the flight recorder events {@link FindRoomsEvent} and {@link ReserveRoomEvent},
+ * which are disabled unless a recording enables them.
  *
  * @author ahmad deni atmaja saputra
  */
 public class ReservationService {
 
+    private static final int ROOM_LOCK_STRIPES = 1024;
+    private static final int DEFAULT_AVAILABILITY_CACHE_ENTRIES = 1024;
+
+    private static final Comparator<Reservation> CUSTOMER_RESERVATION_ORDER =
+            Comparator.comparingInt(Reservation::getCheckInDay)
+                    .thenComparing(reservation -> reservation.getRoom().getRoomNumber(), RoomOrder.ROOM_NUMBER_ORDER)
+                    .thenComparingInt(Reservation::getCheckOutDay);
+
     private static final ReservationService SINGLETON = new ReservationService();
 
-    private final Map<String, IRoom> rooms = new HashMap<>();
-    private final Map<String, Collection<Reservation>> reservations = new HashMap<>();
+    private final ConcurrentNavigableMap<String, IRoom> rooms = new ConcurrentSkipListMap<>(RoomOrder.ROOM_NUMBER_ORDER);
+    private final IdRegistry<IRoom> roomIds = new IdRegistry<>();
+    private final IdTable<NavigableSet<Reservation>> reservationsByCustomer = new IdTable<>();
+    // Kept alongside reservationsByCustomer so the count is read without walking every reservation
+    private final LongAdder reservationCount = new LongAdder();
+    private final CustomerService customerService = CustomerService.getSingleton();
+    private final RoomCatalog roomCatalog = new RoomCatalog(RoomOrder.ROOM_NUMBER_ORDER);
+    private final RoomLocks roomLocks = new RoomLocks(ROOM_LOCK_STRIPES);
+    private volatile AvailabilityEngine availabilityEngine = new IntervalAvailabilityEngine();
+    private volatile AvailabilityCache availabilityCache = new AvailabilityCache(DEFAULT_AVAILABILITY_CACHE_ENTRIES);
+    private volatile WriteAheadLog writeAheadLog;
 
     private ReservationService() {}
 
@@ -44,7 +99,303 @@ public class ReservationService {
      * @param room the room to add
      */
     public void addRoom(final IRoom room) {
-        rooms.put(room.getRoomNumber(), room);
+        final WriteAheadLog log = writeAheadLog;
+        final long position = applyRoom(room, log);
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+    }
+
+    /**
+     * Adds many rooms at once: the room locks are taken once for the whole batch,
+     * cached searches are dropped once, and the write-ahead log is waited on once for the last room.
+     * A room whose number already exists replaces the existing room, as with {@link #addRoom(IRoom)}.
+     *
+     * @param newRooms the rooms to add
+     */
+    public void addRooms(final Collection<IRoom> newRooms) {
+        if (newRooms.isEmpty()) {
+            return;
+        }
+
+        final WriteAheadLog log = writeAheadLog;
+        long position = -1;
+        roomLocks.lockAll();
+        try {
+            registerRooms(newRooms);
+            availabilityCache.invalidateAll();
+            if (log != null) {
+                for (IRoom room : newRooms) {
+                    position = log.appendRoom(room);
+                }
+            }
+        } finally {
+            roomLocks.unlockAll();
+        }
+
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+    }
+
+    /**
+     * Adds rooms handed over by another service together with their reservations, such as the rooms
+     * a cluster node receives when it takes over their ownership.
+     * The reservations are taken as they are, without checking dates against today; a reservation that overlaps
+     * with one the service already has for its room was adopted before and is skipped, so adopting the same rooms
+     * twice is harmless. Only the locks of the adopted rooms are taken. Everything adopted is logged.
+     *
+     * @param newRooms the rooms to add
+     * @param reservations the reservations of those rooms, referring to customers known to this service
+     * @throws IllegalArgumentException if the check-out date of a reservation is not after its check-in date,
+     * a reservation refers to a customer not added to the customer service,
+     * or a reservation refers to a room that is neither adopted nor in the service
+     */
+    public void adoptRooms(final Collection<IRoom> newRooms, final Collection<Reservation> reservations) {
+        reservations.forEach(this::requireCustomer);
+        reservations.forEach(ReservationService::requireValidStay);
+        for (IRoom room : newRooms) {
+            roomIds.register(room.getRoomNumber(), room);
+        }
+        final int[] roomIds = Stream.concat(newRooms.stream(), reservations.stream().map(Reservation::getRoom))
+                .mapToInt(this::roomIdOf)
+                .distinct()
+                .toArray();
+
+        final WriteAheadLog log = writeAheadLog;
+        long position = -1;
+        final int[] stripes = roomLocks.lock(roomIds);
+        try {
+            registerRooms(newRooms);
+            if (log != null) {
+                for (IRoom room : newRooms) {
+                    position = log.appendRoom(room);
+                }
+            }
+            final AvailabilityEngine engine = availabilityEngine;
+            for (Reservation reservation : reservations) {
+                if (engine.addReservationIfAvailable(roomIdOf(reservation.getRoom()), reservation)) {
+                    if (log != null) {
+                        position = log.appendReservation(reservation);
+                    }
+                    addCustomerReservation(reservation);
+                }
+            }
+            availabilityCache.invalidateAll();
+        } finally {
+            roomLocks.unlock(stripes);
+        }
+
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+    }
+
+    /**
+     * Hands the selected rooms, with their reservations, to a receiver and then removes them from the service.
+     * Under the locks of the selected rooms only, updates of the rooms are held back and their reservations
+     * are collected; the receiver then gets them with no lock held, so it may take as long as it needs,
+     * even calling another service that hands rooms back at the same time. Held-back updates wait until the rooms
+     * have been removed and then fail as for a room that is not in the service.
+     * Before removing the rooms their reservations are collected again under their locks and, if they changed
+     * while the receiver ran, the receiver gets them again. Lock-free reservations are not held back,
+     * so one that lands on a room after the receiver has let another service book the room is lost;
+     * rooms should only be handed off while the service runs a lock-based {@link AvailabilityBackend}.
+     * If the receiver throws, nothing is removed. The removals are logged as the cancellation of every
+     * reservation of the rooms followed by the removal of the rooms.
+     *
+     * @param selector selects the rooms to hand off
+     * @param receiver receives the selected rooms, each with its reservations, in room number order;
+     * it must accept the same rooms again, with reservations added since the previous time
+     * @return the number of rooms handed off
+     */
+    public int handOffRooms(final Predicate<? super IRoom> selector,
+                            final Consumer<? super Map<IRoom, List<Reservation>>> receiver) {
+        final Map<IRoom, List<Reservation>> handedOff = new LinkedHashMap<>();
+        for (IRoom room : rooms.values()) {
+            if (selector.test(room)) {
+                handedOff.put(room, List.of());
+            }
+        }
+        if (handedOff.isEmpty()) {
+            return 0;
+        }
+        final int[] roomIds = handedOff.keySet().stream().mapToInt(this::roomIdOf).toArray();
+
+        int[] stripes = roomLocks.lock(roomIds);
+        try {
+            roomLocks.holdBack(roomIds);
+            collectReservations(handedOff);
+        } finally {
+            roomLocks.unlock(stripes);
+        }
+
+        final WriteAheadLog log = writeAheadLog;
+        long position = -1;
+        try {
+            while (true) {
+                receiver.accept(Collections.unmodifiableMap(handedOff));
+
+                stripes = roomLocks.lock(roomIds);
+                try {
+                    if (collectReservations(handedOff)) {
+                        continue;
+                    }
+
+                    for (Map.Entry<IRoom, List<Reservation>> entry : handedOff.entrySet()) {
+                        removeRoom(entry.getKey(), entry.getValue());
+                        if (log != null) {
+                            for (Reservation reservation : entry.getValue()) {
+                                position = log.appendCancellation(reservation);
+                            }
+                            position = log.appendRoomRemoval(entry.getKey());
+                        }
+                    }
+                    availabilityCache.invalidateAll();
+                    break;
+                } finally {
+                    roomLocks.unlock(stripes);
+                }
+            }
+        } finally {
+            roomLocks.release(roomIds);
+        }
+
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+        return handedOff.size();
+    }
+
+    /**
+     * Replaces the reservations listed for each room with the reservations the room has now.
+     * The caller must hold the locks of the rooms.
+     *
+     * @param roomReservations the rooms, each with the reservations last collected for it
+     * @return true if the reservations of any room differ from the ones last collected
+     */
+    private boolean collectReservations(final Map<IRoom, List<Reservation>> roomReservations) {
+        final Map<String, List<Reservation>> collected = new HashMap<>();
+        for (IRoom room : roomReservations.keySet()) {
+            collected.put(room.getRoomNumber(), new ArrayList<>());
+        }
+        forEachReservation(reservation -> {
+            final List<Reservation> reservations = collected.get(reservation.getRoom().getRoomNumber());
+            if (reservations != null) {
+                reservations.add(reservation);
+            }
+        });
+
+        boolean changed = false;
+        for (Map.Entry<IRoom, List<Reservation>> entry : roomReservations.entrySet()) {
+            final List<Reservation> current = collected.get(entry.getKey().getRoomNumber());
+            // Reservations are compared by identity, so this also catches a stay cancelled and booked again
+            if (current.size() != entry.getValue().size() || !new HashSet<>(current).containsAll(entry.getValue())) {
+                changed = true;
+            }
+            entry.setValue(current);
+        }
+        return changed;
+    }
+
+    /**
+     * Restores the removal of a room from storage without logging it again.
+     * Any reservation of the room still in the service is removed with it.
+     *
+     * @param roomNumber the number of the removed room
+     * @return true if the room was found and removed, false otherwise
+     */
+    public boolean restoreRoomRemoval(final String roomNumber) {
+        final IRoom room = rooms.get(roomNumber);
+        if (room == null) {
+            return false;
+        }
+
+        final List<Reservation> roomReservations = new ArrayList<>();
+        final ReentrantLock roomLock = roomLocks.lockFor(roomIdOf(room));
+        roomLock.lock();
+        try {
+            forEachReservation(reservation -> {
+                if (reservation.getRoom().getRoomNumber().equals(roomNumber)) {
+                    roomReservations.add(reservation);
+                }
+            });
+            removeRoom(room, roomReservations);
+            availabilityCache.invalidateAll();
+        } finally {
+            roomLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Registers rooms with the room index, the availability engine and the room catalog.
+     * The caller must hold the locks of the rooms.
+     *
+     * @param newRooms the rooms to register
+     */
+    private void registerRooms(final Collection<IRoom> newRooms) {
+        for (IRoom room : newRooms) {
+            final int roomId = roomIds.register(room.getRoomNumber(), room);
+            rooms.put(room.getRoomNumber(), room);
+            availabilityEngine.addRoom(roomId, room);
+            roomCatalog.add(room);
+        }
+    }
+
+    /**
+     * Removes a room and its reservations from the customers' reservations, the availability engine,
+     * the room catalog and the room index. The caller must hold the room's lock.
+     *
+     * @param room the room to remove
+     * @param roomReservations every reservation of the room
+     */
+    private void removeRoom(final IRoom room, final List<Reservation> roomReservations) {
+        final int roomId = roomIdOf(room);
+        final AvailabilityEngine engine = availabilityEngine;
+        for (Reservation reservation : roomReservations) {
+            engine.removeReservation(roomId, reservation);
+            final NavigableSet<Reservation> customerReservations =
+                    reservationsByCustomer.get(customerService.customerIdOf(reservation.getCustomer()));
+            if (customerReservations != null && customerReservations.remove(reservation)) {
+                reservationCount.decrement();
+            }
+        }
+        engine.removeRoom(roomId);
+        rooms.remove(room.getRoomNumber(), room);
+        roomCatalog.remove(room);
+        roomIds.remove(room.getRoomNumber());
+    }
+
+    /**
+     * Restores a room from storage without logging it again.
+     *
+     * @param room the room to restore
+     */
+    public void restoreRoom(final IRoom room) {
+        applyRoom(room, null);
+    }
+
+    /**
+     * Adds a room and, if a log is given, appends it to the log under the room's lock without waiting for it.
+     *
+     * @param room the room to add
+     * @param log the log to append to, or null to add the room without logging it
+     * @return the log position of the record, or -1 if no log was given
+     */
+    long applyRoom(final IRoom room, final WriteAheadLog log) {
+        final int roomId = roomIds.register(room.getRoomNumber(), room);
+        final ReentrantLock roomLock = roomLocks.lockFor(roomId);
+        roomLock.lock();
+        try {
+            rooms.put(room.getRoomNumber(), room);
+            availabilityEngine.addRoom(roomId, room);
+            roomCatalog.add(room);
+            availabilityCache.invalidateAll();
+            return log != null ? log.appendRoom(room) : -1;
+        } finally {
+            roomLock.unlock();
+        }
     }
 
     /**
@@ -66,115 +417,1178 @@ public class ReservationService {
         return rooms.values();
     }
 
+    /**
+     * Counts the rooms stored in the service, in constant time.
+     *
+     * @return the number of rooms
+     */
+    public int getRoomCount() {
+        return roomIds.size();
+    }
+
+    /**
+     * Counts the reservations stored in the service, in constant time.
+     * Under concurrent bookings and cancellations the count may lag behind them by a few reservations.
+     *
+     * @return the number of reservations
+     */
+    public long getReservationCount() {
+        return reservationCount.sum();
+    }
+
     /**
      * Reserves a room for a customer for the specified dates.
+     * The availability check and the insertion of the reservation happen atomically for the room,
+     * either under the room's lock or, for a lock-free engine, through the engine's compare-and-set.
      *
      * @param customer the customer reserving the room
      * @param room the room to reserve
      * @param checkInDate the check-in date
      * @param checkOutDate the check-out date
      * @return the reservation object representing the reservation
+     * @throws RoomNotAvailableException if the room is already booked during the given dates
+     * @throws IllegalArgumentException if the customer is null or the check-out date is not after the check-in date
      */
     public Reservation reserveARoom(final Customer customer, final IRoom room,
                                     final Date checkInDate, final Date checkOutDate) {
-        final Reservation reservation = new Reservation(customer, room, checkInDate, checkOutDate);
+        final ReserveRoomEvent event = new ReserveRoomEvent();
+        event.begin();
+        try {
+            final int roomId = roomIdOf(room);
+            final Reservation reservation = new Reservation(customer, room, checkInDate, checkOutDate);
+            final WriteAheadLog log = writeAheadLog;
+            final long position;
+            final AvailabilityEngine engine = availabilityEngine;
+            if (engine.isLockFree()) {
+                roomLocks.awaitRelease(roomId);
+                position = commitReservation(engine, roomId, reservation, log);
+            } else {
+                final ReentrantLock roomLock = roomLocks.lockForUpdate(roomId);
+                try {
+                    position = commitReservation(availabilityEngine, roomId, reservation, log);
+                } finally {
+                    roomLock.unlock();
+                }
+            }
+
+            if (log != null) {
+                log.awaitDurable(position);
+            }
+
+            return reservation;
+        } catch (RoomNotAvailableException ex) {
+            event.conflict = true;
+            throw ex;
+        } finally {
+            if (event.shouldCommit()) {
+                final int checkInDay = EpochDays.toEpochDay(checkInDate);
+                event.roomNumber = room.getRoomNumber();
+                event.checkIn = LocalDate.ofEpochDay(checkInDay).toString();
+                event.nights = EpochDays.toEpochDay(checkOutDate) - checkInDay;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Reserves several rooms for a customer for the same dates, all or nothing.
+     * With a lock-based engine the locks of all rooms are taken once, in a fixed order, every room is checked,
+     * and the whole batch is registered in one engine update. With a lock-free engine each room is committed
+     * with compare-and-set and the rooms already committed are released again if a later one is taken;
+     * searches running at that moment may briefly see part of the batch.
+     * Either way the batch is logged together and the caller waits for durability once.
+     *
+     * @param customer the customer reserving the rooms
+     * @param rooms the rooms to reserve
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @return the reservations, in the order of the given rooms
+     * @throws RoomNotAvailableException if any of the rooms is already booked during the given dates
+     * @throws IllegalArgumentException if the same room is requested more than once, the customer is null,
+     * or the check-out date is not after the check-in date
+     */
+    public List<Reservation> reserveRooms(final Customer customer, final List<IRoom> rooms,
+                                          final Date checkInDate, final Date checkOutDate) {
+        final int[] roomIds = rooms.stream().mapToInt(this::roomIdOf).toArray();
+        if (Arrays.stream(roomIds).distinct().count() != roomIds.length) {
+            throw new IllegalArgumentException("Each room can only be booked once per batch.");
+        }
+
+        final List<Reservation> batch = new ArrayList<>(rooms.size());
+        for (IRoom room : rooms) {
+            batch.add(new Reservation(customer, room, checkInDate, checkOutDate));
+        }
+        if (!batch.isEmpty()) {
+            requireCustomer(batch.get(0));
+            requireValidStay(batch.get(0));
+        }
+
+        final WriteAheadLog log = writeAheadLog;
+        final long position;
+        final AvailabilityEngine engine = availabilityEngine;
+        if (engine.isLockFree()) {
+            commitBatchLockFree(engine, roomIds, batch);
+            position = appendReservations(log, roomIds, batch);
+            batch.forEach(this::addCustomerReservation);
+        } else {
+            final int[] stripes = roomLocks.lockForUpdate(roomIds);
+            try {
+                commitBatch(availabilityEngine, roomIds, batch);
+                position = appendReservations(log, roomIds, batch);
+                batch.forEach(this::addCustomerReservation);
+            } finally {
+                roomLocks.unlock(stripes);
+            }
+        }
+
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Checks every reservation of a batch and registers them together.
+     * The caller must hold the locks of all rooms in the batch.
+     *
+     * @param engine the availability engine to commit to
+     * @param roomIds the id of the room of each reservation, at the same index
+     * @param batch the reservations to commit
+     * @throws RoomNotAvailableException if any room is already booked during its dates
+     */
+    private void commitBatch(final AvailabilityEngine engine, final int[] roomIds, final List<Reservation> batch) {
+        for (int i = 0; i < roomIds.length; i++) {
+            final Reservation reservation = batch.get(i);
+            requireRegistered(roomIds[i], reservation.getRoom());
+            if (!engine.isAvailable(roomIds[i], reservation.getCheckInDay(), reservation.getCheckOutDay())) {
+                throw new RoomNotAvailableException(reservation.getRoom().getRoomNumber(),
+                        reservation.getCheckInDate(), reservation.getCheckOutDate());
+            }
+        }
+        engine.addReservations(roomIds, batch);
+        invalidateCachedSearches(batch.get(0));
+    }
 
-        Collection<Reservation> customerReservations = getCustomersReservation(customer);
+    /**
+     * Commits every reservation of a batch with the engine's compare-and-set,
+     * releasing the ones already committed if a later one fails.
+     *
+     * @param engine the lock-free availability engine to commit to
+     * @param roomIds the id of the room of each reservation, at the same index
+     * @param batch the reservations to commit
+     * @throws RoomNotAvailableException if any room is already booked during its dates
+     */
+    private void commitBatchLockFree(final AvailabilityEngine engine, final int[] roomIds,
+                                     final List<Reservation> batch) {
+        for (int committed = 0; committed < batch.size(); committed++) {
+            final Reservation reservation = batch.get(committed);
+            roomLocks.awaitRelease(roomIds[committed]);
+            if (!engine.addReservationIfAvailable(roomIds[committed], reservation)) {
+                for (int i = committed - 1; i >= 0; i--) {
+                    engine.removeReservation(roomIds[i], batch.get(i));
+                }
+                invalidateCachedSearches(reservation);
+                throw new RoomNotAvailableException(reservation.getRoom().getRoomNumber(),
+                        reservation.getCheckInDate(), reservation.getCheckOutDate());
+            }
+        }
+        invalidateCachedSearches(batch.get(0));
+    }
 
-        if (customerReservations == null) {
-            customerReservations = new LinkedList<>();
+    /**
+     * Applies reservations handed over in order by a single writer, such as the {@link BookingSequencer},
+     * appending the applied ones to the given log without waiting for it. Each reservation is checked against
+     * the engine and against the reservations accepted before it in the same call, so when two of them conflict
+     * the earlier one wins. With a lock-based engine the locks of all the rooms are taken once and the accepted
+     * reservations are registered in one engine update; with a lock-free engine each one is committed with
+     * compare-and-set.
+     *
+     * @param requested the reservations to apply, in order
+     * @param log the log to append to, or null to apply the reservations without logging them
+     * @param logPositions receives, at the index of each applied reservation, the log position of its record,
+     * or -1 if no log was given
+     * @return for each reservation at the same index, the exception it was rejected with, or null if it was applied
+     */
+    RuntimeException[] applyReservations(final List<Reservation> requested, final WriteAheadLog log,
+                                         final long[] logPositions) {
+        final RuntimeException[] failures = new RuntimeException[requested.size()];
+        final int[] roomIds = new int[requested.size()];
+        for (int i = 0; i < roomIds.length; i++) {
+            try {
+                requireCustomer(requested.get(i));
+                requireValidStay(requested.get(i));
+                roomIds[i] = roomIdOf(requested.get(i).getRoom());
+            } catch (IllegalArgumentException ex) {
+                failures[i] = ex;
+            }
+        }
+
+        final AvailabilityEngine engine = availabilityEngine;
+        if (engine.isLockFree()) {
+            for (int i = 0; i < roomIds.length; i++) {
+                final Reservation reservation = requested.get(i);
+                if (failures[i] != null) {
+                    continue;
+                }
+                roomLocks.awaitRelease(roomIds[i]);
+                if (engine.addReservationIfAvailable(roomIds[i], reservation)) {
+                    invalidateCachedSearches(reservation);
+                    try {
+                        logPositions[i] = appendReservation(engine, log, roomIds[i], reservation);
+                    } catch (RuntimeException ex) {
+                        failures[i] = ex;
+                        continue;
+                    }
+                    addCustomerReservation(reservation);
+                } else {
+                    failures[i] = new RoomNotAvailableException(reservation.getRoom().getRoomNumber(),
+                            reservation.getCheckInDate(), reservation.getCheckOutDate());
+                }
+            }
+        } else {
+            final int[] stripes = roomLocks.lockForUpdate(IntStream.range(0, roomIds.length)
+                    .filter(i -> failures[i] == null)
+                    .map(i -> roomIds[i])
+                    .toArray());
+            try {
+                commitInOrder(availabilityEngine, roomIds, requested, failures);
+                for (int i = 0; i < failures.length; i++) {
+                    if (failures[i] == null) {
+                        try {
+                            logPositions[i] = appendReservation(availabilityEngine, log, roomIds[i], requested.get(i));
+                        } catch (RuntimeException ex) {
+                            failures[i] = ex;
+                            continue;
+                        }
+                        addCustomerReservation(requested.get(i));
+                    }
+                }
+            } finally {
+                roomLocks.unlock(stripes);
+            }
         }
+        return failures;
+    }
 
-        customerReservations.add(reservation);
-        reservations.put(customer.getEmail(), customerReservations);
+    /**
+     * Checks reservations in order and registers the accepted ones together.
+     * The caller must hold the locks of all rooms involved.
+     *
+     * @param engine the availability engine to commit to
+     * @param roomIds the id of the room of each reservation, at the same index
+     * @param requested the reservations to commit, in order
+     * @param failures the exception each reservation was rejected with; filled in for the newly rejected ones
+     */
+    private void commitInOrder(final AvailabilityEngine engine, final int[] roomIds, final List<Reservation> requested,
+                               final RuntimeException[] failures) {
+        final Map<Integer, List<Reservation>> acceptedByRoom = new HashMap<>();
+        final List<Reservation> accepted = new ArrayList<>(requested.size());
+        final int[] acceptedRoomIds = new int[requested.size()];
+        for (int i = 0; i < roomIds.length; i++) {
+            if (failures[i] != null) {
+                continue;
+            }
 
+            final Reservation reservation = requested.get(i);
+            try {
+                requireRegistered(roomIds[i], reservation.getRoom());
+            } catch (IllegalArgumentException ex) {
+                failures[i] = ex;
+                continue;
+            }
+            final List<Reservation> sameRoom = acceptedByRoom.computeIfAbsent(roomIds[i], roomId -> new ArrayList<>());
+            if (!engine.isAvailable(roomIds[i], reservation.getCheckInDay(), reservation.getCheckOutDay())
+                    || sameRoom.stream().anyMatch(other ->
+                            other.overlaps(reservation.getCheckInDay(), reservation.getCheckOutDay()))) {
+                failures[i] = new RoomNotAvailableException(reservation.getRoom().getRoomNumber(),
+                        reservation.getCheckInDate(), reservation.getCheckOutDate());
+                continue;
+            }
+
+            sameRoom.add(reservation);
+            acceptedRoomIds[accepted.size()] = roomIds[i];
+            accepted.add(reservation);
+        }
+
+        engine.addReservations(Arrays.copyOf(acceptedRoomIds, accepted.size()), accepted);
+        accepted.forEach(this::invalidateCachedSearches);
+    }
+
+    /**
+     * Cancels a reservation of a customer, freeing its room for its dates.
+     * The reservation is found in the customer's reservations and removed from them, from the room's bookings
+     * and from the cached searches overlapping its dates, each in logarithmic time, under the room's lock.
+     *
+     * @param customer the customer who made the reservation
+     * @param room the reserved room
+     * @param checkInDate the check-in date of the reservation
+     * @return the cancelled reservation, or null if the customer has no reservation of the room starting that day
+     */
+    public Reservation cancelReservation(final Customer customer, final IRoom room, final Date checkInDate) {
+        final int roomId = roomIdOf(room);
+        final WriteAheadLog log = writeAheadLog;
+        final Reservation cancelled;
+        final long position;
+        final ReentrantLock roomLock = roomLocks.lockForUpdate(roomId);
+        try {
+            cancelled = removeReservation(customer, room, roomId, EpochDays.toEpochDay(checkInDate));
+            position = cancelled != null && log != null ? log.appendCancellation(cancelled) : -1;
+        } finally {
+            roomLock.unlock();
+        }
+
+        if (cancelled != null && log != null) {
+            log.awaitDurable(position);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Moves a reservation of a customer to new dates in the same room.
+     * Under the room's lock the engine replaces the old stay with the new one in a single step, checking the new
+     * dates without the old stay, so the customer either keeps the old dates or gets the new ones and never
+     * loses the room in between. The change is logged as one record.
+     *
+     * @param customer the customer who made the reservation
+     * @param room the reserved room
+     * @param checkInDate the current check-in date of the reservation
+     * @param newCheckInDate the new check-in date
+     * @param newCheckOutDate the new check-out date
+     * @return the reservation for the new dates
+     * @throws IllegalArgumentException if the customer has no reservation of the room starting on the check-in date,
+     * or the new check-out date is not after the new check-in date
+     * @throws RoomNotAvailableException if the room is booked by someone else during the new dates
+     */
+    public Reservation modifyReservation(final Customer customer, final IRoom room, final Date checkInDate,
+                                         final Date newCheckInDate, final Date newCheckOutDate) {
+        final Reservation replacement = new Reservation(customer, room, newCheckInDate, newCheckOutDate);
+        requireValidStay(replacement);
+
+        final int roomId = roomIdOf(room);
+        final NavigableSet<Reservation> reservations = reservationsOf(customer);
+        final WriteAheadLog log = writeAheadLog;
+        final Reservation previous;
+        final long position;
+        final ReentrantLock roomLock = roomLocks.lockForUpdate(roomId);
+        try {
+            previous = findReservation(reservations, room, EpochDays.toEpochDay(checkInDate));
+            if (previous == null) {
+                throw new IllegalArgumentException("No reservation of room " + room.getRoomNumber()
+                        + " starting on " + LocalDate.ofEpochDay(EpochDays.toEpochDay(checkInDate)));
+            }
+            if (previous.getCheckInDay() == replacement.getCheckInDay()
+                    && previous.getCheckOutDay() == replacement.getCheckOutDay()) {
+                return previous;
+            }
+            if (!availabilityEngine.replaceReservation(roomId, previous, replacement)) {
+                throw new RoomNotAvailableException(room.getRoomNumber(), newCheckInDate, newCheckOutDate);
+            }
+            position = log != null ? log.appendModification(previous, replacement) : -1;
+
+            if (reservations.add(replacement)) {
+                reservationCount.increment();
+            }
+            if (reservations.remove(previous)) {
+                reservationCount.decrement();
+            }
+            invalidateCachedSearches(previous);
+            invalidateCachedSearches(replacement);
+        } finally {
+            roomLock.unlock();
+        }
+
+        if (log != null) {
+            log.awaitDurable(position);
+        }
+        return replacement;
+    }
+
+    /**
+     * Restores a cancellation from storage without logging it again.
+     *
+     * @param customer the customer who made the reservation
+     * @param room the reserved room
+     * @param checkInDay the check-in day of the cancelled reservation, as an epoch day
+     * @return true if the reservation was found and removed, false otherwise
+     */
+    public boolean restoreCancellation(final Customer customer, final IRoom room, final int checkInDay) {
+        final int roomId = roomIdOf(room);
+        final ReentrantLock roomLock = roomLocks.lockFor(roomId);
+        roomLock.lock();
+        try {
+            return removeReservation(customer, room, roomId, checkInDay) != null;
+        } finally {
+            roomLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a reservation from the customer's reservations, the availability engine and the cached searches.
+     * The caller must hold the room's lock.
+     *
+     * @param customer the customer who made the reservation
+     * @param room the reserved room
+     * @param roomId the id of the reserved room
+     * @param checkInDay the check-in day of the reservation, as an epoch day
+     * @return the removed reservation, or null if the customer has no reservation of the room starting that day
+     */
+    private Reservation removeReservation(final Customer customer, final IRoom room, final int roomId,
+                                          final int checkInDay) {
+        final NavigableSet<Reservation> reservations =
+                reservationsByCustomer.get(customerService.customerIdOf(customer));
+        final Reservation reservation = findReservation(reservations, room, checkInDay);
+        if (reservation == null) {
+            return null;
+        }
+
+        availabilityEngine.removeReservation(roomId, reservation);
+        if (reservations.remove(reservation)) {
+            reservationCount.decrement();
+        }
+        invalidateCachedSearches(reservation);
         return reservation;
     }
 
+    /**
+     * Restores a reservation from storage without logging it again.
+     * A reservation the customer already has for the same room and dates has already been restored
+     * (for example from a snapshot taken while it was being logged) and is skipped.
+     *
+     * @param customer the customer who made the reservation
+     * @param room the reserved room
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @throws RoomNotAvailableException if another reservation of the room overlaps with the given dates
+     * @throws IllegalArgumentException if the check-out day is not after the check-in day
+     */
+    public void restoreReservation(final Customer customer, final IRoom room,
+                                   final int checkInDay, final int checkOutDay) {
+        final Reservation reservation = new Reservation(customer, room, checkInDay, checkOutDay);
+        final int roomId = roomIdOf(room);
+        final ReentrantLock roomLock = roomLocks.lockFor(roomId);
+        roomLock.lock();
+        try {
+            final NavigableSet<Reservation> reservations =
+                    reservationsByCustomer.get(customerService.customerIdOf(customer));
+            final Reservation restored = findReservation(reservations, room, reservation.getCheckInDay());
+            if (restored == null || restored.getCheckOutDay() != reservation.getCheckOutDay()) {
+                commitReservation(availabilityEngine, roomId, reservation, null);
+            }
+        } finally {
+            roomLock.unlock();
+        }
+    }
+
+    /**
+     * Registers a new reservation with the availability engine and the customer's reservations.
+     * If a log is given, the reservation is appended to it before the customer's reservations show it,
+     * so that a cancellation or modification of the reservation is always logged after it.
+     *
+     * @param engine the availability engine to commit to
+     * @param roomId the id of the room to reserve
+     * @param reservation the reservation to register
+     * @param log the log to append to, or null to register the reservation without logging it
+     * @return the log position of the record, or -1 if no log was given
+     * @throws RoomNotAvailableException if the room is already booked during the reservation's dates
+     * @throws IllegalArgumentException if the customer is null or the check-out date is not after the check-in date
+     */
+    private long commitReservation(final AvailabilityEngine engine, final int roomId, final Reservation reservation,
+                                   final WriteAheadLog log) {
+        requireCustomer(reservation);
+        requireValidStay(reservation);
+        requireRegistered(roomId, reservation.getRoom());
+        if (!engine.addReservationIfAvailable(roomId, reservation)) {
+            throw new RoomNotAvailableException(reservation.getRoom().getRoomNumber(),
+                    reservation.getCheckInDate(), reservation.getCheckOutDate());
+        }
+        invalidateCachedSearches(reservation);
+
+        final long position = appendReservation(engine, log, roomId, reservation);
+        addCustomerReservation(reservation);
+
+        return position;
+    }
+
+    /**
+     * Appends a reservation just registered with the engine to a log, without waiting for it.
+     * If the record cannot be appended the reservation is taken out of the engine again,
+     * so a booking is never left in the engine without being logged.
+     *
+     * @param engine the availability engine the reservation was registered with
+     * @param log the log to append to, or null
+     * @param roomId the id of the reserved room
+     * @param reservation the reservation to append
+     * @return the log position of the record, or -1 if no log was given
+     */
+    private long appendReservation(final AvailabilityEngine engine, final WriteAheadLog log, final int roomId,
+                                   final Reservation reservation) {
+        if (log == null) {
+            return -1;
+        }
+        try {
+            return log.appendReservation(reservation);
+        } catch (RuntimeException ex) {
+            engine.removeReservation(roomId, reservation);
+            invalidateCachedSearches(reservation);
+            throw ex;
+        }
+    }
+
+    /**
+     * Appends the reservations of a batch just registered with the engine to a log in order, without waiting for it.
+     * If any record cannot be appended the whole batch is taken out of the engine again.
+     *
+     * @param log the log to append to, or null
+     * @param roomIds the id of the room of each reservation, at the same index
+     * @param batch the reservations to append
+     * @return the log position of the last record, or -1 if no log was given or nothing was appended
+     */
+    private long appendReservations(final WriteAheadLog log, final int[] roomIds, final List<Reservation> batch) {
+        long position = -1;
+        if (log != null) {
+            try {
+                for (Reservation reservation : batch) {
+                    position = log.appendReservation(reservation);
+                }
+            } catch (RuntimeException ex) {
+                final AvailabilityEngine engine = availabilityEngine;
+                for (int i = 0; i < batch.size(); i++) {
+                    engine.removeReservation(roomIds[i], batch.get(i));
+                }
+                invalidateCachedSearches(batch.get(0));
+                throw ex;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Adds a reservation to the reservations of its customer and counts it.
+     *
+     * @param reservation the reservation to add
+     */
+    private void addCustomerReservation(final Reservation reservation) {
+        if (reservationsOf(reservation.getCustomer()).add(reservation)) {
+            reservationCount.increment();
+        }
+    }
+
+    /**
+     * Returns the reservations of a customer, indexed by the customer's dense id.
+     *
+     * @param customer the customer to look up
+     * @return the customer's reservations, created empty if the customer has none yet
+     * @throws IllegalArgumentException if the customer was not added to the customer service
+     */
+    private NavigableSet<Reservation> reservationsOf(final Customer customer) {
+        final int customerId = customerService.customerIdOf(customer);
+        if (customerId == IdRegistry.UNKNOWN) {
+            throw new IllegalArgumentException("Customer not found: " + customer.getEmail());
+        }
+        return reservationsByCustomer.computeIfAbsent(customerId,
+                id -> new ConcurrentSkipListSet<>(CUSTOMER_RESERVATION_ORDER));
+    }
+
+    /**
+     * Looks up a reservation of a customer by its room and check-in day, in logarithmic time.
+     *
+     * @param reservations the customer's reservations, or null if the customer has none
+     * @param room the reserved room
+     * @param checkInDay the check-in day, as an epoch day
+     * @return the reservation, or null if the customer has no reservation of the room starting that day
+     */
+    private static Reservation findReservation(final NavigableSet<Reservation> reservations, final IRoom room,
+                                               final int checkInDay) {
+        if (reservations == null) {
+            return null;
+        }
+        final Reservation candidate = reservations.ceiling(new Reservation(null, room, checkInDay, Integer.MIN_VALUE));
+        return candidate != null && candidate.getCheckInDay() == checkInDay
+                && RoomOrder.ROOM_NUMBER_ORDER.compare(candidate.getRoom().getRoomNumber(), room.getRoomNumber()) == 0
+                ? candidate : null;
+    }
+
+    /**
+     * Returns the dense id of a room that has been added to the service.
+     *
+     * @param room the room to look up
+     * @return the id of the room
+     * @throws IllegalArgumentException if the room has not been added
+     */
+    private int roomIdOf(final IRoom room) {
+        final int roomId = roomIds.idOf(room.getRoomNumber());
+        if (roomId == IdRegistry.UNKNOWN) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " has not been added.");
+        }
+        return roomId;
+    }
+
+    /**
+     * Checks that a reservation has a customer added to the customer service, before it touches any state
+     * of the service.
+     *
+     * @param reservation the reservation to check
+     * @throws IllegalArgumentException if the reservation has no customer, or its customer was not added
+     */
+    private void requireCustomer(final Reservation reservation) {
+        final Customer customer = reservation.getCustomer();
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer not found for room " + reservation.getRoom().getRoomNumber());
+        }
+        if (customerService.customerIdOf(customer) == IdRegistry.UNKNOWN) {
+            throw new IllegalArgumentException("Customer not found: " + customer.getEmail());
+        }
+    }
+
+    /**
+     * Checks that a stay covers at least one night. Engines rely on every stored stay being a valid range,
+     * so this is checked for every reservation entering the service, whichever way it comes in.
+     *
+     * @param reservation the reservation to check
+     * @throws IllegalArgumentException if the check-out date is not after the check-in date
+     */
+    private static void requireValidStay(final Reservation reservation) {
+        if (reservation.getCheckOutDay() <= reservation.getCheckInDay()) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+    }
+
+    /**
+     * Checks that a room has not been handed off since its id was looked up.
+     * The caller must hold the room's lock, unless the engine is lock-free.
+     *
+     * @param roomId the id the room was looked up with
+     * @param room the room
+     * @throws IllegalArgumentException if the room is no longer in the service
+     */
+    private void requireRegistered(final int roomId, final IRoom room) {
+        if (roomIds.idOf(room.getRoomNumber()) != roomId) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " has not been added.");
+        }
+    }
+
+    /**
+     * Drops the cached searches whose dates overlap with a reservation that was added or removed.
+     *
+     * @param reservation the changed reservation
+     */
+    private void invalidateCachedSearches(final Reservation reservation) {
+        availabilityCache.invalidate(reservation.getCheckInDay(), reservation.getCheckOutDay());
+    }
+
     /**
      * Finds available rooms for the specified date range.
+     * Repeated searches for the same dates are answered from the availability cache
+     * until a reservation overlapping those dates, or a new room, is added.
      *
      * @param checkInDate the check-in date
      * @param checkOutDate the check-out date
-     * @return a collection of available rooms for the given date range
+     * @return an unmodifiable collection of available rooms for the given date range
      */
     public Collection<IRoom> findRooms(final Date checkInDate, final Date checkOutDate) {
-        return findAvailableRooms(checkInDate, checkOutDate);
+        return findRooms(checkInDate, checkOutDate, RoomFilter.ANY);
     }
 
     /**
-     * Finds available rooms for the specified date range.
+     * Finds available rooms matching a filter for the specified date range.
+     * Instead of checking every room, the search starts from whichever secondary index narrows the filter down
+     * the most, either the rooms of the requested types or the rooms within the requested price range,
+     * and only checks the availability of those candidates.
+     * Results are cached per date range and filter like those of {@link #findRooms(Date, Date)}.
      *
      * @param checkInDate the check-in date
      * @param checkOutDate the check-out date
-     * @return a collection of available rooms for the given date range
+     * @param filter the criteria the rooms must match
+     * @return an unmodifiable collection of available rooms matching the filter
      */
-    private Collection<IRoom> findAvailableRooms(final Date checkInDate, final Date checkOutDate) {
-        final Collection<Reservation> allReservations = getAllReservations();
-        final Collection<IRoom> notAvailableRooms = new LinkedList<>();
+    public Collection<IRoom> findRooms(final Date checkInDate, final Date checkOutDate, final RoomFilter filter) {
+        final FindRoomsEvent event = new FindRoomsEvent();
+        event.begin();
+        final int checkInDay = EpochDays.toEpochDay(checkInDate);
+        final int checkOutDay = EpochDays.toEpochDay(checkOutDate);
+        final Collection<IRoom> availableRooms = findAvailableRooms(checkInDay, checkOutDay, filter, event);
+        if (event.shouldCommit()) {
+            event.checkIn = LocalDate.ofEpochDay(checkInDay).toString();
+            event.nights = checkOutDay - checkInDay;
+            event.filter = filter.toString();
+            event.results = availableRooms.size();
+            event.commit();
+        }
+        return availableRooms;
+    }
 
-        for (Reservation reservation : allReservations) {
-            if (reservationOverlaps(reservation, checkInDate, checkOutDate)) {
-                notAvailableRooms.add(reservation.getRoom());
+    /**
+     * Finds the best available rooms matching a filter for the specified date range, without sorting all of them.
+     * For {@link RoomOrder#PRICE_ASCENDING} and {@link RoomOrder#PRICE_DESCENDING} the price index is walked
+     * from the requested end and the walk stops as soon as enough available rooms are found.
+     * For any other order the available rooms are passed through a heap holding at most {@code limit} rooms.
+     *
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param limit the largest number of rooms to return
+     * @param order the order deciding which rooms are best
+     * @param filter the criteria the rooms must match
+     * @return the best available rooms, best first
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<IRoom> findBestRooms(final Date checkInDate, final Date checkOutDate, final int limit,
+                                     final Comparator<? super IRoom> order, final RoomFilter filter) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+
+        final int checkInDay = EpochDays.toEpochDay(checkInDate);
+        final int checkOutDay = EpochDays.toEpochDay(checkOutDate);
+        if (order == RoomOrder.PRICE_ASCENDING || order == RoomOrder.PRICE_DESCENDING) {
+            return walkPriceIndex(checkInDay, checkOutDay, limit, order == RoomOrder.PRICE_DESCENDING, filter);
+        }
+
+        final PriorityQueue<IRoom> worstFirst = new PriorityQueue<>(limit + 1, order.reversed());
+        for (IRoom room : findAvailableRooms(checkInDay, checkOutDay, filter)) {
+            if (worstFirst.size() < limit) {
+                worstFirst.add(room);
+            } else if (order.compare(room, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(room);
             }
         }
 
-        return rooms.values().stream().filter(room -> notAvailableRooms.stream()
-                        .noneMatch(notAvailableRoom -> notAvailableRoom.equals(room)))
-                .collect(Collectors.toList());
+        final List<IRoom> bestRooms = new ArrayList<>(worstFirst);
+        bestRooms.sort(order);
+        return bestRooms;
     }
 
     /**
-     * Checks if a reservation overlaps with the specified date range.
+     * Walks the price index from one end and collects available rooms matching a filter until the limit is reached.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param limit the largest number of rooms to return
+     * @param descending true to start from the most expensive rooms, false to start from the cheapest
+     * @param filter the criteria the rooms must match
+     * @return the available rooms in walking order
+     */
+    private List<IRoom> walkPriceIndex(final int checkInDay, final int checkOutDay, final int limit,
+                                       final boolean descending, final RoomFilter filter) {
+        final AvailabilityEngine engine = availabilityEngine;
+        final List<IRoom> bestRooms = new ArrayList<>(limit);
+        for (Map<String, IRoom> samePrice : roomCatalog.roomsInPriceRange(filter, descending)) {
+            for (IRoom room : samePrice.values()) {
+                if (filter.matches(room) && engine.isAvailable(roomIdOf(room), checkInDay, checkOutDay)) {
+                    bestRooms.add(room);
+                    if (bestRooms.size() == limit) {
+                        return bestRooms;
+                    }
+                }
+            }
+        }
+        return bestRooms;
+    }
+
+    /**
+     * Returns a lazy stream of the rooms available for the specified date range, in room number order.
+     * Each room is checked only when the stream reaches it, so a caller that stops early
+     * does not pay for checking the remaining rooms.
      *
-     * @param reservation the reservation to check
      * @param checkInDate the check-in date
      * @param checkOutDate the check-out date
-     * @return true if the reservation overlaps with the date range, false otherwise
+     * @return a stream of available rooms for the given date range
      */
-    private boolean reservationOverlaps(final Reservation reservation, final Date checkInDate,
-                                        final Date checkOutDate){
-        return checkInDate.before(reservation.getCheckOutDate())
-                && checkOutDate.after(reservation.getCheckInDate());
+    public Stream<IRoom> streamRooms(final Date checkInDate, final Date checkOutDate) {
+        final AvailabilityEngine engine = availabilityEngine;
+        final int checkInDay = EpochDays.toEpochDay(checkInDate);
+        final int checkOutDay = EpochDays.toEpochDay(checkOutDate);
+        return rooms.values().stream()
+                .filter(room -> engine.isAvailable(roomIdOf(room), checkInDay, checkOutDay));
     }
 
     /**
-     * Retrieves all reservations for a given customer.
+     * Finds one page of rooms available for the specified date range, in room number order.
+     * Only the rooms up to the last one on the page are checked.
      *
-     * @param customer the customer to retrieve reservations for
-     * @return a collection of reservations for the specified customer
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param limit the largest number of rooms on the page
+     * @param pageToken the token of the previous page, or null for the first page
+     * @return the page of available rooms
+     * @throws IllegalArgumentException if the limit is not positive or the page token is malformed
      */
-    public Collection<Reservation> getCustomersReservation(final Customer customer) {
-        return reservations.get(customer.getEmail());
+    public AvailabilityPage findRoomsPage(final Date checkInDate, final Date checkOutDate,
+                                          final int limit, final String pageToken) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+
+        final Collection<IRoom> remainingRooms = pageToken == null
+                ? rooms.values()
+                : rooms.tailMap(decodePageToken(pageToken), false).values();
+
+        final AvailabilityEngine engine = availabilityEngine;
+        final int checkInDay = EpochDays.toEpochDay(checkInDate);
+        final int checkOutDay = EpochDays.toEpochDay(checkOutDate);
+        final List<IRoom> page = new ArrayList<>(limit);
+        for (IRoom room : remainingRooms) {
+            if (engine.isAvailable(roomIdOf(room), checkInDay, checkOutDay)) {
+                page.add(room);
+                if (page.size() == limit) {
+                    return new AvailabilityPage(page, encodePageToken(room.getRoomNumber()));
+                }
+            }
+        }
+
+        return new AvailabilityPage(page, null);
+    }
+
+    /**
+     * Encodes the last room number of a page into an opaque continuation token,
+     * for callers that merge pages of several services into one.
+     *
+     * @param roomNumber the last room number on the page
+     * @return the continuation token
+     */
+    public static String encodePageToken(final String roomNumber) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(roomNumber.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Prints all reservations.
+     * Decodes a continuation token back into the last room number of the previous page.
+     *
+     * @param pageToken the continuation token
+     * @return the last room number of the previous page
+     * @throws IllegalArgumentException if the token is malformed
      */
-    public void printAllReservation() {
-        final Collection<Reservation> reservations = getAllReservations();
+    private static String decodePageToken(final String pageToken) {
+        return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+    }
 
-        if (reservations.isEmpty()) {
-            System.out.println("No reservations found.");
+    /**
+     * Finds available rooms matching a filter for the specified range of nights, consulting the cache first.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param filter the criteria the rooms must match
+     * @return an unmodifiable collection of available rooms for the given range
+     */
+    private Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay, final RoomFilter filter) {
+        return findAvailableRooms(checkInDay, checkOutDay, filter, null);
+    }
+
+    /**
+     * Finds available rooms matching a filter, answering from the availability cache when possible,
+     * and notes on a flight recorder event how the search was answered.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param filter the criteria the rooms must match
+     * @param event the event receiving the cache outcome and candidate count, or null
+     * @return an unmodifiable collection of available rooms matching the filter
+     */
+    private Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay, final RoomFilter filter,
+                                                 final FindRoomsEvent event) {
+        final AvailabilityCache cache = availabilityCache;
+        final AvailabilityCache.Key key = new AvailabilityCache.Key(checkInDay, checkOutDay, filter);
+        final List<IRoom> cached = cache.get(key);
+        if (cached != null) {
+            if (event != null) {
+                event.cacheHit = true;
+            }
+            return cached;
+        }
+
+        final long stamp = cache.stamp();
+        final AvailabilityEngine engine = availabilityEngine;
+        final List<IRoom> availableRooms;
+        if (filter.restrictsRoomType() || filter.restrictsPrice()) {
+            availableRooms = List.copyOf(findFilteredRooms(engine, checkInDay, checkOutDay, filter, event));
         } else {
-            for (Reservation reservation : reservations) {
-                System.out.println(reservation + "\n");
+            if (event != null) {
+                event.candidates = roomIds.size();
             }
+            availableRooms = List.copyOf(engine.findAvailableRooms(checkInDay, checkOutDay));
+        }
+        cache.put(key, availableRooms, stamp);
+        return availableRooms;
+    }
+
+    /**
+     * Finds available rooms matching a filter by walking the more selective of the room type and price indexes.
+     * The rooms in the price range are only counted up to the number of rooms of the requested types,
+     * so comparing the two sides never costs more than walking the smaller one.
+     *
+     * @param engine the availability engine to check candidates against
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param filter the criteria the rooms must match
+     * @param event the event receiving the number of candidates checked, or null
+     * @return the available rooms matching the filter
+     */
+    private List<IRoom> findFilteredRooms(final AvailabilityEngine engine, final int checkInDay, final int checkOutDay,
+                                          final RoomFilter filter, final FindRoomsEvent event) {
+        final List<IRoom> availableRooms = new ArrayList<>();
+        int candidates = 0;
+        final int typeCandidates = filter.restrictsRoomType() ? roomCatalog.countOfTypes(filter) : 0;
+        final boolean byType = filter.restrictsRoomType()
+                && (!filter.restrictsPrice() || roomCatalog.countInPriceRange(filter, typeCandidates) > typeCandidates);
+
+        if (byType) {
+            for (Collection<IRoom> sameType : roomCatalog.roomsOfTypes(filter)) {
+                for (IRoom room : sameType) {
+                    candidates++;
+                    if (filter.matches(room) && engine.isAvailable(roomIdOf(room), checkInDay, checkOutDay)) {
+                        availableRooms.add(room);
+                    }
+                }
+            }
+        } else {
+            for (Map<String, IRoom> samePrice : roomCatalog.roomsInPriceRange(filter)) {
+                for (IRoom room : samePrice.values()) {
+                    candidates++;
+                    if (filter.matches(room) && engine.isAvailable(roomIdOf(room), checkInDay, checkOutDay)) {
+                        availableRooms.add(room);
+                    }
+                }
+            }
+        }
+
+        if (event != null) {
+            event.candidates = candidates;
+        }
+        return availableRooms;
+    }
+
+    /**
+     * Replaces the availability cache with an empty one of the given size.
+     *
+     * @param maxEntries the largest number of cached searches, or 0 to disable caching
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public void configureAvailabilityCache(final int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("The cache size cannot be negative.");
         }
+        final AvailabilityCache previous = availabilityCache;
+        availabilityCache = new AvailabilityCache(maxEntries);
+        previous.invalidateAll();
     }
 
     /**
-     * Retrieves all reservations.
+     * Returns the hit, miss and eviction counters of the availability cache.
      *
-     * @return a collection containing all reservations
+     * @return the cache statistics
      */
-    private Collection<Reservation> getAllReservations() {
-        final Collection<Reservation> allReservations = new LinkedList<>();
+    public AvailabilityCacheStatistics getAvailabilityCacheStatistics() {
+        return availabilityCache.statistics();
+    }
+
+    /**
+     * Finds the stays of the same length as the requested one that are closest to the requested dates,
+     * looking up to the given number of days before and after them.
+     * <p>
+     * The booked ranges of every room within the horizon are read once, and each free gap of a room marks the
+     * start days it can host the stay on; summing those marks gives the number of free rooms for every start day
+     * in a single pass. The cost therefore depends on the number of rooms, their reservations within the horizon
+     * and the horizon length, but not on how far away the nearest free stay is.
+     * Start days before today are never suggested. When two stays are equally far away, the later one comes first.
+     *
+     * @param checkInDate the requested check-in date
+     * @param checkOutDate the requested check-out date
+     * @param horizonDays the largest number of days a stay may be moved by
+     * @param limit the largest number of alternatives to return
+     * @return the alternatives, closest to the requested dates first
+     */
+    public List<AlternativeStay> findAlternativeStays(final Date checkInDate, final Date checkOutDate,
+                                                      final int horizonDays, final int limit) {
+        final int requestedStart = EpochDays.toEpochDay(checkInDate);
+        final int nights = Math.max(1, EpochDays.toEpochDay(checkOutDate) - requestedStart);
+        final int firstStart = Math.max(EpochDays.today(), requestedStart - horizonDays);
+        final int lastStart = requestedStart + horizonDays;
+        if (firstStart > lastStart || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final int[] freeRoomDelta = new int[lastStart - firstStart + 2];
+        final AvailabilityEngine engine = availabilityEngine;
+        for (IRoom room : rooms.values()) {
+            final int[] gapStart = {firstStart};
+            engine.forEachBookedRange(roomIdOf(room), firstStart, lastStart + nights, (firstNight, endNight) -> {
+                markFreeStarts(freeRoomDelta, firstStart, lastStart, gapStart[0], firstNight, nights);
+                gapStart[0] = Math.max(gapStart[0], endNight);
+            });
+            markFreeStarts(freeRoomDelta, firstStart, lastStart, gapStart[0], lastStart + nights, nights);
+        }
 
-        for(Collection<Reservation> reservations : reservations.values()) {
-            allReservations.addAll(reservations);
+        final int[] freeRooms = new int[freeRoomDelta.length - 1];
+        int running = 0;
+        for (int i = 0; i < freeRooms.length; i++) {
+            running += freeRoomDelta[i];
+            freeRooms[i] = running;
         }
 
-        return allReservations;
+        final List<AlternativeStay> alternatives = new ArrayList<>(limit);
+        for (int distance = 1; distance <= horizonDays && alternatives.size() < limit; distance++) {
+            for (int start : new int[] {requestedStart + distance, requestedStart - distance}) {
+                if (alternatives.size() < limit && start >= firstStart && start <= lastStart
+                        && freeRooms[start - firstStart] > 0) {
+                    alternatives.add(new AlternativeStay(EpochDays.toDate(start), EpochDays.toDate(start + nights),
+                            start - requestedStart, engine.findAvailableRooms(start, start + nights)));
+                }
+            }
+        }
+
+        return alternatives;
+    }
+
+    /**
+     * Marks the start days that a free gap of a room can host a stay on.
+     *
+     * @param freeRoomDelta the difference array of free room counts, indexed from the first start day
+     * @param firstStart the first start day of interest
+     * @param lastStart the last start day of interest
+     * @param gapStart the first free night of the gap
+     * @param gapEnd the night after the last free night of the gap
+     * @param nights the length of the stay
+     */
+    private static void markFreeStarts(final int[] freeRoomDelta, final int firstStart, final int lastStart,
+                                       final int gapStart, final int gapEnd, final int nights) {
+        final int from = Math.max(firstStart, gapStart);
+        final int to = Math.min(lastStart, gapEnd - nights);
+        if (from <= to) {
+            freeRoomDelta[from - firstStart]++;
+            freeRoomDelta[to - firstStart + 1]--;
+        }
+    }
+
+    /**
+     * Switches the service to the given availability backend.
+     * The new engine is populated with every room and reservation already stored in the service,
+     * while lock-based reservations are held back until the switch is complete.
+     * Lock-free reservations are not held back, so switching to or from
+     * {@link AvailabilityBackend#OPTIMISTIC_SNAPSHOT} should happen before the service takes bookings.
+     *
+     * @param backend the availability backend to use
+     */
+    public void useAvailabilityBackend(final AvailabilityBackend backend) {
+        useAvailabilityBackend(backend, 1, RoomPartitioning.HASH);
+    }
+
+    /**
+     * Switches the service to the given availability backend, partitioned into shards.
+     * Every room, with its reservations, belongs to one shard chosen by the partitioning;
+     * bookings and availability checks of a room only touch its shard, and searches over all rooms
+     * run on every shard in parallel and merge the results.
+     * With one shard this is the same as {@link #useAvailabilityBackend(AvailabilityBackend)}.
+     *
+     * @param backend the availability backend each shard runs on
+     * @param shards the number of shards
+     * @param partitioning assigns rooms to shards
+     * @throws IllegalArgumentException if the number of shards is less than one
+     */
+    public void useAvailabilityBackend(final AvailabilityBackend backend, final int shards,
+                                       final RoomPartitioning partitioning) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be at least one: " + shards);
+        }
+        final AvailabilityEngine engine = shards == 1
+                ? newAvailabilityEngine(backend)
+                : new PartitionedAvailabilityEngine(() -> newAvailabilityEngine(backend), shards, partitioning);
+
+        roomLocks.lockAll();
+        try {
+            roomIds.forEachWithId((room, roomId) -> engine.addRoom(roomId, room));
+            forEachReservation(reservation -> engine.addReservation(roomIdOf(reservation.getRoom()), reservation));
+            availabilityEngine = engine;
+            availabilityCache.invalidateAll();
+        } finally {
+            roomLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Creates an empty availability engine.
+     *
+     * @param backend the availability backend of the engine
+     * @return the new engine
+     */
+    private static AvailabilityEngine newAvailabilityEngine(final AvailabilityBackend backend) {
+        return switch (backend) {
+            case INTERVAL_INDEX -> new IntervalAvailabilityEngine();
+            case BITMAP_CALENDAR -> new BitmapAvailabilityEngine();
+            case OPTIMISTIC_SNAPSHOT -> new SnapshotAvailabilityEngine();
+        };
+    }
+
+    /**
+     * Attaches a write-ahead log to which every new room and reservation is appended.
+     *
+     * @param writeAheadLog the log to attach, or null to stop logging
+     */
+    public void attachWriteAheadLog(final WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * Returns the write-ahead log currently attached.
+     *
+     * @return the attached log, or null if nothing is logged
+     */
+    WriteAheadLog writeAheadLog() {
+        return writeAheadLog;
+    }
+
+    /**
+     * Retrieves all reservations for a given customer.
+     *
+     * @param customer the customer to retrieve reservations for
+     * @return a collection of reservations for the specified customer
+     */
+    public Collection<Reservation> getCustomersReservation(final Customer customer) {
+        final NavigableSet<Reservation> reservations = reservationsByCustomer.get(customerService.customerIdOf(customer));
+        return reservations == null ? Collections.emptyList() : Collections.unmodifiableCollection(reservations);
+    }
+
+    /**
+     * Performs the given action for every reservation, without copying the reservations into a new collection.
+     *
+     * @param action the action to perform
+     */
+    public void forEachReservation(final Consumer<Reservation> action) {
+        reservationsByCustomer.forEach(customerReservations -> customerReservations.forEach(action));
+    }
+
+    /**
+     * Computes the occupancy and revenue of a range of nights with a parallel fork/join reduction
+     * over the reservations, against the rooms the hotel has now.
+     *
+     * @param startDate the first night of the range
+     * @param endDate the day after the last night of the range
+     * @return the occupancy report
+     * @throws IllegalArgumentException if the end date is not after the start date
+     */
+    public OccupancyReport getOccupancyReport(final Date startDate, final Date endDate) {
+        final int startDay = EpochDays.toEpochDay(startDate);
+        final int endDay = EpochDays.toEpochDay(endDate);
+        if (endDay <= startDay) {
+            throw new IllegalArgumentException("End date must be after start date");
+        }
+        return OccupancyAnalytics.compute(reservationsByCustomer, getRoomCount(), startDay, endDay);
+    }
+
+    /**
+     * Prints all reservations, streaming them to standard output through one buffered writer.
+     */
+    public void printAllReservation() {
+        final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        final boolean[] found = new boolean[1];
+
+        forEachReservation(reservation -> {
+            found[0] = true;
+            out.println(reservation);
+            out.println();
+        });
+        if (!found[0]) {
+            out.println("No reservations found.");
+        }
+        out.flush();
     }
 }
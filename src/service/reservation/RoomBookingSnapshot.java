@@ -0,0 +1,148 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * RoomBookingSnapshot
+ * <p>
+ * Immutable, sorted set of the reservations of a single room.
+ * Reservations of a room never overlap, so sorting them by check-in day also sorts them by check-out day,
+ * and an overlap lookup is a single binary search for the last reservation starting before the requested check-out.
+ * The check-in days are kept in a parallel int array, so the search never has to dereference a reservation.
+ * Adding a reservation returns a new snapshot and leaves this one untouched, which lets readers keep using
+ * whatever snapshot they loaded while a writer publishes the next one.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class RoomBookingSnapshot {
+
+    static final RoomBookingSnapshot EMPTY = new RoomBookingSnapshot(new Reservation[0], new int[0]);
+
+    private final Reservation[] reservations;
+    private final int[] checkInDays;
+
+    /**
+     * Constructs a snapshot over an array sorted by check-in day, together with the check-in days of the array.
+     * The arrays are owned by the snapshot and must not be modified afterwards.
+     *
+     * @param reservations the sorted reservations
+     * @param checkInDays the check-in day of every reservation, at the same index
+     */
+    private RoomBookingSnapshot(final Reservation[] reservations, final int[] checkInDays) {
+        this.reservations = reservations;
+        this.checkInDays = checkInDays;
+    }
+
+    /**
+     * Checks if any reservation in the snapshot overlaps with the specified range of nights.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if at least one reservation overlaps with the range, false otherwise
+     */
+    boolean overlaps(final int checkInDay, final int checkOutDay) {
+        final int index = lastCheckInBefore(checkOutDay);
+        return index >= 0 && reservations[index].overlaps(checkInDay, checkOutDay);
+    }
+
+    /**
+     * Performs the given action for every reservation overlapping with the specified range of nights,
+     * in order of check-in day.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param action the action to perform
+     */
+    void forEachOverlapping(final int checkInDay, final int checkOutDay, final Consumer<Reservation> action) {
+        for (int index = Math.max(0, lastCheckInBefore(checkInDay));
+             index < reservations.length && checkInDays[index] < checkOutDay;
+             index++) {
+            if (reservations[index].overlaps(checkInDay, checkOutDay)) {
+                action.accept(reservations[index]);
+            }
+        }
+    }
+
+    /**
+     * Returns a new snapshot containing the reservations of this one plus the given reservation.
+     *
+     * @param reservation the reservation to add
+     * @return the new snapshot
+     */
+    RoomBookingSnapshot with(final Reservation reservation) {
+        final int position = lastCheckInBefore(reservation.getCheckInDay()) + 1;
+        final Reservation[] next = new Reservation[reservations.length + 1];
+        final int[] nextCheckInDays = new int[next.length];
+
+        System.arraycopy(reservations, 0, next, 0, position);
+        System.arraycopy(checkInDays, 0, nextCheckInDays, 0, position);
+        next[position] = reservation;
+        nextCheckInDays[position] = reservation.getCheckInDay();
+        System.arraycopy(reservations, position, next, position + 1, reservations.length - position);
+        System.arraycopy(checkInDays, position, nextCheckInDays, position + 1, reservations.length - position);
+
+        return new RoomBookingSnapshot(next, nextCheckInDays);
+    }
+
+    /**
+     * Returns a new snapshot containing the reservations of this one except the given reservation.
+     *
+     * @param reservation the reservation to remove
+     * @return the new snapshot, or this snapshot if it does not contain the reservation
+     */
+    RoomBookingSnapshot without(final Reservation reservation) {
+        for (int position = Math.max(0, lastCheckInBefore(reservation.getCheckInDay()));
+             position < reservations.length && checkInDays[position] <= reservation.getCheckInDay();
+             position++) {
+            if (reservations[position] == reservation) {
+                final Reservation[] next = new Reservation[reservations.length - 1];
+                final int[] nextCheckInDays = new int[next.length];
+                System.arraycopy(reservations, 0, next, 0, position);
+                System.arraycopy(checkInDays, 0, nextCheckInDays, 0, position);
+                System.arraycopy(reservations, position + 1, next, position, next.length - position);
+                System.arraycopy(checkInDays, position + 1, nextCheckInDays, position, next.length - position);
+                return new RoomBookingSnapshot(next, nextCheckInDays);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of reservations in the snapshot.
+     *
+     * @return the number of reservations
+     */
+    int size() {
+        return reservations.length;
+    }
+
+    /**
+     * Returns the index of the last reservation whose check-in day is before the given day.
+     *
+     * @param epochDay the day to search for
+     * @return the index of the reservation, or -1 if every reservation starts on or after the day
+     */
+    private int lastCheckInBefore(final int epochDay) {
+        int low = 0;
+        int high = checkInDays.length - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (checkInDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(reservations);
+    }
+}
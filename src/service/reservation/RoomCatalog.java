@@ -0,0 +1,165 @@
+package service.reservation;
+
+import model.room.IRoom;
+import model.room.enums.RoomType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RoomCatalog
+ * <p>
+ * Secondary indexes over the rooms of the hotel, used to narrow a filtered search down before
+ * checking availability: one set of rooms per {@link RoomType}, and one index of rooms by nightly price.
+ * Rooms with the same price are kept in room number order, so walking the price index is deterministic.
+ * <p>
+ * Lookups may run concurrently with an update; updates of the same room must be serialized by the caller.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class RoomCatalog {
+
+    private final Comparator<String> roomNumberOrder;
+    private final Map<String, IRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<RoomType, ConcurrentNavigableMap<String, IRoom>> roomsByType = new EnumMap<>(RoomType.class);
+    private final Map<RoomType, AtomicInteger> roomCountByType = new EnumMap<>(RoomType.class);
+    private final ConcurrentNavigableMap<Double, ConcurrentNavigableMap<String, IRoom>> roomsByPrice =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs an empty catalog.
+     *
+     * @param roomNumberOrder the order of room numbers within a room type and within a price
+     */
+    RoomCatalog(final Comparator<String> roomNumberOrder) {
+        this.roomNumberOrder = roomNumberOrder;
+        for (RoomType roomType : RoomType.values()) {
+            roomsByType.put(roomType, new ConcurrentSkipListMap<>(roomNumberOrder));
+            roomCountByType.put(roomType, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Adds a room to the indexes, replacing the entries of a previous room with the same number.
+     * Price buckets emptied by a replacement are left in place; they are skipped by lookups.
+     *
+     * @param room the room to add
+     */
+    void add(final IRoom room) {
+        final IRoom previous = rooms.put(room.getRoomNumber(), room);
+        if (previous != null) {
+            if (roomsByType.get(previous.getRoomType()).remove(previous.getRoomNumber(), previous)) {
+                roomCountByType.get(previous.getRoomType()).decrementAndGet();
+            }
+            final Map<String, IRoom> samePrice = roomsByPrice.get(previous.getRoomPrice());
+            if (samePrice != null) {
+                samePrice.remove(previous.getRoomNumber(), previous);
+            }
+        }
+
+        roomsByType.get(room.getRoomType()).put(room.getRoomNumber(), room);
+        roomCountByType.get(room.getRoomType()).incrementAndGet();
+        roomsByPrice.computeIfAbsent(room.getRoomPrice(), price -> new ConcurrentSkipListMap<>(roomNumberOrder))
+                .put(room.getRoomNumber(), room);
+    }
+
+    /**
+     * Removes a room from the indexes, unless it has since been replaced by another room with the same number.
+     *
+     * @param room the room to remove
+     */
+    void remove(final IRoom room) {
+        if (!rooms.remove(room.getRoomNumber(), room)) {
+            return;
+        }
+
+        if (roomsByType.get(room.getRoomType()).remove(room.getRoomNumber(), room)) {
+            roomCountByType.get(room.getRoomType()).decrementAndGet();
+        }
+        final Map<String, IRoom> samePrice = roomsByPrice.get(room.getRoomPrice());
+        if (samePrice != null) {
+            samePrice.remove(room.getRoomNumber(), room);
+        }
+    }
+
+    /**
+     * Returns the rooms of the given types.
+     *
+     * @param filter the filter whose room types to look up
+     * @return the rooms of each type, one collection per type
+     */
+    List<Collection<IRoom>> roomsOfTypes(final RoomFilter filter) {
+        final List<Collection<IRoom>> candidates = new ArrayList<>(filter.getRoomTypes().size());
+        for (RoomType roomType : filter.getRoomTypes()) {
+            candidates.add(roomsByType.get(roomType).values());
+        }
+        return candidates;
+    }
+
+    /**
+     * Counts the rooms of the given types, in constant time per type.
+     *
+     * @param filter the filter whose room types to count
+     * @return the number of rooms of those types
+     */
+    int countOfTypes(final RoomFilter filter) {
+        int count = 0;
+        for (RoomType roomType : filter.getRoomTypes()) {
+            count += roomCountByType.get(roomType).get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the rooms within the price range of a filter, grouped by price in ascending order.
+     *
+     * @param filter the filter whose price range to look up
+     * @return the rooms of each price within the range, cheapest first
+     */
+    Collection<ConcurrentNavigableMap<String, IRoom>> roomsInPriceRange(final RoomFilter filter) {
+        return roomsInPriceRange(filter, false);
+    }
+
+    /**
+     * Returns the rooms within the price range of a filter, grouped by price in the given direction.
+     * Rooms of the same price are always in room number order.
+     *
+     * @param filter the filter whose price range to look up
+     * @param descending true to return the most expensive rooms first, false for the cheapest first
+     * @return the rooms of each price within the range
+     */
+    Collection<ConcurrentNavigableMap<String, IRoom>> roomsInPriceRange(final RoomFilter filter,
+                                                                        final boolean descending) {
+        final ConcurrentNavigableMap<Double, ConcurrentNavigableMap<String, IRoom>> range =
+                roomsByPrice.subMap(filter.getMinPrice(), true, filter.getMaxPrice(), true);
+        return (descending ? range.descendingMap() : range).values();
+    }
+
+    /**
+     * Counts the rooms within the price range of a filter, giving up once the count exceeds a limit.
+     * This lets a search compare the selectivity of the price range with another index
+     * without paying for a full count of a wide range.
+     *
+     * @param filter the filter whose price range to count
+     * @param limit the count beyond which counting stops
+     * @return the number of rooms in the range, or a number above the limit if there are more
+     */
+    int countInPriceRange(final RoomFilter filter, final int limit) {
+        int count = 0;
+        for (Map<String, IRoom> samePrice : roomsInPriceRange(filter)) {
+            count += samePrice.size();
+            if (count > limit) {
+                break;
+            }
+        }
+        return count;
+    }
+}
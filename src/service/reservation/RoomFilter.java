@@ -0,0 +1,165 @@
+package service.reservation;
+
+import model.room.IRoom;
+import model.room.enums.RoomType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * RoomFilter
+ * <p>
+ * Immutable criteria narrowing an availability search down by room type and nightly price.
+ * Every criterion is optional; a filter without criteria matches every room.
+ * Filters are built from {@link #ANY} with the {@code with} methods, each of which returns a new filter:
+ * <pre>
+ * RoomFilter.ANY.withRoomTypes(RoomType.DOUBLE).withPriceBetween(0.0, 120.0)
+ * </pre>
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class RoomFilter {
+
+    /**
+     * Filter matching every room.
+     */
+    public static final RoomFilter ANY = new RoomFilter(EnumSet.allOf(RoomType.class), 0.0, Double.POSITIVE_INFINITY);
+
+    private final Set<RoomType> roomTypes;
+    private final double minPrice;
+    private final double maxPrice;
+
+    /**
+     * Constructs a filter from its criteria.
+     *
+     * @param roomTypes the room types to accept
+     * @param minPrice the lowest nightly price to accept
+     * @param maxPrice the highest nightly price to accept
+     */
+    private RoomFilter(final Set<RoomType> roomTypes, final double minPrice, final double maxPrice) {
+        this.roomTypes = Collections.unmodifiableSet(roomTypes);
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Returns a filter that only accepts the given room types, with the price range of this one.
+     *
+     * @param roomTypes the room types to accept
+     * @return the new filter
+     * @throws IllegalArgumentException if no room type is given
+     */
+    public RoomFilter withRoomTypes(final RoomType... roomTypes) {
+        if (roomTypes.length == 0) {
+            throw new IllegalArgumentException("At least one room type is required.");
+        }
+        return new RoomFilter(EnumSet.copyOf(Arrays.asList(roomTypes)), minPrice, maxPrice);
+    }
+
+    /**
+     * Returns a filter that only accepts nightly prices within the given bounds, with the room types of this one.
+     *
+     * @param minPrice the lowest nightly price to accept, inclusive
+     * @param maxPrice the highest nightly price to accept, inclusive
+     * @return the new filter
+     * @throws IllegalArgumentException if the bounds are negative or the minimum exceeds the maximum
+     */
+    public RoomFilter withPriceBetween(final double minPrice, final double maxPrice) {
+        if (minPrice < 0 || minPrice > maxPrice) {
+            throw new IllegalArgumentException("Invalid price range: " + minPrice + " - " + maxPrice);
+        }
+        return new RoomFilter(EnumSet.copyOf(roomTypes), minPrice, maxPrice);
+    }
+
+    /**
+     * Gets the room types accepted by the filter.
+     *
+     * @return an unmodifiable set of room types
+     */
+    public Set<RoomType> getRoomTypes() {
+        return roomTypes;
+    }
+
+    /**
+     * Gets the lowest nightly price accepted by the filter.
+     *
+     * @return the minimum price
+     */
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Gets the highest nightly price accepted by the filter.
+     *
+     * @return the maximum price
+     */
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * Indicates whether the filter narrows the search down by room type.
+     *
+     * @return true if some room type is excluded, false otherwise
+     */
+    public boolean restrictsRoomType() {
+        return roomTypes.size() < RoomType.values().length;
+    }
+
+    /**
+     * Indicates whether the filter narrows the search down by price.
+     *
+     * @return true if some price is excluded, false otherwise
+     */
+    public boolean restrictsPrice() {
+        return minPrice > 0 || maxPrice < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks if a room satisfies every criterion of the filter.
+     *
+     * @param room the room to check
+     * @return true if the room matches, false otherwise
+     */
+    public boolean matches(final IRoom room) {
+        final double price = room.getRoomPrice();
+        return roomTypes.contains(room.getRoomType()) && price >= minPrice && price <= maxPrice;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof RoomFilter filter)) {
+            return false;
+        }
+
+        return roomTypes.equals(filter.roomTypes)
+                && Double.compare(minPrice, filter.minPrice) == 0
+                && Double.compare(maxPrice, filter.maxPrice) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(roomTypes, minPrice, maxPrice);
+    }
+
+    /**
+     * Returns a string representation of the filter.
+     *
+     * @return a string containing the room types and price range
+     */
+    @Override
+    public String toString() {
+        return "RoomFilter{" +
+                "Room Types: " + roomTypes +
+                ", Price: " + minPrice + " - " + maxPrice +
+                '}';
+    }
+}
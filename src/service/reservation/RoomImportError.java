@@ -0,0 +1,65 @@
+package service.reservation;
+
+/**
+ * RoomImportError
+ * <p>
+ * Represents a row of a room manifest that was not imported, with the reason it was rejected.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class RoomImportError {
+
+    private final int lineNumber;
+    private final String line;
+    private final String message;
+
+    /**
+     * Constructs an import error.
+     *
+     * @param lineNumber the line number of the row, starting from 1
+     * @param line the content of the row
+     * @param message the reason the row was rejected
+     */
+    public RoomImportError(int lineNumber, String line, String message) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * Gets the line number of the row.
+     *
+     * @return the line number, starting from 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the content of the row.
+     *
+     * @return the row as it appears in the manifest
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the reason the row was rejected.
+     *
+     * @return the error message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns a string representation of the error.
+     *
+     * @return a string containing the line number and the reason
+     */
+    @Override
+    public String toString() {
+        return "Line " + lineNumber + ": " + message + " (" + line + ")";
+    }
+}
@@ -0,0 +1,59 @@
+package service.reservation;
+
+import java.util.List;
+
+/**
+ * RoomImportReport
+ * <p>
+ * Represents the outcome of a room manifest import: how many rooms were added,
+ * and the rows that were rejected, in the order they appear in the manifest.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class RoomImportReport {
+
+    private final int addedRooms;
+    private final List<RoomImportError> errors;
+
+    /**
+     * Constructs an import report.
+     *
+     * @param addedRooms the number of rooms added
+     * @param errors the rejected rows
+     */
+    public RoomImportReport(int addedRooms, List<RoomImportError> errors) {
+        this.addedRooms = addedRooms;
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * Gets the number of rooms added.
+     *
+     * @return the added room count
+     */
+    public int getAddedRooms() {
+        return addedRooms;
+    }
+
+    /**
+     * Gets the rejected rows.
+     *
+     * @return an unmodifiable list of errors, ordered by line number
+     */
+    public List<RoomImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns a string representation of the report.
+     *
+     * @return a string containing the counts
+     */
+    @Override
+    public String toString() {
+        return "RoomImportReport{" +
+                "Added Rooms: " + addedRooms +
+                ", Rejected Rows: " + errors.size() +
+                '}';
+    }
+}
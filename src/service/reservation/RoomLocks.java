@@ -0,0 +1,193 @@
+package service.reservation;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RoomLocks
+ * <p>
+ * Fixed set of locks striped by room id.
+ * Room ids are dense, so consecutive rooms land on distinct stripes.
+ * Bookings for rooms that map to different stripes never wait on each other,
+ * while two bookings for the same room are always serialized.
+ * Rooms can also be held back, for example while they are handed off to another service: updates of a held-back
+ * room wait, without holding its stripe, until the room is released, so the stripe stays free for everything else.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class RoomLocks {
+
+    private final ReentrantLock[] stripes;
+    private final Set<Integer> heldBack = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock holdLock = new ReentrantLock();
+    private final Condition released = holdLock.newCondition();
+
+    /**
+     * Constructs a lock set with at least the given number of stripes, rounded up to a power of two.
+     *
+     * @param minimumStripes the minimum number of stripes
+     */
+    RoomLocks(final int minimumStripes) {
+        final int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the lock guarding the given room.
+     *
+     * @param roomId the room id
+     * @return the lock of the stripe the room belongs to
+     */
+    ReentrantLock lockFor(final int roomId) {
+        return stripes[stripeOf(roomId)];
+    }
+
+    /**
+     * Returns the stripe index of the given room.
+     *
+     * @param roomId the room id
+     * @return the stripe index
+     */
+    int stripeOf(final int roomId) {
+        return roomId & (stripes.length - 1);
+    }
+
+    /**
+     * Acquires the stripes of all the given rooms, each stripe once and in ascending order,
+     * so that two threads locking overlapping sets of rooms can never deadlock.
+     *
+     * @param roomIds the room ids to lock
+     * @return the acquired stripe indexes, to be passed to {@link #unlock(int[])}
+     */
+    int[] lock(final int[] roomIds) {
+        final int[] indexes = Arrays.stream(roomIds)
+                .map(this::stripeOf)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        return indexes;
+    }
+
+    /**
+     * Releases stripes acquired by {@link #lock(int[])}.
+     *
+     * @param indexes the stripe indexes returned when locking
+     */
+    void unlock(final int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    /**
+     * Acquires the lock guarding the given room once the room is not held back.
+     *
+     * @param roomId the room id
+     * @return the acquired lock of the stripe the room belongs to
+     */
+    ReentrantLock lockForUpdate(final int roomId) {
+        while (true) {
+            final ReentrantLock stripe = lockFor(roomId);
+            stripe.lock();
+            if (!heldBack.contains(roomId)) {
+                return stripe;
+            }
+            stripe.unlock();
+            awaitRelease(roomId);
+        }
+    }
+
+    /**
+     * Acquires the stripes of all the given rooms, as {@link #lock(int[])} does, once none of the rooms is held back.
+     *
+     * @param roomIds the room ids to lock
+     * @return the acquired stripe indexes, to be passed to {@link #unlock(int[])}
+     */
+    int[] lockForUpdate(final int[] roomIds) {
+        while (true) {
+            final int[] indexes = lock(roomIds);
+            final int heldBackRoomId = Arrays.stream(roomIds).filter(heldBack::contains).findFirst().orElse(-1);
+            if (heldBackRoomId < 0) {
+                return indexes;
+            }
+            unlock(indexes);
+            awaitRelease(heldBackRoomId);
+        }
+    }
+
+    /**
+     * Holds back updates of the given rooms until {@link #release(int[])} is called.
+     * The caller must hold the stripes of the rooms, so that no update of them is under way.
+     *
+     * @param roomIds the room ids to hold back
+     */
+    void holdBack(final int[] roomIds) {
+        for (int roomId : roomIds) {
+            heldBack.add(roomId);
+        }
+    }
+
+    /**
+     * Releases rooms held back by {@link #holdBack(int[])} and wakes up the updates waiting for them.
+     *
+     * @param roomIds the room ids to release
+     */
+    void release(final int[] roomIds) {
+        for (int roomId : roomIds) {
+            heldBack.remove(roomId);
+        }
+        holdLock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            holdLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the given room is not held back. Returns at once if it is not.
+     *
+     * @param roomId the room id
+     */
+    void awaitRelease(final int roomId) {
+        if (!heldBack.contains(roomId)) {
+            return;
+        }
+        holdLock.lock();
+        try {
+            while (heldBack.contains(roomId)) {
+                released.awaitUninterruptibly();
+            }
+        } finally {
+            holdLock.unlock();
+        }
+    }
+
+    /**
+     * Acquires every stripe in order, blocking all bookings until {@link #unlockAll()} is called.
+     */
+    void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Releases every stripe acquired by {@link #lockAll()}.
+     */
+    void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package service.reservation;
+
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * RoomManifest
+ * <p>
+ * Imports the rooms of a manifest, one room per line as {@code roomNumber,price,roomType}, where the room type
+ * is a {@link RoomType} label or name. Blank lines, lines starting with {@code #} and a header line are skipped.
+ * <pre>
+ * roomNumber,price,roomType
+ * 101,120.0,1
+ * 102,180.0,DOUBLE
+ * </pre>
+ * The lines are parsed and validated in parallel chunks; duplicates are then found in line order against the
+ * room number index and the rows already accepted, and the accepted rooms are added with one bulk insert.
+ * A rejected row is reported with its line number and does not stop the rest of the manifest.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class RoomManifest {
+
+    private static final int CHUNK_LINES = 1024;
+    private static final String HEADER_PREFIX = "roomnumber";
+
+    private RoomManifest() {}
+
+    /**
+     * Imports the rooms of a manifest into the reservation service.
+     * A room added concurrently under the same number as a manifest row may be replaced by it.
+     *
+     * @param lines the lines of the manifest
+     * @param reservationService the service to add the rooms to
+     * @return the number of rooms added and the rejected rows
+     */
+    public static RoomImportReport importRooms(final List<String> lines, final ReservationService reservationService) {
+        final int chunks = (lines.size() + CHUNK_LINES - 1) / CHUNK_LINES;
+        final List<ParsedChunk> parsedChunks = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> parseChunk(lines, chunk * CHUNK_LINES,
+                        Math.min(lines.size(), (chunk + 1) * CHUNK_LINES)))
+                .toList();
+
+        final List<IRoom> accepted = new ArrayList<>(lines.size());
+        final List<RoomImportError> errors = new ArrayList<>();
+        final Map<String, Integer> firstLineByNumber = new HashMap<>();
+        for (ParsedChunk chunk : parsedChunks) {
+            errors.addAll(chunk.errors());
+            for (ParsedRoom parsed : chunk.rooms()) {
+                final String roomNumber = parsed.room().getRoomNumber();
+                final Integer firstLine = firstLineByNumber.putIfAbsent(roomNumber, parsed.lineNumber());
+                if (firstLine != null) {
+                    errors.add(new RoomImportError(parsed.lineNumber(), parsed.line(),
+                            "Duplicate room number, first listed on line " + firstLine));
+                } else if (reservationService.getARoom(roomNumber) != null) {
+                    errors.add(new RoomImportError(parsed.lineNumber(), parsed.line(), "Room number already exists"));
+                } else {
+                    accepted.add(parsed.room());
+                }
+            }
+        }
+
+        reservationService.addRooms(accepted);
+        errors.sort(Comparator.comparingInt(RoomImportError::getLineNumber));
+        return new RoomImportReport(accepted.size(), errors);
+    }
+
+    /**
+     * Parses and validates a range of lines.
+     *
+     * @param lines the lines of the manifest
+     * @param from the index of the first line of the chunk
+     * @param to the index after the last line of the chunk
+     * @return the valid rooms and the rejected rows of the chunk, in line order
+     */
+    private static ParsedChunk parseChunk(final List<String> lines, final int from, final int to) {
+        final List<ParsedRoom> rooms = new ArrayList<>(to - from);
+        final List<RoomImportError> errors = new ArrayList<>();
+
+        for (int index = from; index < to; index++) {
+            final String line = lines.get(index);
+            final String row = line.strip();
+            if (row.isEmpty() || row.startsWith("#")
+                    || index == 0 && row.toLowerCase().startsWith(HEADER_PREFIX)) {
+                continue;
+            }
+
+            try {
+                rooms.add(new ParsedRoom(index + 1, line, parseRoom(row)));
+            } catch (IllegalArgumentException ex) {
+                errors.add(new RoomImportError(index + 1, line, ex.getMessage()));
+            }
+        }
+        return new ParsedChunk(rooms, errors);
+    }
+
+    /**
+     * Parses and validates one row.
+     *
+     * @param row the stripped row
+     * @return the room described by the row
+     * @throws IllegalArgumentException if the row does not have three fields, or a field is invalid
+     */
+    private static IRoom parseRoom(final String row) {
+        final String[] fields = row.split(",", -1);
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Expected roomNumber,price,roomType but found " + fields.length + " fields");
+        }
+
+        final String roomNumber = fields[0].strip();
+        try {
+            Integer.parseInt(roomNumber);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid room number: " + roomNumber);
+        }
+
+        final double price;
+        try {
+            price = Double.parseDouble(fields[1].strip());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid price: " + fields[1].strip());
+        }
+        if (!Double.isFinite(price) || price < 0) {
+            throw new IllegalArgumentException("Invalid price: " + fields[1].strip());
+        }
+
+        return new Room(roomNumber, price, parseRoomType(fields[2].strip()));
+    }
+
+    /**
+     * Parses a room type given by its label or its name.
+     *
+     * @param value the label, such as 1, or the name, such as SINGLE
+     * @return the room type
+     * @throws IllegalArgumentException if the value is neither a label nor a name
+     */
+    private static RoomType parseRoomType(final String value) {
+        for (RoomType roomType : RoomType.values()) {
+            if (roomType.label.equals(value) || roomType.name().equalsIgnoreCase(value)) {
+                return roomType;
+            }
+        }
+        throw new IllegalArgumentException("Invalid room type: " + value);
+    }
+
+    /**
+     * Valid room read from a manifest row.
+     */
+    private record ParsedRoom(int lineNumber, String line, IRoom room) {}
+
+    /**
+     * Outcome of parsing a chunk of rows.
+     */
+    private record ParsedChunk(List<ParsedRoom> rooms, List<RoomImportError> errors) {}
+}
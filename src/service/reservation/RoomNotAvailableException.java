@@ -0,0 +1,64 @@
+package service.reservation;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * RoomNotAvailableException
+ * <p>
+ * Thrown when a room cannot be reserved because another reservation already covers
+ * part of the requested dates.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class RoomNotAvailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String roomNumber;
+    private final Date checkInDate;
+    private final Date checkOutDate;
+
+    /**
+     * Constructs an exception for a room that is already booked during the given date range.
+     *
+     * @param roomNumber the number of the room that could not be reserved
+     * @param checkInDate the requested check-in date
+     * @param checkOutDate the requested check-out date
+     */
+    public RoomNotAvailableException(final String roomNumber, final Date checkInDate, final Date checkOutDate) {
+        super("Room " + roomNumber + " is already booked between "
+                + new SimpleDateFormat("MM/dd/yyyy").format(checkInDate) + " and "
+                + new SimpleDateFormat("MM/dd/yyyy").format(checkOutDate) + ".");
+        this.roomNumber = roomNumber;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    /**
+     * Gets the number of the room that could not be reserved.
+     *
+     * @return the room number
+     */
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    /**
+     * Gets the requested check-in date.
+     *
+     * @return the check-in date
+     */
+    public Date getCheckInDate() {
+        return checkInDate;
+    }
+
+    /**
+     * Gets the requested check-out date.
+     *
+     * @return the check-out date
+     */
+    public Date getCheckOutDate() {
+        return checkOutDate;
+    }
+}
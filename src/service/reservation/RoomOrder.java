@@ -0,0 +1,53 @@
+package service.reservation;
+
+import model.room.IRoom;
+
+import java.util.Comparator;
+
+/**
+ * RoomOrder
+ * <p>
+ * Orders in which the best available rooms can be requested.
+ * Rooms that tie on the primary key are ordered by room number, so every order is total and stable.
+ * The price orders can be answered by walking the price index and stopping after the requested number of rooms;
+ * any other comparator is answered with a bounded heap over the available rooms.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum RoomOrder implements Comparator<IRoom> {
+    /**
+     * Cheapest first; free rooms come first since their price is zero.
+     */
+    PRICE_ASCENDING,
+    /**
+     * Most expensive first.
+     */
+    PRICE_DESCENDING,
+    /**
+     * Room number order.
+     */
+    ROOM_NUMBER;
+
+    /**
+     * Orders room numbers numerically when they are plain numbers, and consistently otherwise.
+     */
+    static final Comparator<String> ROOM_NUMBER_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    /**
+     * Compares two rooms in this order.
+     *
+     * @param room the first room
+     * @param other the second room
+     * @return a negative number, zero, or a positive number as the first room comes before, with, or after the second
+     */
+    @Override
+    public int compare(final IRoom room, final IRoom other) {
+        final int byKey = switch (this) {
+            case PRICE_ASCENDING -> Double.compare(room.getRoomPrice(), other.getRoomPrice());
+            case PRICE_DESCENDING -> Double.compare(other.getRoomPrice(), room.getRoomPrice());
+            case ROOM_NUMBER -> 0;
+        };
+        return byKey != 0 ? byKey : ROOM_NUMBER_ORDER.compare(room.getRoomNumber(), other.getRoomNumber());
+    }
+}
@@ -0,0 +1,40 @@
+package service.reservation;
+
+/**
+ * RoomPartitioning
+ * <p>
+ * Enumerates the ways rooms are assigned to the shards of a partitioned availability engine.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum RoomPartitioning {
+
+    /**
+     * Spreads rooms over the shards by the hash of their room number, which balances the shards for any numbering.
+     */
+    HASH,
+
+    /**
+     * Keeps the rooms of a floor together, taking the floor from the room number ({@code 1204} is on floor 12),
+     * and spreads the floors over the shards in turn. Room numbers that are not numeric are assigned by hash.
+     */
+    FLOOR;
+
+    /**
+     * Returns the shard a room belongs to.
+     *
+     * @param roomNumber the room number
+     * @param shards the number of shards
+     * @return the shard index, from 0 to {@code shards - 1}
+     */
+    int shardOf(final String roomNumber, final int shards) {
+        if (this == FLOOR) {
+            try {
+                return Math.floorMod(Integer.parseInt(roomNumber) / 100, shards);
+            } catch (NumberFormatException ex) {
+                // Not a numeric room number
+            }
+        }
+        return Math.floorMod(roomNumber.hashCode(), shards);
+    }
+}
@@ -0,0 +1,105 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * RoomReservationIndex
+ * <p>
+ * Interval index over the reservations of a single room.
+ * Reservations are kept sorted by check-in day, and the longest stay seen so far is tracked,
+ * so an overlap lookup only visits reservations whose check-in lies within one longest stay
+ * before the requested check-out day.
+ * <p>
+ * Lookups may run concurrently with an update; updates must be serialized by the caller.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class RoomReservationIndex {
+
+    private final ConcurrentNavigableMap<Integer, List<Reservation>> reservationsByCheckIn = new ConcurrentSkipListMap<>();
+    private volatile int longestStayDays;
+
+    /**
+     * Adds a reservation to the index.
+     *
+     * @param reservation the reservation to add
+     */
+    void add(final Reservation reservation) {
+        final int stayDays = reservation.getCheckOutDay() - reservation.getCheckInDay();
+        if (stayDays > longestStayDays) {
+            longestStayDays = stayDays;
+        }
+
+        reservationsByCheckIn.computeIfAbsent(reservation.getCheckInDay(), day -> new CopyOnWriteArrayList<>())
+                .add(reservation);
+    }
+
+    /**
+     * Removes a reservation from the index.
+     * The longest stay is left as is, which keeps lookups correct at the cost of visiting a few more candidates.
+     *
+     * @param reservation the reservation to remove
+     */
+    void remove(final Reservation reservation) {
+        final List<Reservation> sameCheckIn = reservationsByCheckIn.get(reservation.getCheckInDay());
+        if (sameCheckIn != null && sameCheckIn.remove(reservation) && sameCheckIn.isEmpty()) {
+            reservationsByCheckIn.remove(reservation.getCheckInDay(), sameCheckIn);
+        }
+    }
+
+    /**
+     * Checks if any reservation in the index overlaps with the specified range of nights.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return true if at least one reservation overlaps with the range, false otherwise
+     */
+    boolean overlaps(final int checkInDay, final int checkOutDay) {
+        for (Collection<Reservation> candidates : candidatesFor(checkInDay, checkOutDay)) {
+            for (Reservation reservation : candidates) {
+                if (reservation.overlaps(checkInDay, checkOutDay)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Performs the given action for every reservation overlapping with the specified range of nights,
+     * in order of check-in day.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @param action the action to perform
+     */
+    void forEachOverlapping(final int checkInDay, final int checkOutDay, final Consumer<Reservation> action) {
+        for (Collection<Reservation> candidates : candidatesFor(checkInDay, checkOutDay)) {
+            for (Reservation reservation : candidates) {
+                if (reservation.overlaps(checkInDay, checkOutDay)) {
+                    action.accept(reservation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the groups of reservations that may overlap with the specified range of nights:
+     * those checking in after one longest stay before the check-in day and before the check-out day.
+     *
+     * @param checkInDay the check-in day, as an epoch day
+     * @param checkOutDay the check-out day, as an epoch day
+     * @return the candidate reservations grouped by check-in day, in order of check-in day
+     */
+    private Collection<List<Reservation>> candidatesFor(final int checkInDay, final int checkOutDay) {
+        return reservationsByCheckIn.subMap(checkInDay - longestStayDays, false, checkOutDay, false).values();
+    }
+}
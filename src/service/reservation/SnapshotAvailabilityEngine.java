@@ -0,0 +1,127 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.registry.IdTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SnapshotAvailabilityEngine
+ * <p>
+ * Lock-free availability engine.
+ * Each room holds an immutable {@link RoomBookingSnapshot} behind an atomic reference, indexed by room id.
+ * A reservation is validated against the current snapshot and committed with compare-and-set,
+ * retrying against the newer snapshot if another booking for the same room won the race.
+ * Searches only read the current snapshots, so they never block and are never blocked.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+class SnapshotAvailabilityEngine implements AvailabilityEngine {
+
+    private final IdTable<IRoom> rooms = new IdTable<>();
+    private final IdTable<AtomicReference<RoomBookingSnapshot>> roomBookings = new IdTable<>();
+
+    @Override
+    public void addRoom(final int roomId, final IRoom room) {
+        rooms.set(roomId, room);
+        bookingsOf(roomId);
+    }
+
+    @Override
+    public void removeRoom(final int roomId) {
+        rooms.set(roomId, null);
+        roomBookings.set(roomId, null);
+    }
+
+    @Override
+    public void addReservation(final int roomId, final Reservation reservation) {
+        rooms.computeIfAbsent(roomId, id -> reservation.getRoom());
+        bookingsOf(roomId).updateAndGet(snapshot -> snapshot.with(reservation));
+    }
+
+    @Override
+    public void removeReservation(final int roomId, final Reservation reservation) {
+        final AtomicReference<RoomBookingSnapshot> bookings = roomBookings.get(roomId);
+        if (bookings != null) {
+            bookings.updateAndGet(snapshot -> snapshot.without(reservation));
+        }
+    }
+
+    @Override
+    public boolean addReservationIfAvailable(final int roomId, final Reservation reservation) {
+        rooms.computeIfAbsent(roomId, id -> reservation.getRoom());
+        final AtomicReference<RoomBookingSnapshot> bookings = bookingsOf(roomId);
+
+        while (true) {
+            final RoomBookingSnapshot current = bookings.get();
+            if (current.overlaps(reservation.getCheckInDay(), reservation.getCheckOutDay())) {
+                return false;
+            }
+            if (bookings.compareAndSet(current, current.with(reservation))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replaceReservation(final int roomId, final Reservation previous, final Reservation replacement) {
+        final AtomicReference<RoomBookingSnapshot> bookings = bookingsOf(roomId);
+
+        while (true) {
+            final RoomBookingSnapshot current = bookings.get();
+            final RoomBookingSnapshot withoutPrevious = current.without(previous);
+            if (withoutPrevious.overlaps(replacement.getCheckInDay(), replacement.getCheckOutDay())) {
+                return false;
+            }
+            if (bookings.compareAndSet(current, withoutPrevious.with(replacement))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean isLockFree() {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable(final int roomId, final int checkInDay, final int checkOutDay) {
+        final AtomicReference<RoomBookingSnapshot> bookings = roomBookings.get(roomId);
+        return bookings == null || !bookings.get().overlaps(checkInDay, checkOutDay);
+    }
+
+    @Override
+    public void forEachBookedRange(final int roomId, final int fromDay, final int toDay,
+                                   final BookedRangeConsumer consumer) {
+        final AtomicReference<RoomBookingSnapshot> bookings = roomBookings.get(roomId);
+        if (bookings != null) {
+            bookings.get().forEachOverlapping(fromDay, toDay, reservation -> consumer.accept(
+                    reservation.getCheckInDay(), reservation.getCheckOutDay()));
+        }
+    }
+
+    @Override
+    public Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay) {
+        final List<IRoom> availableRooms = new ArrayList<>();
+        rooms.forEachWithId((room, roomId) -> {
+            if (isAvailable(roomId, checkInDay, checkOutDay)) {
+                availableRooms.add(room);
+            }
+        });
+        return availableRooms;
+    }
+
+    /**
+     * Returns the booking reference of a room, creating an empty one if the room has not been seen before.
+     *
+     * @param roomId the id of the room to look up
+     * @return the atomic reference holding the room's current snapshot
+     */
+    private AtomicReference<RoomBookingSnapshot> bookingsOf(final int roomId) {
+        return roomBookings.computeIfAbsent(roomId, id -> new AtomicReference<>(RoomBookingSnapshot.EMPTY));
+    }
+}
@@ -0,0 +1,702 @@
+package storage;
+
+import model.customer.Customer;
+import model.reservation.EpochDays;
+import model.reservation.Reservation;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.customer.CustomerService;
+import service.reservation.BookingSequencer;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataTransfer
+ * <p>
+ * Exports every room, customer and reservation to a file and imports them back, in either {@link ExportFormat}.
+ * Both directions stream: records are written from the live collections through one reused buffer,
+ * and read back one at a time, so memory use does not grow with the size of the file.
+ * The export is not a point-in-time copy; records added while it runs may or may not be included.
+ * <p>
+ * An import goes through a {@link BookingSequencer}, so records are validated like regular operations
+ * and the write-ahead log, when attached, is forced once per batch rather than once per record.
+ * Records that cannot be applied, such as rooms that already exist or reservations of rooms
+ * that are already booked, are counted as rejected and do not stop the import.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class DataTransfer {
+
+    private static final int MAGIC = 0x48455850;
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int READER_CHARS = 1 << 16;
+    private static final int MAX_ERROR_SAMPLES = 10;
+    private static final String CSV_HEADER = "record,field1,field2,field3,field4";
+
+    private static final String ROOM = "ROOM";
+    private static final String CUSTOMER = "CUSTOMER";
+    private static final String RESERVATION = "RESERVATION";
+
+    private DataTransfer() {}
+
+    /**
+     * Writes every room, then every customer, then every reservation to a file, replacing its content.
+     *
+     * @param file the file to write
+     * @param format the format of the file
+     * @return a summary with the number of records written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a binary record has a field longer than 65535 bytes
+     */
+    public static TransferSummary exportTo(final Path file, final ExportFormat format) throws IOException {
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final CustomerService customerService = CustomerService.getSingleton();
+
+        try (ExportWriter writer = format == ExportFormat.CSV ? new CsvWriter(file) : new BinaryWriter(file)) {
+            try {
+                for (IRoom room : reservationService.getAllRooms()) {
+                    writer.writeRoom(room);
+                }
+                customerService.forEachCustomer(customer -> writer.uncheckedWrite(() -> writer.writeCustomer(customer)));
+                reservationService.forEachReservation(
+                        reservation -> writer.uncheckedWrite(() -> writer.writeReservation(reservation)));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.finish();
+            return new TransferSummary(writer.records, 0, List.of());
+        }
+    }
+
+    /**
+     * Reads the records of an exported file in the order they were written and hands them to a handler.
+     *
+     * @param file the file to read
+     * @param format the format of the file
+     * @param handler the handler receiving the records
+     * @return the number of records read
+     * @throws IOException if the file cannot be read or is not an export
+     * @throws IllegalArgumentException if a CSV row is malformed
+     */
+    public static long read(final Path file, final ExportFormat format, final LogReplayHandler handler)
+            throws IOException {
+        return format == ExportFormat.CSV ? readCsv(file, handler) : readBinary(file, handler);
+    }
+
+    /**
+     * Imports the records of an exported file into the services.
+     * Rooms and customers that already exist are rejected; reservations whose customer or room is unknown,
+     * or whose room is already booked during their dates, are rejected as well.
+     *
+     * @param file the file to read
+     * @param format the format of the file
+     * @return a summary with the number of records read and rejected
+     * @throws IOException if the file cannot be read or is not an export
+     * @throws IllegalArgumentException if a CSV row is malformed
+     */
+    public static TransferSummary importFrom(final Path file, final ExportFormat format) throws IOException {
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final CustomerService customerService = CustomerService.getSingleton();
+
+        final ImportHandler handler;
+        final long records;
+        try (BookingSequencer sequencer = new BookingSequencer(reservationService, customerService,
+                BookingSequencer.DEFAULT_CAPACITY, BookingSequencer.DEFAULT_MAX_BATCH)) {
+            handler = new ImportHandler(sequencer, reservationService, customerService);
+            records = read(file, format, handler);
+        }
+        return new TransferSummary(records, handler.rejected.get(), handler.errorSamples);
+    }
+
+    /**
+     * Reads a CSV export, skipping its header and blank lines.
+     *
+     * @param file the file to read
+     * @param handler the handler receiving the records
+     * @return the number of records read
+     * @throws IOException if the file cannot be read
+     */
+    private static long readCsv(final Path file, final LogReplayHandler handler) throws IOException {
+        final List<String> fields = new ArrayList<>(5);
+        final StringBuilder field = new StringBuilder();
+        long records = 0;
+
+        try (LineNumberReader reader = new LineNumberReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), READER_CHARS)) {
+            while (readCsvRow(reader, fields, field)) {
+                final String type = fields.get(0);
+                if (fields.size() == 1 && type.isEmpty() || type.equals("record")) {
+                    continue;
+                }
+
+                try {
+                    switch (type) {
+                        case ROOM -> {
+                            requireFields(fields, 5);
+                            final RoomType roomType = RoomType.valueOf(fields.get(3));
+                            handler.onRoom(Boolean.parseBoolean(fields.get(4))
+                                    ? new FreeRoom(fields.get(1), roomType)
+                                    : new Room(fields.get(1), Double.parseDouble(fields.get(2)), roomType));
+                        }
+                        case CUSTOMER -> {
+                            requireFields(fields, 4);
+                            handler.onCustomer(fields.get(1), fields.get(2), fields.get(3));
+                        }
+                        case RESERVATION -> {
+                            requireFields(fields, 5);
+                            handler.onReservation(fields.get(1), fields.get(2),
+                                    Math.toIntExact(LocalDate.parse(fields.get(3)).toEpochDay()),
+                                    Math.toIntExact(LocalDate.parse(fields.get(4)).toEpochDay()));
+                        }
+                        default -> throw new IllegalArgumentException("Unknown record type: " + type);
+                    }
+                } catch (RuntimeException ex) {
+                    throw new IllegalArgumentException("Malformed row at line " + reader.getLineNumber()
+                            + ": " + ex.getMessage(), ex);
+                }
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads one CSV row, which spans several lines when a quoted field contains line breaks.
+     *
+     * @param reader the reader to read from
+     * @param fields the list receiving the unquoted fields, cleared first
+     * @param field scratch space for the field being read
+     * @return true if a row was read, false at the end of the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    private static boolean readCsvRow(final LineNumberReader reader, final List<String> fields,
+                                      final StringBuilder field) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                final char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+
+            line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Unterminated quoted field at line " + reader.getLineNumber());
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    /**
+     * Checks that a row has the expected number of fields.
+     *
+     * @param fields the fields of the row
+     * @param expected the number of fields of its record type
+     * @throws IllegalArgumentException if the count differs
+     */
+    private static void requireFields(final List<String> fields, final int expected) {
+        if (fields.size() != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " fields but found " + fields.size());
+        }
+    }
+
+    /**
+     * Reads a binary export through a buffer that is refilled as it is consumed.
+     *
+     * @param file the file to read
+     * @param handler the handler receiving the records
+     * @return the number of records read
+     * @throws IOException if the file cannot be read or does not start with the export header
+     */
+    private static long readBinary(final Path file, final LogReplayHandler handler) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).limit(0);
+        long records = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfFile = fill(channel, buffer);
+            if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a binary hotel export: " + file);
+            }
+
+            while (true) {
+                while (buffer.hasRemaining() && (endOfFile || buffer.remaining() >= RecordCodec.MAX_RECORD_BYTES)) {
+                    RecordCodec.dispatch(buffer, handler);
+                    records++;
+                }
+                if (endOfFile) {
+                    return records;
+                }
+                buffer.compact();
+                endOfFile = fill(channel, buffer.flip());
+            }
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full or the file ends, leaving the buffer ready to be read.
+     *
+     * @param channel the channel to read from
+     * @param buffer the buffer in read mode, whose unread bytes are kept
+     * @return true if the end of the file was reached
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean fill(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.position(buffer.limit()).limit(buffer.capacity());
+        int read = 0;
+        while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+            // Keep reading until the buffer is full
+        }
+        buffer.flip();
+        return read < 0;
+    }
+
+    /**
+     * Writes records into a file through one reused buffer.
+     */
+    private abstract static class ExportWriter implements AutoCloseable {
+
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        long records;
+
+        /**
+         * Creates or truncates the file.
+         *
+         * @param file the file to write
+         * @throws IOException if the file cannot be created
+         */
+        ExportWriter(final Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Writes a room record.
+         *
+         * @param room the room to write
+         * @throws IOException if the file cannot be written
+         */
+        abstract void writeRoom(IRoom room) throws IOException;
+
+        /**
+         * Writes a customer record.
+         *
+         * @param customer the customer to write
+         * @throws IOException if the file cannot be written
+         */
+        abstract void writeCustomer(Customer customer) throws IOException;
+
+        /**
+         * Writes a reservation record.
+         *
+         * @param reservation the reservation to write
+         * @throws IOException if the file cannot be written
+         */
+        abstract void writeReservation(Reservation reservation) throws IOException;
+
+        /**
+         * Runs a write from a callback that cannot throw checked exceptions.
+         *
+         * @param write the write to run
+         * @throws UncheckedIOException if the write fails
+         */
+        void uncheckedWrite(final RecordWrite write) {
+            try {
+                write.run();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the file and empties the buffer.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes the remaining bytes and forces the file to disk.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        void finish() throws IOException {
+            flush();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * A record write that may fail with an {@link IOException}.
+     */
+    @FunctionalInterface
+    private interface RecordWrite {
+
+        /**
+         * Writes the record.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Writes the header and records of a binary export with {@link RecordCodec}.
+     */
+    private static final class BinaryWriter extends ExportWriter {
+
+        /**
+         * Creates the file and writes its header.
+         *
+         * @param file the file to write
+         * @throws IOException if the file cannot be created
+         */
+        BinaryWriter(final Path file) throws IOException {
+            super(file);
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+
+        @Override
+        void writeRoom(final IRoom room) throws IOException {
+            ensureRoom();
+            RecordCodec.putRoom(buffer, room);
+            records++;
+        }
+
+        @Override
+        void writeCustomer(final Customer customer) throws IOException {
+            ensureRoom();
+            RecordCodec.putCustomer(buffer, customer);
+            records++;
+        }
+
+        @Override
+        void writeReservation(final Reservation reservation) throws IOException {
+            ensureRoom();
+            RecordCodec.putReservation(buffer, reservation);
+            records++;
+        }
+
+        /**
+         * Flushes the buffer unless it has space for the largest record.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        private void ensureRoom() throws IOException {
+            if (buffer.remaining() < RecordCodec.MAX_RECORD_BYTES) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the header and rows of a CSV export, formatting each row into one reused builder
+     * and encoding it straight into the buffer.
+     */
+    private static final class CsvWriter extends ExportWriter {
+
+        private final StringBuilder row = new StringBuilder(256);
+
+        /**
+         * Creates the file and writes its header line.
+         *
+         * @param file the file to write
+         * @throws IOException if the file cannot be created
+         */
+        CsvWriter(final Path file) throws IOException {
+            super(file);
+            row.append(CSV_HEADER);
+            endRow();
+            records = 0;
+        }
+
+        @Override
+        void writeRoom(final IRoom room) throws IOException {
+            row.append(ROOM).append(',');
+            appendField(room.getRoomNumber());
+            row.append(',').append(room.getRoomPrice().doubleValue())
+                    .append(',').append(room.getRoomType().name())
+                    .append(',').append(room instanceof FreeRoom);
+            endRow();
+        }
+
+        @Override
+        void writeCustomer(final Customer customer) throws IOException {
+            row.append(CUSTOMER).append(',');
+            appendField(customer.getEmail());
+            row.append(',');
+            appendField(customer.getFirstName());
+            row.append(',');
+            appendField(customer.getLastName());
+            endRow();
+        }
+
+        @Override
+        void writeReservation(final Reservation reservation) throws IOException {
+            row.append(RESERVATION).append(',');
+            appendField(reservation.getCustomer().getEmail());
+            row.append(',');
+            appendField(reservation.getRoom().getRoomNumber());
+            row.append(',');
+            appendDay(reservation.getCheckInDay());
+            row.append(',');
+            appendDay(reservation.getCheckOutDay());
+            endRow();
+        }
+
+        /**
+         * Appends a field, quoting it if it contains a comma, a quote or a line break.
+         *
+         * @param value the field value
+         */
+        private void appendField(final String value) {
+            boolean needsQuotes = false;
+            for (int i = 0; i < value.length() && !needsQuotes; i++) {
+                final char c = value.charAt(i);
+                needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!needsQuotes) {
+                row.append(value);
+                return;
+            }
+
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+            row.append('"');
+        }
+
+        /**
+         * Appends an epoch day as yyyy-MM-dd.
+         *
+         * @param epochDay the number of days since 1970-01-01
+         */
+        private void appendDay(final int epochDay) {
+            final LocalDate day = LocalDate.ofEpochDay(epochDay);
+            row.append(day.getYear()).append('-');
+            appendTwoDigits(day.getMonthValue());
+            row.append('-');
+            appendTwoDigits(day.getDayOfMonth());
+        }
+
+        /**
+         * Appends a number below 100 with a leading zero if needed.
+         *
+         * @param value the number to append
+         */
+        private void appendTwoDigits(final int value) {
+            row.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+
+        /**
+         * Ends the row with a line break, encodes it into the buffer as UTF-8 and clears the builder.
+         *
+         * @throws IOException if the buffer has to be flushed and the file cannot be written
+         */
+        private void endRow() throws IOException {
+            row.append('\n');
+            for (int i = 0; i < row.length(); i++) {
+                if (buffer.remaining() < 4) {
+                    flush();
+                }
+                final char c = row.charAt(i);
+                if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < row.length()
+                        && Character.isLowSurrogate(row.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, row.charAt(++i));
+                    buffer.put((byte) (0xF0 | codePoint >> 18))
+                            .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                            .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                            .put((byte) (0x80 | codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?');
+                } else {
+                    buffer.put((byte) (0xE0 | c >> 12))
+                            .put((byte) (0x80 | c >> 6 & 0x3F))
+                            .put((byte) (0x80 | c & 0x3F));
+                }
+            }
+            row.setLength(0);
+            records++;
+        }
+    }
+
+    /**
+     * Submits imported records to a booking sequencer and counts the ones that are rejected.
+     * Rows repeating a room or customer of the store or of an earlier row, and stays that do not
+     * end after they start, are rejected before they reach the sequencer.
+     */
+    private static final class ImportHandler implements LogReplayHandler {
+
+        private final BookingSequencer sequencer;
+        private final ReservationService reservationService;
+        private final CustomerService customerService;
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errorSamples = Collections.synchronizedList(new ArrayList<>());
+        // Keys submitted by this import, which may still be waiting in the sequencer
+        private final Set<String> importedRoomNumbers = new HashSet<>();
+        private final Set<String> importedEmails = new HashSet<>();
+        private CompletableFuture<?> lastSubmitted = CompletableFuture.completedFuture(null);
+
+        /**
+         * Constructs a handler submitting to the given sequencer.
+         *
+         * @param sequencer the sequencer applying the records
+         * @param reservationService the service holding rooms and reservations
+         * @param customerService the service holding customers
+         */
+        ImportHandler(final BookingSequencer sequencer, final ReservationService reservationService,
+                      final CustomerService customerService) {
+            this.sequencer = sequencer;
+            this.reservationService = reservationService;
+            this.customerService = customerService;
+        }
+
+        @Override
+        public void onRoom(final IRoom room) {
+            if (reservationService.getARoom(room.getRoomNumber()) != null
+                    || !importedRoomNumbers.add(room.getRoomNumber())) {
+                reject("Room already exists: " + room.getRoomNumber());
+                return;
+            }
+            track(sequencer.addRoom(room));
+        }
+
+        @Override
+        public void onCustomer(final String email, final String firstName, final String lastName) {
+            if (customerService.getCustomer(email) != null || !importedEmails.add(email)) {
+                reject("Customer already exists: " + email);
+                return;
+            }
+            track(sequencer.addCustomer(email, firstName, lastName));
+        }
+
+        @Override
+        public void onReservation(final String customerEmail, final String roomNumber,
+                                  final int checkInDay, final int checkOutDay) {
+            if (checkOutDay <= checkInDay) {
+                reject("Check-out date must be after check-in date in reservation of " + customerEmail
+                        + " for room " + roomNumber);
+                return;
+            }
+
+            Customer customer = customerService.getCustomer(customerEmail);
+            IRoom room = reservationService.getARoom(roomNumber);
+            if (customer == null || room == null) {
+                // The customer or room may still be waiting in the sequencer; commands are applied in order
+                lastSubmitted.handle((result, error) -> null).join();
+                customer = customerService.getCustomer(customerEmail);
+                room = reservationService.getARoom(roomNumber);
+            }
+            if (customer == null || room == null) {
+                reject("Unknown customer or room in reservation of " + customerEmail + " for room " + roomNumber);
+                return;
+            }
+            track(sequencer.reserveARoom(customer, room, EpochDays.toDate(checkInDay), EpochDays.toDate(checkOutDay)));
+        }
+
+        @Override
+        public void onCancellation(final String customerEmail, final String roomNumber,
+                                   final int checkInDay, final int checkOutDay) {
+            reject("Cancellations are not imported: " + customerEmail + " for room " + roomNumber);
+        }
+
+        @Override
+        public void onRoomRemoval(final String roomNumber) {
+            reject("Room removals are not imported: " + roomNumber);
+        }
+
+        /**
+         * Remembers a submitted command and counts it as rejected if it fails.
+         *
+         * @param future the future of the command
+         */
+        private void track(final CompletableFuture<?> future) {
+            lastSubmitted = future;
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    reject(error.getMessage());
+                }
+            });
+        }
+
+        /**
+         * Counts a rejected record and keeps its message if fewer than the maximum are kept.
+         *
+         * @param message the reason for the rejection
+         */
+        private void reject(final String message) {
+            if (rejected.incrementAndGet() <= MAX_ERROR_SAMPLES) {
+                errorSamples.add(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package storage;
+
+/**
+ * DurabilityPolicy
+ * <p>
+ * Enumerates when records appended to the write-ahead log are forced to disk,
+ * and whether callers wait for that to happen.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum DurabilityPolicy {
+
+    /**
+     * Every operation waits until its record is on disk.
+     * Records appended while a previous batch is being forced are forced together, so concurrent
+     * operations share one fsync instead of paying for one each.
+     */
+    PER_OPERATION,
+
+    /**
+     * Operations return as soon as their record is buffered.
+     * The log is forced once the buffered records reach the batch size or the oldest one reaches the batch delay.
+     */
+    BATCHED,
+
+    /**
+     * Operations return as soon as their record is buffered.
+     * Records are handed to the operating system on the same schedule as {@link #BATCHED},
+     * but the log is only forced when it is closed.
+     */
+    ASYNC
+}
@@ -0,0 +1,29 @@
+package storage;
+
+/**
+ * ExportFormat
+ * <p>
+ * Enumerates the file formats of a full export of rooms, customers and reservations.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public enum ExportFormat {
+
+    /**
+     * UTF-8 text with one record per line, readable by spreadsheets and scripts:
+     * <pre>
+     * record,field1,field2,field3,field4
+     * ROOM,101,120.0,SINGLE,false
+     * CUSTOMER,jane@example.com,Jane,Doe
+     * RESERVATION,jane@example.com,101,2026-10-17,2026-10-19
+     * </pre>
+     * Fields containing a comma, a quote or a line break are quoted, with quotes doubled.
+     */
+    CSV,
+
+    /**
+     * The record encoding of the snapshots and the write-ahead log after a short header;
+     * about half the size of the CSV form and cheaper to read back.
+     */
+    BINARY
+}
@@ -0,0 +1,276 @@
+package storage;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+import service.reservation.RoomNotAvailableException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HotelStorage
+ * <p>
+ * Makes the customer and reservation services durable.
+ * Opening the storage maps the latest snapshot in the data directory, replays only the write-ahead log
+ * records written after it, then attaches the log so every new room, customer and reservation is appended to it.
+ * Stored records are restored without going through validation again, so restart time depends on the size of
+ * the snapshot and the log tail, not on the cost of the regular operations.
+ * <p>
+ * Storage is configured through system properties:
+ * <ul>
+ *     <li>{@code hotel.data.dir} - directory holding the log and snapshots; storage is disabled when unset</li>
+ *     <li>{@code hotel.wal.durability} - a {@link DurabilityPolicy}, {@code PER_OPERATION} by default</li>
+ *     <li>{@code hotel.wal.batch.millis} - longest delay before a batch is written, 10 by default</li>
+ *     <li>{@code hotel.wal.batch.bytes} - batch size that triggers a write, 1 MiB by default</li>
+ *     <li>{@code hotel.snapshot.interval.seconds} - time between periodic snapshots, 300 by default, 0 to disable</li>
+ * </ul>
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class HotelStorage implements Closeable {
+
+    private static final String WAL_FILE_NAME = "hotel.wal";
+
+    private final CustomerService customerService = CustomerService.getSingleton();
+    private final ReservationService reservationService = ReservationService.getSingleton();
+    private final Path dataDirectory;
+    private final WriteAheadLog writeAheadLog;
+    private final ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * Opens the storage in the given directory and restores the services from it.
+     *
+     * @param dataDirectory the directory holding the log and snapshots, created if it does not exist
+     * @param policy the durability policy of the log
+     * @param batchDelayMillis the longest time a record may wait before its batch is written
+     * @param batchBytes the batch size that triggers a write
+     * @param snapshotIntervalSeconds the time between periodic snapshots, or 0 to disable them
+     * @throws IOException if the snapshot or log cannot be read
+     */
+    public HotelStorage(final Path dataDirectory, final DurabilityPolicy policy, final long batchDelayMillis,
+                        final int batchBytes, final long snapshotIntervalSeconds) throws IOException {
+        this.dataDirectory = dataDirectory;
+        Files.createDirectories(dataDirectory);
+
+        final RestoreHandler restoreHandler = new RestoreHandler();
+        final long snapshotPosition = SnapshotFile.loadLatest(dataDirectory, restoreHandler);
+        writeAheadLog = WriteAheadLog.open(dataDirectory.resolve(WAL_FILE_NAME), snapshotPosition, policy,
+                batchDelayMillis, batchBytes, restoreHandler);
+        restoreHandler.restoreDeferredReservations();
+
+        customerService.attachWriteAheadLog(writeAheadLog);
+        reservationService.attachWriteAheadLog(writeAheadLog);
+
+        if (snapshotIntervalSeconds > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::takeSnapshotQuietly,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+    }
+
+    /**
+     * Opens the storage configured through system properties.
+     *
+     * @return the opened storage, or null if {@code hotel.data.dir} is not set
+     * @throws IOException if the snapshot or log cannot be read
+     */
+    public static HotelStorage openFromSystemProperties() throws IOException {
+        final String dataDirectory = System.getProperty("hotel.data.dir");
+        if (dataDirectory == null || dataDirectory.isBlank()) {
+            return null;
+        }
+
+        return new HotelStorage(Path.of(dataDirectory),
+                DurabilityPolicy.valueOf(System.getProperty("hotel.wal.durability", DurabilityPolicy.PER_OPERATION.name())),
+                Long.getLong("hotel.wal.batch.millis", 10),
+                Integer.getInteger("hotel.wal.batch.bytes", 1024 * 1024),
+                Long.getLong("hotel.snapshot.interval.seconds", 300));
+    }
+
+    /**
+     * Writes a snapshot of the current state while the services keep running.
+     * The log is synced first so that every record before the snapshot's log position is on disk.
+     *
+     * @return the path of the new snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized Path takeSnapshot() throws IOException {
+        final long logPosition = writeAheadLog.sync();
+
+        final List<Reservation> reservations = new ArrayList<>();
+        reservationService.forEachReservation(reservations::add);
+        final List<Customer> customers = new ArrayList<>(customerService.getAllCustomers());
+        final List<IRoom> rooms = new ArrayList<>(reservationService.getAllRooms());
+
+        return SnapshotFile.write(dataDirectory, logPosition, rooms, customers, reservations);
+    }
+
+    /**
+     * Stops periodic snapshots, writes a final snapshot, detaches the log from the services and closes it.
+     *
+     * @throws IOException if the final snapshot or the pending log records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+
+        try {
+            takeSnapshot();
+        } finally {
+            customerService.attachWriteAheadLog(null);
+            reservationService.attachWriteAheadLog(null);
+            writeAheadLog.close();
+        }
+    }
+
+    /**
+     * Takes a periodic snapshot, reporting failures instead of cancelling the schedule.
+     */
+    private void takeSnapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Snapshot failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Restores snapshot and log records into the services without logging or validating them again.
+     * Customers are logged after they are applied, so a reservation can appear in the log before the customer
+     * it refers to; such reservations are held back until the whole log has been read.
+     * A snapshot is read while the services keep running, so it can hold a reservation next to one that was
+     * cancelled while it was being written, or miss a reservation whose cancellation is in the log after it;
+     * a reservation that conflicts with a restored one is held back in the same way.
+     * Every change to a room is logged in the order it took effect, so a cancellation only ever applies to
+     * records read before it: one whose reservation is neither restored nor held back was already left out
+     * of the snapshot and is ignored, and a reservation of the same stay read after it is a new booking.
+     * A reservation that still conflicts once the whole log has been read means the stored data is corrupt.
+     */
+    private class RestoreHandler implements LogReplayHandler {
+
+        private final List<StoredReservation> deferredReservations = new ArrayList<>();
+
+        @Override
+        public void onRoom(final IRoom room) {
+            reservationService.restoreRoom(room);
+        }
+
+        @Override
+        public void onCustomer(final String email, final String firstName, final String lastName) {
+            customerService.restoreCustomer(Customer.restore(firstName, lastName, email));
+        }
+
+        @Override
+        public void onReservation(final String customerEmail, final String roomNumber,
+                                  final int checkInDay, final int checkOutDay) {
+            final StoredReservation stored = new StoredReservation(customerEmail, roomNumber, checkInDay, checkOutDay);
+            try {
+                if (!tryRestore(customerEmail, roomNumber, checkInDay, checkOutDay)) {
+                    deferredReservations.add(stored);
+                }
+            } catch (RoomNotAvailableException ex) {
+                deferredReservations.add(stored);
+            }
+        }
+
+        @Override
+        public void onCancellation(final String customerEmail, final String roomNumber,
+                                   final int checkInDay, final int checkOutDay) {
+            final StoredReservation stored = new StoredReservation(customerEmail, roomNumber, checkInDay, checkOutDay);
+            final Customer customer = customerService.getCustomer(customerEmail);
+            final IRoom room = reservationService.getARoom(roomNumber);
+            if (customer != null && room != null && reservationService.restoreCancellation(customer, room, checkInDay)) {
+                return;
+            }
+            deferredReservations.remove(stored);
+        }
+
+        @Override
+        public void onRoomRemoval(final String roomNumber) {
+            reservationService.restoreRoomRemoval(roomNumber);
+            deferredReservations.removeIf(reservation -> reservation.roomNumber().equals(roomNumber));
+        }
+
+        /**
+         * Restores the reservations that referred to rooms or customers not yet restored when they were read,
+         * or that conflicted with a reservation restored before them.
+         *
+         * @throws IOException if a reservation still conflicts with another stored reservation of its room
+         */
+        void restoreDeferredReservations() throws IOException {
+            for (StoredReservation reservation : deferredReservations) {
+                try {
+                    if (!tryRestore(reservation.customerEmail(), reservation.roomNumber(),
+                            reservation.checkInDay(), reservation.checkOutDay())) {
+                        System.err.println("Skipping stored reservation of " + reservation.customerEmail()
+                                + " for room " + reservation.roomNumber() + ": " + describeMissing(reservation));
+                    }
+                } catch (RoomNotAvailableException ex) {
+                    throw new IOException("Corrupt storage: stored reservation of " + reservation.customerEmail()
+                            + " conflicts with another reservation of room " + reservation.roomNumber(), ex);
+                }
+            }
+            deferredReservations.clear();
+        }
+
+        /**
+         * Describes which of the customer and the room of a stored reservation are not known.
+         *
+         * @param reservation the stored reservation
+         * @return a description of what is missing
+         */
+        private String describeMissing(final StoredReservation reservation) {
+            final boolean customerMissing = customerService.getCustomer(reservation.customerEmail()) == null;
+            final boolean roomMissing = reservationService.getARoom(reservation.roomNumber()) == null;
+            if (customerMissing && roomMissing) {
+                return "unknown customer and room";
+            }
+            return customerMissing ? "unknown customer" : "unknown room";
+        }
+
+        /**
+         * Restores a reservation if its customer and room are known.
+         *
+         * @param customerEmail the email of the customer who made the reservation
+         * @param roomNumber the number of the reserved room
+         * @param checkInDay the check-in day, as an epoch day
+         * @param checkOutDay the check-out day, as an epoch day
+         * @return true if the reservation was restored, false if its customer or room is unknown
+         * @throws RoomNotAvailableException if another reservation of the room overlaps with the given dates
+         */
+        private boolean tryRestore(final String customerEmail, final String roomNumber,
+                                   final int checkInDay, final int checkOutDay) {
+            final Customer customer = customerService.getCustomer(customerEmail);
+            final IRoom room = reservationService.getARoom(roomNumber);
+            if (customer == null || room == null) {
+                return false;
+            }
+
+            reservationService.restoreReservation(customer, room, checkInDay, checkOutDay);
+            return true;
+        }
+    }
+
+    /**
+     * Reservation record read from storage whose customer or room was not yet known.
+     */
+    private record StoredReservation(String customerEmail, String roomNumber, int checkInDay, int checkOutDay) {}
+}
@@ -0,0 +1,58 @@
+package storage;
+
+import model.room.IRoom;
+
+/**
+ * LogReplayHandler
+ * <p>
+ * Receives the records of a write-ahead log, in the order they were appended, while the log is replayed.
+ * The days of a stay are epoch days, the number of days since 1970-01-01.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public interface LogReplayHandler {
+
+    /**
+     * Called for every logged room.
+     *
+     * @param room the room that was added
+     */
+    void onRoom(IRoom room);
+
+    /**
+     * Called for every logged customer.
+     *
+     * @param email the email of the customer
+     * @param firstName the first name of the customer
+     * @param lastName the last name of the customer
+     */
+    void onCustomer(String email, String firstName, String lastName);
+
+    /**
+     * Called for every logged reservation.
+     *
+     * @param customerEmail the email of the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDay the check-in day
+     * @param checkOutDay the check-out day
+     */
+    void onReservation(String customerEmail, String roomNumber, int checkInDay, int checkOutDay);
+
+    /**
+     * Called for every logged cancellation. A modified reservation is logged as the cancellation
+     * of the old stay followed by the reservation of the new one.
+     *
+     * @param customerEmail the email of the customer who made the reservation
+     * @param roomNumber the number of the reserved room
+     * @param checkInDay the check-in day of the cancelled reservation
+     * @param checkOutDay the check-out day of the cancelled reservation
+     */
+    void onCancellation(String customerEmail, String roomNumber, int checkInDay, int checkOutDay);
+
+    /**
+     * Called for every logged room removal. The reservations of the room are logged as cancellations before it.
+     *
+     * @param roomNumber the number of the removed room
+     */
+    void onRoomRemoval(String roomNumber);
+}
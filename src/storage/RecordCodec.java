@@ -0,0 +1,228 @@
+package storage;
+
+import model.customer.Customer;
+import model.reservation.EpochDays;
+import model.reservation.Reservation;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * RecordCodec
+ * <p>
+ * Compact binary encoding of rooms, customers, reservations, cancellations and room removals
+ * shared by the storage formats.
+ * Every record starts with a one-byte type followed by its fields; strings are written as a
+ * length-prefixed UTF-8 byte sequence and the days of a stay as int epoch days, so the stored records
+ * mean the same stays whatever time zone they are read in. Stays written as epoch milliseconds of midnight,
+ * before stays were kept as epoch days, are still read and converted in the system time zone.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+final class RecordCodec {
+
+    static final byte ROOM = 1;
+    static final byte CUSTOMER = 2;
+    static final byte ROOM_REMOVAL = 6;
+    static final byte RESERVATION = 7;
+    static final byte CANCELLATION = 8;
+    static final byte MODIFICATION = 9;
+
+    // Stays stored as epoch milliseconds, read only
+    private static final byte MILLIS_RESERVATION = 3;
+    private static final byte MILLIS_CANCELLATION = 4;
+    private static final byte MILLIS_MODIFICATION = 5;
+
+    /**
+     * Upper bound on the encoded size of any record: a type byte, three strings of at most 65535 bytes,
+     * four dates, a price and a room kind.
+     */
+    static final int MAX_RECORD_BYTES = 1 + 3 * (Short.BYTES + 0xFFFF) + 4 * Long.BYTES + Double.BYTES + 1;
+
+    private static final byte PAID_ROOM = 0;
+    private static final byte FREE_ROOM = 1;
+
+    private RecordCodec() {}
+
+    /**
+     * Writes a room record.
+     *
+     * @param buffer the buffer to write to
+     * @param room the room to write
+     */
+    static void putRoom(final ByteBuffer buffer, final IRoom room) {
+        buffer.put(ROOM);
+        putString(buffer, room.getRoomNumber());
+        buffer.put(room instanceof FreeRoom ? FREE_ROOM : PAID_ROOM);
+        buffer.putDouble(room.getRoomPrice());
+        putString(buffer, room.getRoomType().label);
+    }
+
+    /**
+     * Writes a room removal record.
+     *
+     * @param buffer the buffer to write to
+     * @param room the removed room
+     */
+    static void putRoomRemoval(final ByteBuffer buffer, final IRoom room) {
+        buffer.put(ROOM_REMOVAL);
+        putString(buffer, room.getRoomNumber());
+    }
+
+    /**
+     * Reads the fields of a room record whose type byte has already been consumed.
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded room
+     */
+    static IRoom getRoom(final ByteBuffer buffer) {
+        final String roomNumber = getString(buffer);
+        final byte kind = buffer.get();
+        final double price = buffer.getDouble();
+        final RoomType roomType = RoomType.valueOfLabel(getString(buffer));
+
+        return kind == FREE_ROOM ? new FreeRoom(roomNumber, roomType) : new Room(roomNumber, price, roomType);
+    }
+
+    /**
+     * Writes a customer record.
+     *
+     * @param buffer the buffer to write to
+     * @param customer the customer to write
+     */
+    static void putCustomer(final ByteBuffer buffer, final Customer customer) {
+        buffer.put(CUSTOMER);
+        putString(buffer, customer.getEmail());
+        putString(buffer, customer.getFirstName());
+        putString(buffer, customer.getLastName());
+    }
+
+    /**
+     * Writes a reservation record.
+     *
+     * @param buffer the buffer to write to
+     * @param reservation the reservation to write
+     */
+    static void putReservation(final ByteBuffer buffer, final Reservation reservation) {
+        putStay(buffer, RESERVATION, reservation);
+    }
+
+    /**
+     * Writes a modification record: a reservation and the new dates it was moved to, replayed as the cancellation
+     * of the old stay followed by the reservation of the new one.
+     *
+     * @param buffer the buffer to write to
+     * @param previous the reservation before the change
+     * @param replacement the reservation after the change
+     */
+    static void putModification(final ByteBuffer buffer, final Reservation previous, final Reservation replacement) {
+        putStay(buffer, MODIFICATION, previous);
+        buffer.putInt(replacement.getCheckInDay());
+        buffer.putInt(replacement.getCheckOutDay());
+    }
+
+    /**
+     * Writes a record holding the customer, room and dates of a reservation.
+     *
+     * @param buffer the buffer to write to
+     * @param type the record type
+     * @param reservation the reservation to write
+     */
+    private static void putStay(final ByteBuffer buffer, final byte type, final Reservation reservation) {
+        buffer.put(type);
+        putString(buffer, reservation.getCustomer().getEmail());
+        putString(buffer, reservation.getRoom().getRoomNumber());
+        buffer.putInt(reservation.getCheckInDay());
+        buffer.putInt(reservation.getCheckOutDay());
+    }
+
+    /**
+     * Writes a cancellation record, with the same fields as the reservation it cancels.
+     *
+     * @param buffer the buffer to write to
+     * @param reservation the cancelled reservation
+     */
+    static void putCancellation(final ByteBuffer buffer, final Reservation reservation) {
+        putStay(buffer, CANCELLATION, reservation);
+    }
+
+    /**
+     * Reads the record at the buffer's position and hands it to the replay handler.
+     *
+     * @param buffer the buffer to read from
+     * @param handler the handler receiving the record
+     * @throws IllegalArgumentException if the record type is unknown
+     */
+    static void dispatch(final ByteBuffer buffer, final LogReplayHandler handler) {
+        final byte type = buffer.get();
+        switch (type) {
+            case ROOM -> handler.onRoom(getRoom(buffer));
+            case CUSTOMER -> handler.onCustomer(getString(buffer), getString(buffer), getString(buffer));
+            case RESERVATION -> handler.onReservation(getString(buffer), getString(buffer),
+                    buffer.getInt(), buffer.getInt());
+            case CANCELLATION -> handler.onCancellation(getString(buffer), getString(buffer),
+                    buffer.getInt(), buffer.getInt());
+            case MODIFICATION -> {
+                final String customerEmail = getString(buffer);
+                final String roomNumber = getString(buffer);
+                handler.onCancellation(customerEmail, roomNumber, buffer.getInt(), buffer.getInt());
+                handler.onReservation(customerEmail, roomNumber, buffer.getInt(), buffer.getInt());
+            }
+            case MILLIS_RESERVATION -> handler.onReservation(getString(buffer), getString(buffer),
+                    getMillisDay(buffer), getMillisDay(buffer));
+            case MILLIS_CANCELLATION -> handler.onCancellation(getString(buffer), getString(buffer),
+                    getMillisDay(buffer), getMillisDay(buffer));
+            case MILLIS_MODIFICATION -> {
+                final String customerEmail = getString(buffer);
+                final String roomNumber = getString(buffer);
+                handler.onCancellation(customerEmail, roomNumber, getMillisDay(buffer), getMillisDay(buffer));
+                handler.onReservation(customerEmail, roomNumber, getMillisDay(buffer), getMillisDay(buffer));
+            }
+            case ROOM_REMOVAL -> handler.onRoomRemoval(getString(buffer));
+            default -> throw new IllegalArgumentException("Unknown record type: " + type);
+        }
+    }
+
+    /**
+     * Reads a date stored as epoch milliseconds and returns its epoch day in the system time zone.
+     *
+     * @param buffer the buffer to read from
+     * @return the number of days since 1970-01-01
+     */
+    private static int getMillisDay(final ByteBuffer buffer) {
+        return EpochDays.toEpochDay(new Date(buffer.getLong()));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string.
+     *
+     * @param buffer the buffer to write to
+     * @param value the string to write
+     * @throws IllegalArgumentException if the encoded string is longer than 65535 bytes
+     */
+    static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value too long to store: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded string
+     */
+    static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,300 @@
+package storage;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * SnapshotFile
+ * <p>
+ * Compact, memory-mapped image of every room, customer and reservation at one point of the write-ahead log.
+ * A snapshot file starts with a fixed header:
+ * <pre>
+ * [int magic][int version][long log position][int rooms][int customers][long reservations][long body bytes][int crc32c]
+ * </pre>
+ * followed by the records, encoded by {@link RecordCodec}: all rooms, then all customers, then all reservations.
+ * <p>
+ * Snapshots are written to a temporary file and atomically renamed once forced, so a crash never leaves
+ * a partial snapshot behind. Loading maps the file, verifies the checksum, and hands every record to a
+ * {@link LogReplayHandler}; the write-ahead log then only needs to be replayed from the recorded log position.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x48534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final long REGION_BYTES = 64L * 1024 * 1024;
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private SnapshotFile() {}
+
+    /**
+     * Writes a snapshot of the given state into the directory and removes all but the newest snapshots.
+     * <p>
+     * The collections may be read while the services keep changing, as long as the log position was taken
+     * before reading them and reservations are read before customers and rooms: every record before the
+     * position is then part of the snapshot, and every room and customer a captured reservation refers to
+     * is captured as well. Records after the position that made it into the snapshot are skipped on replay.
+     *
+     * @param directory the directory holding the snapshots
+     * @param logPosition the write-ahead log position the snapshot covers
+     * @param rooms the rooms to write
+     * @param customers the customers to write
+     * @param reservations the reservations to write
+     * @return the path of the new snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static Path write(final Path directory, final long logPosition, final Collection<IRoom> rooms,
+                             final Collection<Customer> customers, final Collection<Reservation> reservations)
+            throws IOException {
+        final Path target = directory.resolve(String.format("%s%020d%s", PREFIX, logPosition, SUFFIX));
+        final Path temporary = directory.resolve(target.getFileName() + ".tmp");
+
+        try (MappedWriter writer = new MappedWriter(temporary)) {
+            int roomCount = 0;
+            for (IRoom room : rooms) {
+                writer.write(buffer -> RecordCodec.putRoom(buffer, room));
+                roomCount++;
+            }
+
+            int customerCount = 0;
+            for (Customer customer : customers) {
+                writer.write(buffer -> RecordCodec.putCustomer(buffer, customer));
+                customerCount++;
+            }
+
+            long reservationCount = 0;
+            for (Reservation reservation : reservations) {
+                writer.write(buffer -> RecordCodec.putReservation(buffer, reservation));
+                reservationCount++;
+            }
+
+            writer.finish(logPosition, roomCount, customerCount, reservationCount);
+        }
+
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteOldSnapshots(directory);
+        return target;
+    }
+
+    /**
+     * Loads the newest valid snapshot in the directory.
+     * Snapshots that fail verification are skipped in favour of the next older one.
+     *
+     * @param directory the directory holding the snapshots
+     * @param handler the handler receiving the records of the snapshot
+     * @return the write-ahead log position covered by the loaded snapshot, or 0 if there is none
+     * @throws IOException if the directory cannot be listed or a snapshot cannot be read
+     */
+    public static long loadLatest(final Path directory, final LogReplayHandler handler) throws IOException {
+        for (Path snapshot : listSnapshots(directory)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        Math.min(HEADER_BYTES, channel.size()));
+                if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    continue;
+                }
+
+                final long logPosition = header.getLong(8);
+                final long bodyBytes = header.getLong(32);
+                final int checksum = header.getInt(40);
+                if (HEADER_BYTES + bodyBytes != channel.size() || checksumOf(channel, bodyBytes) != checksum) {
+                    continue;
+                }
+
+                readRecords(channel, bodyBytes, handler);
+                return logPosition;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the checksum of the snapshot body.
+     *
+     * @param channel the channel of the snapshot file
+     * @param bodyBytes the size of the body
+     * @return the CRC32C of the body
+     * @throws IOException if the file cannot be mapped
+     */
+    private static int checksumOf(final FileChannel channel, final long bodyBytes) throws IOException {
+        final CRC32C crc = new CRC32C();
+        for (long offset = 0; offset < bodyBytes; offset += REGION_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset,
+                    Math.min(REGION_BYTES, bodyBytes - offset)));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Decodes every record of the snapshot body, remapping the file window as it is consumed.
+     *
+     * @param channel the channel of the snapshot file
+     * @param bodyBytes the size of the body
+     * @param handler the handler receiving the records
+     * @throws IOException if the file cannot be mapped
+     */
+    private static void readRecords(final FileChannel channel, final long bodyBytes,
+                                    final LogReplayHandler handler) throws IOException {
+        long windowStart = HEADER_BYTES;
+        final long end = HEADER_BYTES + bodyBytes;
+
+        while (windowStart < end) {
+            final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(REGION_BYTES, end - windowStart));
+            final boolean last = windowStart + window.capacity() == end;
+
+            while (window.hasRemaining() && (last || window.remaining() >= RecordCodec.MAX_RECORD_BYTES)) {
+                RecordCodec.dispatch(window, handler);
+            }
+            windowStart += window.position();
+        }
+    }
+
+    /**
+     * Lists the snapshots in the directory, newest first.
+     *
+     * @param directory the directory holding the snapshots
+     * @return the snapshot paths
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Path> listSnapshots(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        final String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * Deletes every snapshot except the newest ones.
+     *
+     * @param directory the directory holding the snapshots
+     * @throws IOException if a snapshot cannot be deleted
+     */
+    private static void deleteOldSnapshots(final Path directory) throws IOException {
+        final List<Path> snapshots = listSnapshots(directory);
+        for (Path snapshot : snapshots.subList(Math.min(SNAPSHOTS_TO_KEEP, snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Writes records into a file through a sliding memory-mapped region.
+     */
+    private static final class MappedWriter implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer scratch = ByteBuffer.allocate(RecordCodec.MAX_RECORD_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer region;
+        private long regionStart = HEADER_BYTES;
+
+        /**
+         * Creates the file and maps its first region.
+         *
+         * @param file the file to write
+         * @throws IOException if the file cannot be created or mapped
+         */
+        MappedWriter(final Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            region = map(regionStart);
+        }
+
+        /**
+         * Encodes a record and copies it into the mapped region, mapping the next region when it is full.
+         *
+         * @param encoder writes the record into the buffer it is given
+         * @throws IOException if the next region cannot be mapped
+         */
+        void write(final Consumer<ByteBuffer> encoder) throws IOException {
+            scratch.clear();
+            try {
+                encoder.accept(scratch);
+            } catch (BufferOverflowException ex) {
+                throw new IOException("Record too large for snapshot", ex);
+            }
+            scratch.flip();
+            crc.update(scratch.array(), 0, scratch.limit());
+
+            if (region.remaining() < scratch.remaining()) {
+                region.force();
+                regionStart += region.position();
+                region = map(regionStart);
+            }
+            region.put(scratch);
+        }
+
+        /**
+         * Writes the header, trims the file to its content and forces everything to disk.
+         *
+         * @param logPosition the write-ahead log position the snapshot covers
+         * @param rooms the number of rooms written
+         * @param customers the number of customers written
+         * @param reservations the number of reservations written
+         * @throws IOException if the header cannot be written or the file cannot be forced
+         */
+        void finish(final long logPosition, final int rooms, final int customers, final long reservations)
+                throws IOException {
+            final long end = regionStart + region.position();
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(logPosition)
+                    .putInt(rooms)
+                    .putInt(customers)
+                    .putLong(reservations)
+                    .putLong(end - HEADER_BYTES)
+                    .putInt((int) crc.getValue());
+            header.force();
+            region.force();
+
+            channel.truncate(end);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Maps a new writable region of the file.
+         *
+         * @param position the file position of the region
+         * @return the mapped region
+         * @throws IOException if the region cannot be mapped
+         */
+        private MappedByteBuffer map(final long position) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_BYTES);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package storage;
+
+import java.util.List;
+
+/**
+ * TransferSummary
+ * <p>
+ * Outcome of an export or import: how many records were transferred, how many were rejected,
+ * and the messages of the first rejections.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class TransferSummary {
+
+    private final long records;
+    private final long rejected;
+    private final List<String> errorSamples;
+
+    /**
+     * Constructs a summary with the specified values.
+     *
+     * @param records the number of records transferred
+     * @param rejected the number of records that were read but could not be applied
+     * @param errorSamples the messages of the first rejections
+     */
+    public TransferSummary(long records, long rejected, List<String> errorSamples) {
+        this.records = records;
+        this.rejected = rejected;
+        this.errorSamples = List.copyOf(errorSamples);
+    }
+
+    /**
+     * Gets the number of records transferred.
+     *
+     * @return the record count
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Gets the number of records that were read but could not be applied,
+     * such as customers with an invalid email or reservations of rooms that are already booked.
+     *
+     * @return the rejected record count
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Gets the messages of the first rejections.
+     *
+     * @return an unmodifiable list of error messages
+     */
+    public List<String> getErrorSamples() {
+        return errorSamples;
+    }
+
+    /**
+     * Returns a string representation of the summary.
+     *
+     * @return a string containing the counts
+     */
+    @Override
+    public String toString() {
+        return "TransferSummary{" +
+                "Records: " + records +
+                ", Rejected: " + rejected +
+                '}';
+    }
+}
@@ -0,0 +1,518 @@
+package storage;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * WriteAheadLog
+ * <p>
+ * Append-only, checksummed log of rooms, customers, reservations and cancellations.
+ * Every record is framed as {@code [int length][int crc32c][payload]}, where the payload is encoded by
+ * {@link RecordCodec}, and is identified by its log position: the file offset just past its last byte.
+ * <p>
+ * Appending only copies the encoded record into an in-memory batch. A single flusher thread writes
+ * batches through a {@link FileChannel} and forces them according to the {@link DurabilityPolicy}.
+ * Records appended while a batch is being forced are collected into the next batch, so under concurrent
+ * load one fsync covers many operations (group commit).
+ * <p>
+ * Replaying the log starts at a given log position, typically the one recorded in the latest snapshot,
+ * and stops at the first torn or corrupted record; the file is truncated there, so a crash in the middle
+ * of a write never prevents the log from being reopened.
+ *
+ * @author ahmad deni atmaja saputra
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int INITIAL_BATCH_BYTES = 64 * 1024;
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+    private static final int SCRATCH_BYTES = 4 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(SCRATCH_BYTES));
+
+    private final FileChannel channel;
+    private final DurabilityPolicy policy;
+    private final long batchDelayNanos;
+    private final int batchBytes;
+    private final Thread flusher;
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BATCH_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BATCH_BYTES);
+    private long pendingSince;
+    private long appendedPosition;
+    private long durablePosition;
+    private IOException failure;
+    private boolean flushRequested;
+    private boolean closed;
+
+    /**
+     * Constructs a log over an open channel positioned at the end of its valid records.
+     *
+     * @param channel the channel of the log file
+     * @param position the log position of the end of the valid records
+     * @param policy the durability policy
+     * @param batchDelayMillis the longest time a record may wait before its batch is written
+     * @param batchBytes the batch size that triggers a write
+     */
+    private WriteAheadLog(final FileChannel channel, final long position, final DurabilityPolicy policy,
+                          final long batchDelayMillis, final int batchBytes) {
+        this.channel = channel;
+        this.policy = policy;
+        this.batchDelayNanos = batchDelayMillis * 1_000_000L;
+        this.batchBytes = batchBytes;
+        this.appendedPosition = position;
+        this.durablePosition = position;
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Opens the log at the given path, replaying its records before accepting new ones.
+     *
+     * @param file the log file, created if it does not exist
+     * @param replayFrom the log position to start replaying at; earlier records are skipped
+     * @param policy the durability policy
+     * @param batchDelayMillis the longest time a record may wait before its batch is written
+     * @param batchBytes the batch size that triggers a write
+     * @param handler the handler receiving the existing records
+     * @return the opened log
+     * @throws IOException if the log file cannot be opened or read
+     */
+    public static WriteAheadLog open(final Path file, final long replayFrom, final DurabilityPolicy policy,
+                                     final long batchDelayMillis, final int batchBytes,
+                                     final LogReplayHandler handler) throws IOException {
+        final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < replayFrom) {
+                throw new IOException("Log " + file + " ends at " + channel.size()
+                        + " but replay was requested from " + replayFrom);
+            }
+
+            final long position = replay(channel, replayFrom, handler);
+            channel.truncate(position);
+            channel.position(position);
+
+            final WriteAheadLog log = new WriteAheadLog(channel, position, policy, batchDelayMillis, batchBytes);
+            log.flusher.start();
+            return log;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Appends a room record.
+     *
+     * @param room the room to log
+     * @return the log position of the record
+     */
+    public long appendRoom(final IRoom room) {
+        return append(buffer -> RecordCodec.putRoom(buffer, room));
+    }
+
+    /**
+     * Appends a room removal record.
+     *
+     * @param room the removed room
+     * @return the log position of the record
+     */
+    public long appendRoomRemoval(final IRoom room) {
+        return append(buffer -> RecordCodec.putRoomRemoval(buffer, room));
+    }
+
+    /**
+     * Appends a customer record.
+     *
+     * @param customer the customer to log
+     * @return the log position of the record
+     */
+    public long appendCustomer(final Customer customer) {
+        return append(buffer -> RecordCodec.putCustomer(buffer, customer));
+    }
+
+    /**
+     * Appends a reservation record.
+     *
+     * @param reservation the reservation to log
+     * @return the log position of the record
+     */
+    public long appendReservation(final Reservation reservation) {
+        return append(buffer -> RecordCodec.putReservation(buffer, reservation));
+    }
+
+    /**
+     * Appends a cancellation record.
+     *
+     * @param reservation the cancelled reservation
+     * @return the log position of the record
+     */
+    public long appendCancellation(final Reservation reservation) {
+        return append(buffer -> RecordCodec.putCancellation(buffer, reservation));
+    }
+
+    /**
+     * Appends a modification record, so the cancellation of the old stay and the reservation of the new one
+     * are written, and replayed, together.
+     *
+     * @param previous the reservation before the change
+     * @param replacement the reservation after the change
+     * @return the log position of the record
+     */
+    public long appendModification(final Reservation previous, final Reservation replacement) {
+        return append(buffer -> RecordCodec.putModification(buffer, previous, replacement));
+    }
+
+    /**
+     * Waits until the record at the given log position is durable, if the durability policy requires it.
+     * Under {@link DurabilityPolicy#BATCHED} and {@link DurabilityPolicy#ASYNC} this returns immediately.
+     *
+     * @param position the log position returned when the record was appended
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void awaitDurable(final long position) {
+        if (policy != DurabilityPolicy.PER_OPERATION) {
+            return;
+        }
+
+        boolean interrupted = false;
+        synchronized (this) {
+            while (durablePosition < position && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durablePosition < position) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Writes and forces every record appended so far, regardless of the durability policy.
+     *
+     * @return the log position up to which the log is now on disk
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public long sync() {
+        final long position;
+        synchronized (this) {
+            position = appendedPosition;
+            flushRequested = true;
+            notifyAll();
+
+            boolean interrupted = false;
+            while (durablePosition < position && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durablePosition < position) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        }
+
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Write-ahead log failed", ex);
+        }
+        return position;
+    }
+
+    /**
+     * Returns the log position just past the last appended record.
+     *
+     * @return the current end of the log, including records not yet written to disk
+     */
+    public synchronized long position() {
+        return appendedPosition;
+    }
+
+    /**
+     * Writes and forces every pending record, then closes the log file.
+     *
+     * @throws IOException if the remaining records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            if (failure == null) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Encodes a record and adds it to the pending batch.
+     *
+     * @param encoder writes the record payload into the buffer it is given
+     * @return the log position of the record
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed
+     */
+    private long append(final Consumer<ByteBuffer> encoder) {
+        final ByteBuffer record = encode(encoder);
+        final int recordBytes = record.remaining();
+
+        synchronized (this) {
+            while (pending.position() + recordBytes > MAX_PENDING_BYTES && pending.position() > 0 && isOpen()) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+
+            if (pending.remaining() < recordBytes) {
+                final ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordBytes));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            if (pending.position() == 0) {
+                pendingSince = System.nanoTime();
+            }
+
+            pending.put(record);
+            appendedPosition += recordBytes;
+
+            if (policy == DurabilityPolicy.PER_OPERATION || pending.position() >= batchBytes) {
+                notifyAll();
+            }
+            return appendedPosition;
+        }
+    }
+
+    /**
+     * Encodes a framed record into the calling thread's scratch buffer.
+     *
+     * @param encoder writes the record payload into the buffer it is given
+     * @return the scratch buffer, flipped so that it holds exactly the framed record
+     */
+    private static ByteBuffer encode(final Consumer<ByteBuffer> encoder) {
+        ByteBuffer buffer = SCRATCH.get();
+        while (true) {
+            buffer.clear();
+            buffer.position(HEADER_BYTES);
+            try {
+                encoder.accept(buffer);
+                break;
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                SCRATCH.set(buffer);
+            }
+        }
+
+        final int payloadBytes = buffer.position() - HEADER_BYTES;
+        final CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_BYTES, payloadBytes);
+
+        buffer.putInt(0, payloadBytes);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Body of the flusher thread: waits for a batch to become due, writes it, forces it if required,
+     * and wakes up the callers waiting for it.
+     */
+    private void flushLoop() {
+        while (true) {
+            final ByteBuffer batch;
+            final long batchEnd;
+
+            synchronized (this) {
+                while (!closed && !isBatchDue()) {
+                    try {
+                        if (pending.position() == 0 || policy == DurabilityPolicy.PER_OPERATION) {
+                            wait();
+                        } else {
+                            final long remainingNanos = pendingSince + batchDelayNanos - System.nanoTime();
+                            wait(Math.max(1, remainingNanos / 1_000_000L));
+                        }
+                    } catch (InterruptedException ex) {
+                        closed = true;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+
+                batch = pending;
+                batchEnd = appendedPosition;
+                pending = spare;
+                spare = null;
+                flushRequested = false;
+                notifyAll();
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (policy != DurabilityPolicy.ASYNC) {
+                    channel.force(false);
+                }
+            } catch (IOException ex) {
+                synchronized (this) {
+                    failure = ex;
+                    closed = true;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                durablePosition = batchEnd;
+                batch.clear();
+                spare = batch;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Checks if the pending batch should be written now.
+     *
+     * @return true if the batch is due under the durability policy, false otherwise
+     */
+    private boolean isBatchDue() {
+        if (pending.position() == 0 || spare == null) {
+            return false;
+        }
+        return policy == DurabilityPolicy.PER_OPERATION
+                || flushRequested
+                || pending.position() >= batchBytes
+                || System.nanoTime() - pendingSince >= batchDelayNanos;
+    }
+
+    /**
+     * Checks if the log still accepts records.
+     *
+     * @return true if the log is neither closed nor failed
+     */
+    private boolean isOpen() {
+        return !closed && failure == null;
+    }
+
+    /**
+     * Reads every valid record from the given position of the channel and hands it to the handler.
+     *
+     * @param channel the channel of the log file
+     * @param replayFrom the position of the first record to read
+     * @param handler the handler receiving the records
+     * @return the position just past the last valid record
+     * @throws IOException if the log file cannot be read
+     */
+    private static long replay(final FileChannel channel, final long replayFrom,
+                               final LogReplayHandler handler) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer payload = ByteBuffer.allocate(SCRATCH_BYTES);
+        final long size = channel.size();
+        long position = replayFrom;
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            final int payloadBytes = header.getInt(0);
+            final int checksum = header.getInt(Integer.BYTES);
+
+            if (payloadBytes <= 0 || position + HEADER_BYTES + payloadBytes > size) {
+                break;
+            }
+            if (payload.capacity() < payloadBytes) {
+                payload = ByteBuffer.allocate(payloadBytes);
+            }
+
+            payload.clear().limit(payloadBytes);
+            readFully(channel, payload, position + HEADER_BYTES);
+
+            final CRC32C crc = new CRC32C();
+            crc.update(payload.array(), 0, payloadBytes);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            payload.flip();
+            RecordCodec.dispatch(payload, handler);
+            position += HEADER_BYTES + payloadBytes;
+        }
+
+        return position;
+    }
+
+    /**
+     * Fills the buffer from the channel starting at the given file position.
+     *
+     * @param channel the channel to read from
+     * @param buffer the buffer to fill
+     * @param position the file position to start reading at
+     * @throws IOException if the channel cannot be read or ends early
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of log at " + offset);
+            }
+            offset += read;
+        }
+    }
+}